@@ -0,0 +1,239 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A bot that plays a GameSession: it heads for the nearest treasure chest or the portal,
+ * opens locked doors on the way, keeps away from the chasers and pushes a chaser when
+ * it blocks the way.
+ *
+ * Every turn it works from two distance fields over the tile grid. The goal field is a
+ * BFS from all treasure chests and the portal, through walkable tiles and locked doors,
+ * so following it downhill leads to the nearest goal. The chaser field is a BFS from all
+ * chasers at once, cut off after a few steps, and tells which moves a chaser could answer
+ * by stepping onto the player. Moves onto tiles at chaser distance below 2 are never taken.
+ * A push that turns out to be blocked by walls behind the chaser is not tried again
+ * from the same position.
+ *
+ * Waiting is always safe, since the chasers only move when the player does, so the bot
+ * cannot be forced into being caught; instead it can get stuck. It only waits when no
+ * move is safe, and since waiting changes nothing it will then wait forever, so callers
+ * can treat WAIT as a stalled game. Callers should still cap the number of turns, as the
+ * bot can also wander back and forth. Ties and an occasional random safe move are decided
+ * by the Random given, so different seeds give different games on the same world.
+ */
+public class AutoPlayer {
+    private static final GameSession.Input[] MOVES = {
+        GameSession.Input.UP, GameSession.Input.DOWN, GameSession.Input.LEFT, GameSession.Input.RIGHT
+    };
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    // The chaser field only needs to tell apart distances 0, 1 and "2 or more"
+    private static final int CHASER_HORIZON = 3;
+    // Chance of a random safe move instead of the best one
+    private static final double EXPLORE = 0.05;
+
+    private final Random random;
+
+    // Last push, to notice pushes the walls behind the chaser make useless
+    private GameSession lastSession;
+    private boolean lastWasPush;
+    private int pushesBefore;
+    private long blockedPush = -1;
+
+    // Distance fields and BFS queue, indexed x * height + y; reused between turns
+    private int[] goalDist = new int[0];
+    private int[] chaserDist = new int[0];
+    private int[] queue = new int[0];
+    private int width;
+    private int height;
+
+    /**
+     * @param random decides ties and random moves
+     */
+    public AutoPlayer(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Chooses the input for the session's next turn.
+     */
+    public GameSession.Input next(GameSession session) {
+        TETile[][] world = session.world;
+        Player player = session.player;
+        // The chaser a push would hit
+        Chaser chaser = session.chaserInPushRange();
+        resize(world.length, world[0].length);
+        computeGoalField(world);
+        computeChaserField(world, session.chasers);
+
+        int here = cell(player.pos.x, player.pos.y);
+        if (session != lastSession) {
+            lastSession = session;
+            lastWasPush = false;
+            blockedPush = -1;
+        }
+        // A push that used no charge was blocked, and stays blocked until someone moves
+        long position = chaser == null ? -1 : (long) here << 32 | cell(chaser.pos.x, chaser.pos.y);
+        if (lastWasPush && player.pushAbilityCount == pushesBefore) {
+            blockedPush = position;
+        }
+        lastWasPush = false;
+        int fx = player.pos.x + player.facing.dx;
+        int fy = player.pos.y + player.facing.dy;
+
+        // Facing a goal: take it. Facing a locked door on the way: open it.
+        if (inBounds(fx, fy)) {
+            TETile front = world[fx][fy];
+            if (isGoal(front)
+                    || front.equals(Tileset.LOCKED_DOOR) && goalDist[cell(fx, fy)] < goalDist[here]) {
+                return GameSession.Input.INTERACT;
+            }
+        }
+
+        // Push the chaser out of the way when it stands between the player and the goal
+        if (chaser != null && session.canPush() && chaserDist[here] <= 2
+                && goalDist[cell(chaser.pos.x, chaser.pos.y)] <= goalDist[here] && position != blockedPush) {
+            return push(player);
+        }
+
+        GameSession.Input best = null;
+        int bestScore = UNREACHED;
+        int safeMoves = 0;
+        GameSession.Input randomMove = null;
+        for (GameSession.Input move : MOVES) {
+            int nx = player.pos.x + move.direction.dx;
+            int ny = player.pos.y + move.direction.dy;
+            if (!inBounds(nx, ny)) {
+                continue;
+            }
+            int next = cell(nx, ny);
+            TETile tile = world[nx][ny];
+            boolean turnToward = isGoal(tile) || tile.equals(Tileset.LOCKED_DOOR);
+            // Turning toward a blocked tile doesn't move the player, so it is always safe
+            if (!turnToward && (!GameSession.isWalkableTile(tile) || chaserDist[next] < 2)) {
+                continue;
+            }
+            if (turnToward && goalDist[next] >= goalDist[here]) {
+                continue;
+            }
+            int score = goalDist[next];
+            safeMoves++;
+            if (random.nextInt(safeMoves) == 0) {
+                randomMove = move;
+            }
+            if (score < bestScore || score == bestScore && random.nextBoolean()) {
+                best = move;
+                bestScore = score;
+            }
+        }
+
+        if (best == null) {
+            return session.canPush() && position != blockedPush ? push(player) : GameSession.Input.WAIT;
+        }
+        if (random.nextDouble() < EXPLORE) {
+            return randomMove;
+        }
+        return best;
+    }
+
+    private GameSession.Input push(Player player) {
+        lastWasPush = true;
+        pushesBefore = player.pushAbilityCount;
+        return GameSession.Input.PUSH;
+    }
+
+    /**
+     * BFS from every treasure chest and the portal. Locked doors are passable, since
+     * the bot opens them, and so are the player and the chaser.
+     */
+    private void computeGoalField(TETile[][] world) {
+        Arrays.fill(goalDist, UNREACHED);
+        int tail = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (isGoal(world[x][y])) {
+                    goalDist[cell(x, y)] = 0;
+                    queue[tail++] = cell(x, y);
+                }
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int c = queue[head];
+            int cx = c / height;
+            int cy = c % height;
+            for (GameSession.Input move : MOVES) {
+                int nx = cx + move.direction.dx;
+                int ny = cy + move.direction.dy;
+                if (!inBounds(nx, ny) || goalDist[cell(nx, ny)] != UNREACHED) {
+                    continue;
+                }
+                TETile tile = world[nx][ny];
+                if (GameSession.isWalkableTile(tile) || tile.equals(Tileset.LOCKED_DOOR)
+                        || tile.equals(Tileset.AVATAR) || tile.equals(Tileset.CHASER)) {
+                    goalDist[cell(nx, ny)] = goalDist[c] + 1;
+                    queue[tail++] = cell(nx, ny);
+                }
+            }
+        }
+    }
+
+    /**
+     * BFS from every chaser over the tiles they can walk, up to CHASER_HORIZON steps.
+     */
+    private void computeChaserField(TETile[][] world, List<Chaser> chasers) {
+        Arrays.fill(chaserDist, UNREACHED);
+        int tail = 0;
+        for (Chaser chaser : chasers) {
+            int start = cell(chaser.pos.x, chaser.pos.y);
+            chaserDist[start] = 0;
+            queue[tail++] = start;
+        }
+        for (int head = 0; head < tail; head++) {
+            int c = queue[head];
+            if (chaserDist[c] == CHASER_HORIZON) {
+                break;
+            }
+            int cx = c / height;
+            int cy = c % height;
+            for (GameSession.Input move : MOVES) {
+                int nx = cx + move.direction.dx;
+                int ny = cy + move.direction.dy;
+                if (!inBounds(nx, ny) || chaserDist[cell(nx, ny)] != UNREACHED) {
+                    continue;
+                }
+                TETile tile = world[nx][ny];
+                if (GameSession.isWalkableTile(tile) || tile.equals(Tileset.AVATAR) || tile.equals(Tileset.CHASER)) {
+                    chaserDist[cell(nx, ny)] = chaserDist[c] + 1;
+                    queue[tail++] = cell(nx, ny);
+                }
+            }
+        }
+    }
+
+    private static boolean isGoal(TETile tile) {
+        return tile.equals(Tileset.TREASURE) || tile.equals(Tileset.PORTAL);
+    }
+
+    private void resize(int w, int h) {
+        width = w;
+        height = h;
+        if (goalDist.length != w * h) {
+            goalDist = new int[w * h];
+            chaserDist = new int[w * h];
+            queue = new int[w * h];
+        }
+    }
+
+    private int cell(int x, int y) {
+        return x * height + y;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
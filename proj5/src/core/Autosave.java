@@ -0,0 +1,143 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a running game every few turns without making the game loop wait for the disk.
+ *
+ * turnPlayed() takes a SessionSnapshot, which copies one byte per tile and the
+ * entities' fields, and hands it to a background thread that writes it with
+ * SaveLoad.save(). Only the copy happens on the game thread; the save itself, and
+ * rebuilding tiles from the snapshot, happen on the writer thread. When the writer is
+ * still busy with an older snapshot, a newer one replaces the one waiting, so at most
+ * one save is ever queued and the file always ends up with the latest state.
+ *
+ * Saves are written to a temporary file and renamed, so a crash during an autosave
+ * leaves the previous save intact. The autosave only exists to recover from a crash:
+ * discard() deletes it when the game ends or is saved for good.
+ */
+public class Autosave {
+    private final String path;
+    private final int everyTurns;
+    private final SaveLoad.Origin origin;
+    private final ArrayBlockingQueue<SessionSnapshot> pending = new ArrayBlockingQueue<>(1);
+    private final Thread writer;
+    private final LatencyHistogram pause = new LatencyHistogram("autosave pause");
+    private final LatencyHistogram write = new LatencyHistogram("autosave write");
+    private volatile boolean closed;
+
+    // Written by the game thread
+    private volatile long taken;
+    private volatile long replaced;
+
+    // Written by the writer thread
+    private volatile long written;
+    private volatile String error;
+
+    /**
+     * Starts an autosave and its writer thread.
+     * @param path save file, replaced by every autosave
+     * @param everyTurns turns between autosaves, at least 1
+     * @param origin how the world was generated, so saves can be journals; may be null
+     */
+    public Autosave(String path, int everyTurns, SaveLoad.Origin origin) {
+        if (everyTurns < 1) {
+            throw new IllegalArgumentException("everyTurns must be at least 1: " + everyTurns);
+        }
+        this.path = path;
+        this.everyTurns = everyTurns;
+        this.origin = origin;
+        writer = new Thread(this::writeLoop, "autosave");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Snapshots the session for saving if it has just played a multiple of everyTurns
+     * turns and is still being played. Never blocks on the writer.
+     */
+    public void turnPlayed(GameSession session) {
+        if (closed || session.turn() % everyTurns != 0
+                || session.outcome() != GameSession.Outcome.PLAYING) {
+            return;
+        }
+        long start = System.nanoTime();
+        SessionSnapshot snapshot = session.snapshot();
+        if (!pending.offer(snapshot)) {
+            // The writer has not picked up the previous snapshot yet; this one is newer
+            if (pending.poll() != null) {
+                replaced++;
+            }
+            pending.offer(snapshot);
+        }
+        pause.record(System.nanoTime() - start);
+        taken++;
+    }
+
+    /**
+     * Stops taking snapshots and waits for a pending one to be written, so the caller
+     * can write the same file afterwards.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops autosaving and deletes the save file, once the game has ended or was saved
+     * elsewhere, so a later load does not resume it.
+     */
+    public void discard() {
+        close();
+        try {
+            Files.deleteIfExists(Path.of(path));
+        } catch (IOException e) {
+            error = e.toString();
+        }
+    }
+
+    /**
+     * Summary of snapshots taken, written and replaced, and the pause and write times.
+     */
+    public String stats() {
+        return String.format("%s every=%d taken=%d written=%d replaced=%d%s%n%s%n%s",
+                path, everyTurns, taken, written, replaced,
+                error == null ? "" : " error=" + error, pause.summary(), write.summary());
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                SessionSnapshot snapshot = pending.poll(50, TimeUnit.MILLISECONDS);
+                if (snapshot == null) {
+                    // Once closed, stop as soon as the pending snapshot is written
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                long start = System.nanoTime();
+                SaveLoad.save(path, snapshot, origin, SaveLoad.Compression.RLE);
+                write.record(System.nanoTime() - start);
+                written++;
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            error = e.toString();
+            // Keep the game running without autosaves
+            closed = true;
+        }
+    }
+}
@@ -9,16 +9,20 @@ public class Chaser {
     public Point pos;
     public Point previousPos; // Previous position before last move
     public List<Point> path;
-    public List<Point> previousPath; // Previous path for clearing
     public boolean showPath;
     public TETile tileUnderChaser;
+    // Decides the terrain costs of the chaser's paths
+    public ChaserType type = ChaserType.STANDARD;
+    // Stealth mode: where the player was last seen, (-1, -1) if not since losing track
+    public final Point lastSeen = new Point(-1, -1);
+    // Stealth mode: index of the room center this chaser patrols towards
+    public int patrolIndex;
 
     public Chaser(int x, int y) {
         pos = new Point(x, y);
         previousPos = new Point(x, y); // Initialize to same position
         showPath = false;
         path = null;
-        previousPath = null;
         tileUnderChaser = Tileset.FLOOR;
     }
 }
@@ -0,0 +1,505 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plans one step for every chaser so that they never end up on the same tile and spread
+ * over different corridors instead of queueing behind each other.
+ *
+ * One BFS from the player's previous position, the tile chasers head for, gives every
+ * chaser its distance to the player; all chasers of a type share it. Chasers whose type
+ * weighs terrain (see ChaserType) get a Dijkstra over a BucketQueue instead, and their
+ * distances and step costs are in terrain cost rather than steps. Chasers plan in order
+ * of that distance, closest first. The closest one takes the shortest path Pathfinder
+ * finds, just like a lone chaser. Each later one runs a space-time A* over (cell, turn)
+ * for HORIZON turns, with the distance field as heuristic, around a reservation table
+ * holding the cells and moves of the chasers planned before it. Cells on those earlier
+ * plans cost extra, so a chaser would rather take a slightly longer corridor than trail
+ * another chaser, and chasers close in from several sides.
+ *
+ * The BFS is linear in the world size and each search is bounded by the horizon, so a
+ * turn costs about one BFS per chaser type plus a small constant per chaser. All arrays
+ * are reused. The per-cell tables are only allocated once more than one chaser is
+ * planned, so a planner for a lone chaser stays a few dozen bytes; see bytes().
+ */
+public class ChaserPlanner {
+    /** Turns each chaser plans ahead. */
+    public static final int HORIZON = 8;
+    // Extra cost of a cell on an earlier chaser's plan
+    private static final int TRAFFIC_COST = 2;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private int width;
+    private int height;
+    private int cells;
+
+    // Distance of each cell to the target per cost table in use, and the BFS queue
+    private TerrainCosts[] fieldCosts = new TerrainCosts[0];
+    private int[][] fields = new int[0][];
+    private int fieldCount;
+    private int[] queue = new int[0];
+    // Dijkstra queue of the weighted fields, created with the tables
+    private BucketQueue buckets;
+    // Field of each chaser
+    private int[] fieldOf = new int[0];
+    // Distances and costs of the chaser being planned
+    private int[] dist;
+    private TerrainCosts costs;
+
+    // Reservation table over (turn, cell): the chaser holding it, valid if stamped this turn
+    private int[] reservedStamp = new int[0];
+    private int[] reservedBy = new int[0];
+    private int[] trafficStamp = new int[0];
+    private int[] traffic = new int[0];
+    private int turnStamp;
+
+    // A* state over (turn, cell), valid if stamped with the current search
+    private int[] seenStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] cost = new int[0];
+    private int[] cameFrom = new int[0];
+    private int searchStamp;
+    private int[] heapNode = new int[64];
+    private int[] heapKey = new int[64];
+    private int heapSize;
+
+    // Output of plan(): chaser indexes in planning order and the cell each one moves to
+    private int[] order = new int[0];
+    private int[] next = new int[0];
+
+    /**
+     * Rough heap size of a planner's arrays once it has planned the given chasers in a
+     * world of the given size.
+     * @param fields distance fields it keeps, one per distinct cost table of the chasers
+     */
+    public static long bytes(int width, int height, int chasers, int fields) {
+        long arrays = 16L * 3 + 3 * (16 + 4L * chasers) + 2 * (16 + 4L * 64);
+        if (chasers < 2) {
+            return arrays;
+        }
+        long cells = (long) width * height;
+        long slots = (HORIZON + 1) * cells;
+        int buckets = TerrainCosts.MAX_COST + 1;
+        long bucketQueue = 32 + 2 * (16 + 4L * buckets) + buckets * (16 + 4L * 16);
+        return arrays + bucketQueue + 6 * (16 + 4 * slots) + (3 + fields) * (16 + 4 * cells);
+    }
+
+    /**
+     * Plans the chasers' next step.
+     * @param target the tile the chasers head for
+     */
+    public void plan(TETile[][] world, List<Chaser> chasers, Point target) {
+        resize(world.length, world[0].length, chasers.size());
+        if (chasers.size() == 1) {
+            // A lone chaser needs neither the ordering, the distance field nor the
+            // reservation table
+            Chaser c = chasers.get(0);
+            next[0] = firstStep(cell(c.pos.x, c.pos.y), Pathfinder.findPath(c.pos, target, world, c.type.costs));
+            return;
+        }
+        allocateTables();
+        turnStamp++;
+        computeFields(world, chasers, cell(target.x, target.y));
+        sortByDistance(chasers);
+
+        for (int k = 0; k < chasers.size(); k++) {
+            int i = order[k];
+            Chaser c = chasers.get(i);
+            dist = fields[fieldOf[i]];
+            costs = c.type.costs;
+            int start = cell(c.pos.x, c.pos.y);
+            if (k == 0) {
+                planLeader(world, c, target, i);
+            } else if (dist[start] == UNREACHED) {
+                next[i] = start;
+                reservePath(i, start, start, 0);
+            } else {
+                search(world, i, start);
+            }
+        }
+    }
+
+    /** Number of chasers planned by the last plan(). */
+    public int size() {
+        return next.length;
+    }
+
+    /** Index of the k-th chaser in planning order, closest to the player first. */
+    public int order(int k) {
+        return order[k];
+    }
+
+    /** x of the cell chaser i should move to; its own cell if it should stay. */
+    public int nextX(int i) {
+        return next[i] / height;
+    }
+
+    /** y of the cell chaser i should move to; its own cell if it should stay. */
+    public int nextY(int i) {
+        return next[i] % height;
+    }
+
+    /**
+     * The closest chaser follows Pathfinder's shortest path, the same one a lone chaser
+     * takes, and reserves it.
+     */
+    private void planLeader(TETile[][] world, Chaser c, Point target, int i) {
+        int start = cell(c.pos.x, c.pos.y);
+        List<Point> path = Pathfinder.findPath(c.pos, target, world, c.type.costs);
+        next[i] = firstStep(start, path);
+        int last = start;
+        setReserved(0, start, i);
+        for (int t = 1; t <= HORIZON; t++) {
+            if (t <= path.size()) {
+                Point p = path.get(t - 1);
+                last = cell(p.x, p.y);
+                addTraffic(last);
+            }
+            setReserved(t, last, i);
+        }
+    }
+
+    private int firstStep(int start, List<Point> path) {
+        return path.isEmpty() ? start : cell(path.get(0).x, path.get(0).y);
+    }
+
+    /**
+     * Space-time A* from the chaser's cell. Ends at the target or at the horizon, where
+     * the rest of the way is estimated by the distance field.
+     */
+    private void search(TETile[][] world, int i, int start) {
+        searchStamp++;
+        heapSize = 0;
+        open(start, 0, -1);
+        int goal = -1;
+        while (heapSize > 0) {
+            int node = pop();
+            if (closedStamp[node] == searchStamp) {
+                continue;
+            }
+            closedStamp[node] = searchStamp;
+            int t = node / cells;
+            int c = node % cells;
+            if (t == HORIZON || dist[c] == 0) {
+                goal = node;
+                break;
+            }
+            int cx = c / height;
+            int cy = c % height;
+            // Waiting in place
+            tryStep(i, node, c, c, t, 1);
+            for (Direction d : DIRECTIONS) {
+                int nx = cx + d.dx;
+                int ny = cy + d.dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int nc = cell(nx, ny);
+                if (dist[nc] != UNREACHED) {
+                    tryStep(i, node, c, nc, t, costs.cost(world[nx][ny]));
+                }
+            }
+        }
+
+        if (goal < 0) {
+            // Boxed in by reservations: stay
+            next[i] = start;
+            reservePath(i, start, start, 0);
+            return;
+        }
+        // Walk back to the first step, reserving the plan on the way
+        int node = goal;
+        int end = goal % cells;
+        int endTurn = goal / cells;
+        for (int t = endTurn + 1; t <= HORIZON; t++) {
+            setReserved(t, end, i);
+        }
+        int first = start;
+        while (node / cells > 0) {
+            int c = node % cells;
+            setReserved(node / cells, c, i);
+            addTraffic(c);
+            first = c;
+            node = cameFrom[node];
+        }
+        setReserved(0, start, i);
+        next[i] = first;
+    }
+
+    /**
+     * Considers stepping from cell c at turn t to cell nc, unless another chaser holds nc
+     * at t + 1 or the two would swap places.
+     * @param enterCost terrain cost of the step, 1 for waiting
+     */
+    private void tryStep(int i, int node, int c, int nc, int t, int enterCost) {
+        int owner = reservedAt(t + 1, nc);
+        if (owner >= 0 && owner != i) {
+            return;
+        }
+        int other = reservedAt(t, nc);
+        if (other >= 0 && other != i && reservedAt(t + 1, c) == other) {
+            return;
+        }
+        int stepCost = enterCost + TRAFFIC_COST * trafficAt(nc);
+        open(nc, t + 1, node, cost[node] + stepCost);
+    }
+
+    private void open(int c, int t, int from) {
+        open(c, t, from, 0);
+    }
+
+    private void open(int c, int t, int from, int g) {
+        int node = t * cells + c;
+        if (seenStamp[node] == searchStamp && cost[node] <= g) {
+            return;
+        }
+        seenStamp[node] = searchStamp;
+        cost[node] = g;
+        cameFrom[node] = from;
+        // Key: estimated total cost, ties broken toward later turns
+        push(node, (g + dist[c]) * (HORIZON + 1) + (HORIZON - t));
+    }
+
+    /** Reserves a chaser that stays where it is for the whole horizon. */
+    private void reservePath(int i, int start, int end, int fromTurn) {
+        for (int t = fromTurn; t <= HORIZON; t++) {
+            setReserved(t, t == fromTurn ? start : end, i);
+        }
+    }
+
+    private void setReserved(int t, int c, int i) {
+        int slot = t * cells + c;
+        reservedStamp[slot] = turnStamp;
+        reservedBy[slot] = i;
+    }
+
+    private int reservedAt(int t, int c) {
+        int slot = t * cells + c;
+        return reservedStamp[slot] == turnStamp ? reservedBy[slot] : -1;
+    }
+
+    private void addTraffic(int c) {
+        if (trafficStamp[c] != turnStamp) {
+            trafficStamp[c] = turnStamp;
+            traffic[c] = 0;
+        }
+        traffic[c]++;
+    }
+
+    private int trafficAt(int c) {
+        return trafficStamp[c] == turnStamp ? traffic[c] : 0;
+    }
+
+    /**
+     * Computes the distance field of each cost table the chasers use, and notes which
+     * one each chaser uses.
+     */
+    private void computeFields(TETile[][] world, List<Chaser> chasers, int target) {
+        fieldCount = 0;
+        for (int i = 0; i < chasers.size(); i++) {
+            TerrainCosts table = chasers.get(i).type.costs;
+            int f = 0;
+            while (f < fieldCount && fieldCosts[f] != table) {
+                f++;
+            }
+            if (f == fieldCount) {
+                if (fieldCount == fields.length) {
+                    fields = Arrays.copyOf(fields, fieldCount + 1);
+                    fieldCosts = Arrays.copyOf(fieldCosts, fieldCount + 1);
+                    fields[fieldCount] = new int[cells];
+                }
+                fieldCosts[fieldCount++] = table;
+                if (table.isUniform()) {
+                    computeDistances(world, target, fields[f]);
+                } else {
+                    computeCosts(world, target, fields[f], table);
+                }
+            }
+            fieldOf[i] = f;
+        }
+    }
+
+    /**
+     * BFS from the target over the tiles chasers can walk, including tiles with the
+     * player or a chaser on them.
+     */
+    private void computeDistances(TETile[][] world, int target, int[] dist) {
+        Arrays.fill(dist, UNREACHED);
+        dist[target] = 0;
+        queue[0] = target;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int c = queue[head];
+            int cx = c / height;
+            int cy = c % height;
+            for (Direction d : DIRECTIONS) {
+                int nx = cx + d.dx;
+                int ny = cy + d.dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int nc = cell(nx, ny);
+                if (dist[nc] != UNREACHED) {
+                    continue;
+                }
+                TETile tile = world[nx][ny];
+                if (GameSession.isWalkableTile(tile) || tile.equals(Tileset.AVATAR) || tile.equals(Tileset.CHASER)) {
+                    dist[nc] = dist[c] + 1;
+                    queue[tail++] = nc;
+                }
+            }
+        }
+    }
+
+    /**
+     * Like computeDistances, but Dijkstra over the bucket queue: each cell gets the cost
+     * of the cheapest path from it to the target, a step costing the table's cost of
+     * the tile it enters.
+     */
+    private void computeCosts(TETile[][] world, int target, int[] dist, TerrainCosts table) {
+        Arrays.fill(dist, UNREACHED);
+        dist[target] = 0;
+        buckets.clear();
+        buckets.push(target, 0);
+        while (!buckets.isEmpty()) {
+            int c = buckets.pop();
+            int d = buckets.lastKey();
+            if (d > dist[c]) {
+                continue;
+            }
+            // Walking backwards from the target: the step from the neighbor enters c
+            int enter = table.cost(world[c / height][c % height]);
+            int cx = c / height;
+            int cy = c % height;
+            for (Direction dir : DIRECTIONS) {
+                int nx = cx + dir.dx;
+                int ny = cy + dir.dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int nc = cell(nx, ny);
+                if (d + enter < dist[nc] && GameSession.isChaserWalkable(world[nx][ny])) {
+                    dist[nc] = d + enter;
+                    buckets.push(nc, d + enter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders the chasers by distance, ties by index, with an insertion sort; the order
+     * barely changes between turns.
+     */
+    private void sortByDistance(List<Chaser> chasers) {
+        int n = chasers.size();
+        int[] keys = queue;
+        for (int i = 0; i < n; i++) {
+            Chaser c = chasers.get(i);
+            keys[i] = fields[fieldOf[i]][cell(c.pos.x, c.pos.y)];
+        }
+        for (int k = 1; k < n; k++) {
+            int i = order[k];
+            int j = k - 1;
+            while (j >= 0 && (keys[order[j]] > keys[i] || keys[order[j]] == keys[i] && order[j] > i)) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = i;
+        }
+    }
+
+    private void push(int node, int key) {
+        if (heapSize == heapNode.length) {
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+            heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapKey[parent] <= key) {
+                break;
+            }
+            heapNode[i] = heapNode[parent];
+            heapKey[i] = heapKey[parent];
+            i = parent;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+    }
+
+    private int pop() {
+        int top = heapNode[0];
+        int node = heapNode[--heapSize];
+        int key = heapKey[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                child++;
+            }
+            if (heapKey[child] >= key) {
+                break;
+            }
+            heapNode[i] = heapNode[child];
+            heapKey[i] = heapKey[child];
+            i = child;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+        return top;
+    }
+
+    private void resize(int w, int h, int chasers) {
+        width = w;
+        height = h;
+        cells = w * h;
+        if (next.length != chasers) {
+            next = new int[chasers];
+            fieldOf = new int[chasers];
+            order = new int[chasers];
+            for (int i = 0; i < chasers; i++) {
+                order[i] = i;
+            }
+        }
+    }
+
+    /**
+     * Allocates the per-cell tables of a multi-chaser plan for the current world size,
+     * unless they already fit it.
+     */
+    private void allocateTables() {
+        if (buckets == null) {
+            buckets = new BucketQueue(TerrainCosts.MAX_COST);
+        }
+        if (queue.length != cells) {
+            fields = new int[0][];
+            fieldCosts = new TerrainCosts[0];
+            queue = new int[cells];
+            int slots = (HORIZON + 1) * cells;
+            reservedStamp = new int[slots];
+            reservedBy = new int[slots];
+            trafficStamp = new int[cells];
+            traffic = new int[cells];
+            seenStamp = new int[slots];
+            closedStamp = new int[slots];
+            cost = new int[slots];
+            cameFrom = new int[slots];
+            // Stamps of the new arrays are all 0, so restart the counters above it
+            turnStamp = 0;
+            searchStamp = 0;
+        }
+    }
+
+    private int cell(int x, int y) {
+        return x * height + y;
+    }
+}
@@ -0,0 +1,31 @@
+package core;
+
+import tileengine.Tileset;
+
+/**
+ * Kinds of chaser, told apart by the terrain costs their pathfinding uses.
+ */
+public enum ChaserType {
+    /** Every walkable tile costs the same, as chasers have always planned. */
+    STANDARD(TerrainCosts.UNIFORM),
+    /** Goes around sand and snow when a detour is short, and keeps off lava and spikes. */
+    WARY(TerrainCosts.UNIFORM
+            .with(Tileset.SAND, 3)
+            .with(Tileset.SNOW, 4)
+            .with(Tileset.SPIKE, 12)
+            .with(Tileset.LAVA, 16)),
+    /** Keeps to grass and flowers, crosses bare floor if it must and avoids the rest. */
+    PROWLER(TerrainCosts.UNIFORM
+            .with(Tileset.FLOOR, 2)
+            .with(Tileset.UNLOCKED_DOOR, 2)
+            .with(Tileset.SAND, 4)
+            .with(Tileset.SNOW, 5)
+            .with(Tileset.SPIKE, 16)
+            .with(Tileset.LAVA, 16));
+
+    public final TerrainCosts costs;
+
+    ChaserType(TerrainCosts costs) {
+        this.costs = costs;
+    }
+}
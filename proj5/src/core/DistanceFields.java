@@ -0,0 +1,95 @@
+package core;
+
+import tileengine.TETile;
+
+import java.util.Arrays;
+
+/**
+ * Distances to a few fixed targets over the tiles chasers walk, such as the room centers
+ * chasers patrol in stealth mode. A target's field is computed by BFS the first time it
+ * is asked for and kept until invalidate(), which the session calls when a tile turns
+ * walkable or unwalkable. Chasers heading for the same few targets thus share one BFS
+ * per target for as long as the doors stay as they are, instead of one per turn.
+ */
+public class DistanceFields {
+    public static final int UNREACHED = Integer.MAX_VALUE;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    // Per target, allocated on first use
+    private final int[][] fields;
+    private final boolean[] valid;
+    private final int[] queue;
+
+    public DistanceFields(int width, int height, int targets) {
+        this.width = width;
+        this.height = height;
+        fields = new int[targets][];
+        valid = new boolean[targets];
+        queue = new int[width * height];
+    }
+
+    /** Drops every field; each is computed again when next asked for. */
+    public void invalidate() {
+        Arrays.fill(valid, false);
+    }
+
+    /**
+     * Distances to target i, which is at (tx, ty), indexed x * height + y.
+     */
+    public int[] field(TETile[][] world, int i, int tx, int ty) {
+        if (!valid[i]) {
+            if (fields[i] == null) {
+                fields[i] = new int[width * height];
+            }
+            compute(world, fields[i], tx * height + ty);
+            valid[i] = true;
+        }
+        return fields[i];
+    }
+
+    /**
+     * The neighbor of (x, y) one step closer in a field, the first in Direction order if
+     * several are.
+     * @return its index x * height + y, or -1 if (x, y) is the target or can't reach it
+     */
+    public int nextStep(int[] field, int x, int y) {
+        int d = field[x * height + y];
+        if (d == 0 || d == UNREACHED) {
+            return -1;
+        }
+        for (Direction dir : DIRECTIONS) {
+            int nx = x + dir.dx;
+            int ny = y + dir.dy;
+            if (nx >= 0 && nx < width && ny >= 0 && ny < height && field[nx * height + ny] == d - 1) {
+                return nx * height + ny;
+            }
+        }
+        return -1;
+    }
+
+    private void compute(TETile[][] world, int[] dist, int target) {
+        Arrays.fill(dist, UNREACHED);
+        dist[target] = 0;
+        queue[0] = target;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int c = queue[head];
+            int cx = c / height;
+            int cy = c % height;
+            for (Direction d : DIRECTIONS) {
+                int nx = cx + d.dx;
+                int ny = cy + d.dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                int nc = nx * height + ny;
+                if (dist[nc] == UNREACHED && GameSession.isChaserWalkable(world[nx][ny])) {
+                    dist[nc] = dist[c] + 1;
+                    queue[tail++] = nc;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Positions and state of the moving entities of a game, kept in parallel primitive
+ * arrays: x, y, previous x and y, the id of the tile under the entity, kind flags and
+ * an owner index (e.g. the entity's index in GameSession.chasers).
+ *
+ * The arrays are dense: the live entities sit in indexes 0 to size() - 1, so a scan
+ * over them touches a few int arrays and allocates nothing. Removing an entity moves
+ * the last one into its place, so indexes change; handles don't. A handle names one
+ * slot plus the slot's generation, which removing bumps, so a stale handle is noticed
+ * instead of silently naming whatever entity reuses the slot.
+ *
+ * A SpatialHash over the slots, updated on every add, remove and move, answers the
+ * position queries, so they cost about the number of entities near the tile rather
+ * than the number of entities.
+ */
+public class EntityStore {
+    /** Kind flags. */
+    public static final int PLAYER = 1;
+    public static final int CHASER = 2;
+
+    private static final int SLOT_BITS = 20;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+    // Cells of 4x4 tiles, in 16 buckets at first; the hash adds buckets as entities come
+    private static final int CELL_SHIFT = 2;
+    private static final int TABLE_BITS = 4;
+
+    // Dense per-entity arrays, valid below size
+    private int[] x = new int[8];
+    private int[] y = new int[8];
+    private int[] previousX = new int[8];
+    private int[] previousY = new int[8];
+    private int[] tileUnder = new int[8];
+    private int[] flags = new int[8];
+    private int[] owner = new int[8];
+    private int[] handleOf = new int[8];
+    private int size;
+
+    // Per slot: dense index of its entity (-1 if free) and generation
+    private int[] indexOf = new int[8];
+    private int[] generation = new int[8];
+    private int slots;
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+
+    private final SpatialHash hash = new SpatialHash(CELL_SHIFT, TABLE_BITS);
+    // Indexes found by the last within()
+    private int[] found = new int[8];
+
+    /**
+     * Rough heap size of a store holding the given number of entities.
+     */
+    public static long bytes(int entities) {
+        int capacity = Math.max(8, Integer.highestOneBit(Math.max(1, entities - 1)) << 1);
+        int buckets = Math.max(1 << TABLE_BITS, capacity);
+        long storeArrays = 12 * (16 + 4L * capacity);
+        long hashArrays = 6 * (16 + 4L * Math.max(16, capacity)) + 16 + 4L * buckets;
+        return 64 + storeArrays + 32 + hashArrays;
+    }
+
+    /**
+     * Adds an entity that has not moved yet: its previous position is its position.
+     * @param kind kind flags, e.g. CHASER
+     * @param tileUnderId id of the tile under the entity
+     * @param ownerIndex index of the entity in its owner's list
+     * @return the entity's handle
+     */
+    public int add(int kind, int x, int y, int tileUnderId, int ownerIndex) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slots > SLOT_MASK) {
+                throw new IllegalStateException("Too many entities");
+            }
+            if (slots == indexOf.length) {
+                indexOf = Arrays.copyOf(indexOf, slots * 2);
+                generation = Arrays.copyOf(generation, slots * 2);
+            }
+            slot = slots++;
+        }
+        if (size == this.x.length) {
+            grow(size * 2);
+        }
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        previousX[i] = x;
+        previousY[i] = y;
+        tileUnder[i] = tileUnderId;
+        flags[i] = kind;
+        owner[i] = ownerIndex;
+        int handle = generation[slot] << SLOT_BITS | slot;
+        handleOf[i] = handle;
+        indexOf[slot] = i;
+        hash.insert(slot, x, y);
+        return handle;
+    }
+
+    /**
+     * Removes an entity. Its handle, and only its handle, becomes invalid.
+     * @throws IllegalArgumentException if the handle is not valid
+     */
+    public void remove(int handle) {
+        int i = index(handle);
+        int slot = handle & SLOT_MASK;
+        int last = --size;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            previousX[i] = previousX[last];
+            previousY[i] = previousY[last];
+            tileUnder[i] = tileUnder[last];
+            flags[i] = flags[last];
+            owner[i] = owner[last];
+            handleOf[i] = handleOf[last];
+            indexOf[handleOf[i] & SLOT_MASK] = i;
+        }
+        indexOf[slot] = -1;
+        hash.remove(slot);
+        generation[slot] = (generation[slot] + 1) & GENERATION_MASK;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    /** @return true if the handle names an entity in the store */
+    public boolean contains(int handle) {
+        int slot = handle & SLOT_MASK;
+        return handle >= 0 && slot < slots && indexOf[slot] >= 0
+                && generation[slot] == handle >>> SLOT_BITS;
+    }
+
+    /** Number of entities; their indexes are 0 to size() - 1. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Current index of an entity. Only valid until the next remove().
+     * @throws IllegalArgumentException if the handle is not valid
+     */
+    public int index(int handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("Stale or unknown entity handle " + handle);
+        }
+        return indexOf[handle & SLOT_MASK];
+    }
+
+    /** Handle of the entity at an index. */
+    public int handle(int index) {
+        return handleOf[index];
+    }
+
+    /**
+     * Moves an entity; its current position becomes its previous one.
+     */
+    public void moveTo(int handle, int newX, int newY) {
+        int i = index(handle);
+        previousX[i] = x[i];
+        previousY[i] = y[i];
+        x[i] = newX;
+        y[i] = newY;
+        hash.move(handle & SLOT_MASK, newX, newY);
+    }
+
+    /** Sets an entity's previous position, e.g. when restoring a saved game. */
+    public void setPrevious(int handle, int px, int py) {
+        int i = index(handle);
+        previousX[i] = px;
+        previousY[i] = py;
+    }
+
+    public void setTileUnder(int handle, int tileId) {
+        tileUnder[index(handle)] = tileId;
+    }
+
+    // Accessors by index, for scans
+
+    public int x(int index) {
+        return x[index];
+    }
+
+    public int y(int index) {
+        return y[index];
+    }
+
+    public int previousX(int index) {
+        return previousX[index];
+    }
+
+    public int previousY(int index) {
+        return previousY[index];
+    }
+
+    public int tileUnder(int index) {
+        return tileUnder[index];
+    }
+
+    public int flags(int index) {
+        return flags[index];
+    }
+
+    public int owner(int index) {
+        return owner[index];
+    }
+
+    /**
+     * Finds an entity of one of the given kinds at a tile.
+     * @return the lowest index of one, or -1
+     */
+    public int indexAt(int tx, int ty, int kinds) {
+        int n = hash.query(tx, ty, 0);
+        int first = -1;
+        for (int k = 0; k < n; k++) {
+            int i = indexOf[hash.result(k)];
+            if ((flags[i] & kinds) != 0 && (first < 0 || i < first)) {
+                first = i;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Finds the entities of the given kinds within Chebyshev distance r of a tile.
+     * @return the number found; found(k) gives their indexes, valid until the next call
+     */
+    public int within(int tx, int ty, int r, int kinds) {
+        int n = hash.query(tx, ty, r);
+        int count = 0;
+        for (int k = 0; k < n; k++) {
+            int i = indexOf[hash.result(k)];
+            if ((flags[i] & kinds) != 0) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    /** The k-th index found by the last within(). */
+    public int found(int k) {
+        return found[k];
+    }
+
+    /**
+     * Finds an entity of one of the given kinds that swapped tiles with the entity at
+     * index i in their last moves: each is where the other was.
+     * @return its index, or -1
+     */
+    public int indexSwappedWith(int i, int kinds) {
+        // Only entities on i's previous tile can have swapped with it
+        int n = hash.query(previousX[i], previousY[i], 0);
+        for (int k = 0; k < n; k++) {
+            int j = indexOf[hash.result(k)];
+            if (j != i && (flags[j] & kinds) != 0
+                    && previousX[j] == x[i] && previousY[j] == y[i]) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        tileUnder = Arrays.copyOf(tileUnder, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        handleOf = Arrays.copyOf(handleOf, capacity);
+    }
+}
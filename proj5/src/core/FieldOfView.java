@@ -0,0 +1,227 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.util.Arrays;
+
+/**
+ * The tiles in line of sight of one origin, found by recursive shadowcasting.
+ *
+ * Each of the 8 octants around the origin is scanned row by row outward; an opaque tile
+ * casts a shadow, the scan of the row goes on past it and the lit part beyond is
+ * scanned recursively. Every tile is looked at at most once per octant, and tiles in
+ * shadow not at all. Opaque tiles are lit themselves, so walls show.
+ *
+ * Visibility and opacity are kept in bitsets indexed x * height + y. The opacity bitset
+ * mirrors the world and is patched through tileChanged(), so update() only recomputes
+ * when the origin moved or a tile turned opaque or clear. After a recompute the cells
+ * whose visibility flipped are listed by flippedCount(), flippedX() and flippedY().
+ */
+public class FieldOfView {
+    // Octant transforms: row/column offsets to x and y
+    private static final int[] XX = {1, 0, 0, -1, -1, 0, 0, 1};
+    private static final int[] XY = {0, 1, -1, 0, 0, -1, 1, 0};
+    private static final int[] YX = {0, 1, 1, 0, 0, -1, -1, 0};
+    private static final int[] YY = {1, 0, 0, 1, -1, 0, 0, -1};
+
+    private final int width;
+    private final int height;
+    private final int maxRow;
+    private final long[] opaque;
+    private long[] visible;
+    // Visibility before the last recompute
+    private long[] previous;
+
+    private int originX = -1;
+    private int originY = -1;
+    private boolean dirty = true;
+
+    private int[] flipped = new int[64];
+    private int flippedCount;
+
+    /**
+     * @param world the world tile map; its opaque tiles are read now and then kept up
+     *              to date through tileChanged()
+     */
+    public FieldOfView(TETile[][] world) {
+        width = world.length;
+        height = world[0].length;
+        maxRow = Math.max(width, height);
+        int words = (width * height + 63) >>> 6;
+        opaque = new long[words];
+        visible = new long[words];
+        previous = new long[words];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (isOpaque(world[x][y])) {
+                    set(opaque, x * height + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tiles that block sight: walls, the void, locked doors and tall things like
+     * mountains, trees, bookshelves, statues and crates.
+     */
+    public static boolean isOpaque(TETile tile) {
+        return tile == null
+                || tile.equals(Tileset.WALL)
+                || tile.equals(Tileset.NOTHING)
+                || tile.equals(Tileset.LOCKED_DOOR)
+                || tile.equals(Tileset.MOUNTAIN)
+                || tile.equals(Tileset.TREE)
+                || tile.equals(Tileset.BOOKSHELF)
+                || tile.equals(Tileset.STATUE)
+                || tile.equals(Tileset.CRATE);
+    }
+
+    /**
+     * Notes that a tile changed. Only a change between opaque and clear makes the next
+     * update() recompute.
+     */
+    public void tileChanged(TETile[][] world, int x, int y) {
+        int cell = x * height + y;
+        boolean nowOpaque = isOpaque(world[x][y]);
+        if (nowOpaque != get(opaque, cell)) {
+            if (nowOpaque) {
+                set(opaque, cell);
+            } else {
+                opaque[cell >>> 6] &= ~(1L << cell);
+            }
+            dirty = true;
+        }
+    }
+
+    /**
+     * Treats a tile as clear whatever is on it, until tileChanged() reads it again;
+     * e.g. to see past a door that may be opened later.
+     */
+    void setClear(int x, int y) {
+        int cell = x * height + y;
+        if (get(opaque, cell)) {
+            opaque[cell >>> 6] &= ~(1L << cell);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Recomputes what is visible from (x, y) if the origin moved or an opaque tile
+     * changed since the last time.
+     * @return true if it recomputed; the flipped cells are then listed
+     */
+    public boolean update(int x, int y) {
+        flippedCount = 0;
+        if (!dirty && x == originX && y == originY) {
+            return false;
+        }
+        originX = x;
+        originY = y;
+        dirty = false;
+
+        long[] t = previous;
+        previous = visible;
+        visible = t;
+        Arrays.fill(visible, 0);
+        set(visible, x * height + y);
+        for (int octant = 0; octant < 8; octant++) {
+            castLight(1, 1.0, 0.0, XX[octant], XY[octant], YX[octant], YY[octant]);
+        }
+
+        for (int w = 0; w < visible.length; w++) {
+            long diff = visible[w] ^ previous[w];
+            while (diff != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(diff);
+                diff &= diff - 1;
+                if (flippedCount == flipped.length) {
+                    flipped = Arrays.copyOf(flipped, flippedCount * 2);
+                }
+                flipped[flippedCount++] = cell;
+            }
+        }
+        return true;
+    }
+
+    /** @return true if (x, y) was in sight at the last recompute */
+    public boolean isVisible(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && get(visible, x * height + y);
+    }
+
+    /** ORs the cells in sight at the last recompute into a bitset indexed x * height + y. */
+    void addVisibleTo(long[] bits) {
+        for (int w = 0; w < visible.length; w++) {
+            bits[w] |= visible[w];
+        }
+    }
+
+    /** @return number of cells whose visibility flipped in the last update() */
+    public int flippedCount() {
+        return flippedCount;
+    }
+
+    public int flippedX(int i) {
+        return flipped[i] / height;
+    }
+
+    public int flippedY(int i) {
+        return flipped[i] % height;
+    }
+
+    /**
+     * Scans one octant from the given row outward, lighting the tiles between the
+     * start and end slopes.
+     */
+    private void castLight(int row, double start, double end, int xx, int xy, int yx, int yy) {
+        if (start < end) {
+            return;
+        }
+        double newStart = 0;
+        for (int j = row; j <= maxRow; j++) {
+            boolean blocked = false;
+            int dy = -j;
+            for (int dx = -j; dx <= 0; dx++) {
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (start < rightSlope) {
+                    continue;
+                }
+                if (end > leftSlope) {
+                    break;
+                }
+                int tx = originX + dx * xx + dy * xy;
+                int ty = originY + dx * yx + dy * yy;
+                boolean inside = tx >= 0 && tx < width && ty >= 0 && ty < height;
+                int cell = tx * height + ty;
+                if (inside) {
+                    set(visible, cell);
+                }
+                // Outside the world counts as opaque
+                boolean blocks = !inside || get(opaque, cell);
+                if (blocked) {
+                    if (blocks) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (blocks && j < maxRow) {
+                    blocked = true;
+                    castLight(j + 1, start, leftSlope, xx, xy, yx, yy);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+}
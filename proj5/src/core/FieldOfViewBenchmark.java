@@ -0,0 +1,73 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.util.Random;
+
+/**
+ * Measures how long a FieldOfView recompute takes, with the player moved by the
+ * AutoPlayer bot so the origin goes where a player would go.
+ *
+ * Usage: java core.FieldOfViewBenchmark [turns] [S|M|B] [seed]
+ *
+ * Every turn's changed tiles are fed to tileChanged() and update() is called as the fog
+ * of war does; only the calls that recompute are timed. A game that ends is replaced by
+ * the next seed's world.
+ */
+public class FieldOfViewBenchmark {
+    // Turns without any change after which a stalled bot's game is replaced
+    private static final int MAX_IDLE_TURNS = 8;
+
+    public static void main(String[] args) {
+        long turns = args.length > 0 ? Long.parseLong(args[0]) : 200_000;
+        char size = args.length > 1 ? Character.toUpperCase(args[1].charAt(0)) : 'B';
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int[] dims = switch (size) {
+            case 'S' -> new int[] {50, 30};
+            case 'M' -> new int[] {80, 50};
+            case 'B' -> new int[] {110, 70};
+            default -> throw new IllegalArgumentException("Unknown size: " + size);
+        };
+
+        // Warm up so the JIT has compiled the shadowcasting before measuring
+        run(turns / 10, dims, seed, new LatencyHistogram("warmup"));
+        LatencyHistogram recompute = new LatencyHistogram("recompute");
+        long flips = run(turns, dims, seed, recompute);
+
+        System.out.printf("size=%dx%d turns=%d recomputes=%d flipsPerRecompute=%.1f%n",
+                dims[0], dims[1], turns, recompute.count(),
+                recompute.count() == 0 ? 0.0 : (double) flips / recompute.count());
+        System.out.println(recompute.summary());
+    }
+
+    /** @return total cells flipped */
+    private static long run(long turns, int[] dims, long seed, LatencyHistogram recompute) {
+        AutoPlayer bot = new AutoPlayer(new Random(seed));
+        long worldSeed = seed;
+        GameSession session = GameSession.generate(worldSeed, dims[0], dims[1]);
+        FieldOfView fov = new FieldOfView(session.world);
+        long flips = 0;
+        int idle = 0;
+        for (long t = 0; t < turns; t++) {
+            GameSession.StepResult result = session.step(bot.next(session));
+            for (int i = 0; i < session.changedCount(); i++) {
+                fov.tileChanged(session.world, session.changedX(i), session.changedY(i));
+            }
+            long start = System.nanoTime();
+            boolean recomputed = fov.update(session.player.pos.x, session.player.pos.y);
+            long elapsed = System.nanoTime() - start;
+            if (recomputed) {
+                recompute.record(elapsed);
+                flips += fov.flippedCount();
+            }
+            idle = result.changedTiles() == 0 ? idle + 1 : 0;
+            // A stalled bot would leave the rest of the run without recomputes
+            if (result.outcome() != GameSession.Outcome.PLAYING || idle >= MAX_IDLE_TURNS) {
+                session = GameSession.generate(++worldSeed, dims[0], dims[1]);
+                fov = new FieldOfView(session.world);
+                idle = 0;
+            }
+        }
+        return flips;
+    }
+}
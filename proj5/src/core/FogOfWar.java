@@ -0,0 +1,146 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * What the player sees in fog-of-war mode (--fog): a copy of the world to draw instead
+ * of the world itself. Tiles in line of sight show as they are, tiles seen before show
+ * dimmed as they were when last seen, and tiles never seen are blank. A tile is
+ * remembered without the entity on it, so chasers out of sight are hidden.
+ *
+ * After each step, sync() patches the view with the tiles the step changed and the
+ * tiles whose visibility flipped, and lists those cells so only they get redrawn.
+ */
+public class FogOfWar {
+    // Dimmed tiles get their own ids, so renderers that remember tile ids redraw them
+    private static final int DIM_ID_OFFSET = 128;
+    private static final double DIM = 0.4;
+
+    private final TETile[][] world;
+    private final EntityStore entities;
+    private final TETile[][] view;
+    private final FieldOfView fov;
+    private TETile[] dimmed = new TETile[32];
+
+    // Cells to redraw after the last sync, possibly with repeats
+    private int[] redrawX = new int[64];
+    private int[] redrawY = new int[64];
+    private int redrawCount;
+
+    /**
+     * Builds the view of a session from where its player stands.
+     */
+    public FogOfWar(GameSession session) {
+        this.world = session.world;
+        this.entities = session.entities();
+        view = new TETile[world.length][world[0].length];
+        for (TETile[] column : view) {
+            Arrays.fill(column, Tileset.NOTHING);
+        }
+        fov = new FieldOfView(world);
+        fov.update(session.player.pos.x, session.player.pos.y);
+        applyFlips();
+    }
+
+    /**
+     * The tile a tile of the view shows: the tile itself, or for a dimmed tile the tile
+     * it was dimmed from.
+     */
+    public static TETile undimmed(TETile tile) {
+        return tile.id() >= DIM_ID_OFFSET ? Tileset.byId(tile.id() - DIM_ID_OFFSET) : tile;
+    }
+
+    /** The tiles to draw. */
+    public TETile[][] view() {
+        return view;
+    }
+
+    /** @return true if the tile is in the player's line of sight */
+    public boolean isVisible(int x, int y) {
+        return fov.isVisible(x, y);
+    }
+
+    /**
+     * Brings the view up to date after a step of the session.
+     * @return number of cells to redraw; redrawX(i) and redrawY(i) give them
+     */
+    public int sync(GameSession session) {
+        redrawCount = 0;
+        for (int i = 0; i < session.changedCount(); i++) {
+            int x = session.changedX(i);
+            int y = session.changedY(i);
+            fov.tileChanged(world, x, y);
+            if (fov.isVisible(x, y)) {
+                view[x][y] = world[x][y];
+                addRedraw(x, y);
+            }
+        }
+        if (fov.update(session.player.pos.x, session.player.pos.y)) {
+            applyFlips();
+        }
+        return redrawCount;
+    }
+
+    public int redrawX(int i) {
+        return redrawX[i];
+    }
+
+    public int redrawY(int i) {
+        return redrawY[i];
+    }
+
+    /**
+     * Updates the view cells whose visibility flipped in the last recompute.
+     */
+    private void applyFlips() {
+        for (int i = 0; i < fov.flippedCount(); i++) {
+            int x = fov.flippedX(i);
+            int y = fov.flippedY(i);
+            // Newly visible tiles show as they are, tiles leaving sight as remembered
+            view[x][y] = fov.isVisible(x, y) ? world[x][y] : dim(terrain(x, y));
+            addRedraw(x, y);
+        }
+    }
+
+    /** The tile at (x, y) without the player or a chaser standing on it. */
+    private TETile terrain(int x, int y) {
+        TETile tile = world[x][y];
+        if (tile.equals(Tileset.AVATAR) || tile.equals(Tileset.CHASER)) {
+            int i = entities.indexAt(x, y, EntityStore.PLAYER | EntityStore.CHASER);
+            if (i >= 0) {
+                return Tileset.byId(entities.tileUnder(i));
+            }
+        }
+        return tile;
+    }
+
+    private TETile dim(TETile tile) {
+        int id = tile.id();
+        if (id >= dimmed.length) {
+            dimmed = Arrays.copyOf(dimmed, id + 1);
+        }
+        if (dimmed[id] == null) {
+            dimmed[id] = new TETile(tile.character(), scale(tile.textColor()), scale(tile.backgroundColor()),
+                    tile.description(), id + DIM_ID_OFFSET);
+        }
+        return dimmed[id];
+    }
+
+    private static Color scale(Color c) {
+        return new Color((int) (c.getRed() * DIM), (int) (c.getGreen() * DIM), (int) (c.getBlue() * DIM));
+    }
+
+    private void addRedraw(int x, int y) {
+        if (redrawCount == redrawX.length) {
+            redrawX = Arrays.copyOf(redrawX, redrawCount * 2);
+            redrawY = Arrays.copyOf(redrawY, redrawCount * 2);
+        }
+        redrawX[redrawCount] = x;
+        redrawY[redrawCount] = y;
+        redrawCount++;
+    }
+}
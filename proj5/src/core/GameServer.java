@@ -0,0 +1,196 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Plays games for remote clients over the NetProtocol. Each connection gets its own
+ * GameSession, played on a virtual thread: the client's keys are stepped in order and
+ * every message is answered with a frame holding the tiles the turn changed and where
+ * the entities are.
+ *
+ * Usage: java core.GameServer [port]
+ *
+ * Listens on the loopback interface only.
+ */
+public class GameServer implements AutoCloseable {
+    private final ServerSocket server;
+    private final Thread acceptor;
+
+    /**
+     * Starts listening on the loopback interface.
+     * @param port port to listen on, or 0 for any free port
+     */
+    public GameServer(int port) {
+        try {
+            server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not listen on port " + port, e);
+        }
+        acceptor = Thread.ofPlatform().name("game-server").daemon(true).start(this::acceptLoop);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : NetProtocol.DEFAULT_PORT;
+        GameServer server = new GameServer(port);
+        System.out.println("Listening on " + server.server.getLocalSocketAddress());
+        server.acceptor.join();
+    }
+
+    /** The port the server listens on. */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections. Games in progress end when their clients disconnect.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().name("client-" + socket.getPort()).start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays one connection's messages until it disconnects or sends garbage.
+     */
+    private static void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            Connection c = new Connection();
+            while (true) {
+                int type;
+                try {
+                    type = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                c.handle(type, in, out);
+                out.flush();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Client " + socket.getRemoteSocketAddress() + " dropped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * State of one client: its game and the frame sequence.
+     */
+    private static class Connection {
+        private GameSession session;
+        private long frameSeq;
+        private long ackedSeq;
+
+        void handle(int type, DataInputStream in, DataOutputStream out) throws IOException {
+            switch (type) {
+                case NetProtocol.JOIN:
+                    long seed = in.readLong();
+                    int width = SessionSnapshot.readVarint(in);
+                    int height = SessionSnapshot.readVarint(in);
+                    if (width < 10 || height < 10 || width > NetProtocol.MAX_SIDE || height > NetProtocol.MAX_SIDE) {
+                        throw new IllegalArgumentException("Bad world size " + width + "x" + height);
+                    }
+                    session = GameSession.generate(seed, width, height);
+                    frameSeq = 0;
+                    writeFull(out);
+                    break;
+                case NetProtocol.KEY:
+                    ackedSeq = NetProtocol.readVarlong(in);
+                    char key = (char) in.readUnsignedByte();
+                    requireSession();
+                    GameSession.Input input = GameSession.Input.forKey(Character.toUpperCase(key));
+                    if (input != null) {
+                        session.step(input);
+                    }
+                    if ((frameSeq + 1) % NetProtocol.FULL_EVERY == 0) {
+                        writeFull(out);
+                    } else {
+                        // A key that isn't a turn still gets an (empty) frame as its ack
+                        writeDelta(out, input != null);
+                    }
+                    break;
+                case NetProtocol.RESYNC:
+                    ackedSeq = NetProtocol.readVarlong(in);
+                    requireSession();
+                    writeFull(out);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown message type " + type);
+            }
+        }
+
+        private void requireSession() {
+            if (session == null) {
+                throw new IllegalArgumentException("Message before JOIN");
+            }
+        }
+
+        private void writeHeader(DataOutputStream out, int type) throws IOException {
+            out.writeByte(type);
+            NetProtocol.writeVarlong(out, ++frameSeq);
+            NetProtocol.writeVarlong(out, ackedSeq);
+            NetProtocol.writeVarlong(out, session.turn());
+            out.writeByte(session.outcome().ordinal());
+            int height = session.world[0].length;
+            Player p = session.player;
+            SessionSnapshot.writeVarint(out, p.pos.x * height + p.pos.y);
+            out.writeByte(p.facing.ordinal());
+            SessionSnapshot.writeVarint(out, p.pushAbilityCount);
+            SessionSnapshot.writeVarint(out, session.chasers.size());
+            for (Chaser c : session.chasers) {
+                SessionSnapshot.writeVarint(out, c.pos.x * height + c.pos.y);
+            }
+        }
+
+        private void writeFull(DataOutputStream out) throws IOException {
+            writeHeader(out, NetProtocol.FULL);
+            int width = session.world.length;
+            int height = session.world[0].length;
+            SessionSnapshot.writeVarint(out, width);
+            SessionSnapshot.writeVarint(out, height);
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    out.writeByte(session.world[x][y].id());
+                }
+            }
+        }
+
+        private void writeDelta(DataOutputStream out, boolean stepped) throws IOException {
+            writeHeader(out, NetProtocol.DELTA);
+            int height = session.world[0].length;
+            int n = stepped ? session.changedCount() : 0;
+            SessionSnapshot.writeVarint(out, n);
+            for (int i = 0; i < n; i++) {
+                int x = session.changedX(i);
+                int y = session.changedY(i);
+                SessionSnapshot.writeVarint(out, x * height + y);
+                out.writeByte(session.world[x][y].id());
+            }
+        }
+    }
+}
@@ -0,0 +1,808 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The rules of one game: the world, the player and the chasers, advanced one input at a
+ * time by step().
+ *
+ * A session never draws, sleeps or exits. step() changes the tile map and entities and
+ * returns what happened; the tiles it changed are listed by changedCount(), changedX()
+ * and changedY() until the next step. World draws those tiles and shows the end screens,
+ * and headless code can run the same rules as fast as it can call step().
+ */
+public class GameSession {
+    /** One player action per turn. */
+    public enum Input {
+        WAIT(null), UP(Direction.UP), DOWN(Direction.DOWN), LEFT(Direction.LEFT), RIGHT(Direction.RIGHT),
+        INTERACT(null), PUSH(null);
+
+        /** Direction to move in, or null for actions that don't move the player */
+        public final Direction direction;
+
+        Input(Direction direction) {
+            this.direction = direction;
+        }
+
+        /**
+         * The input a key plays: WASD moves, I interacts and space pushes.
+         * @param key upper-case key character
+         * @return the input, or null if the key doesn't play a turn
+         */
+        public static Input forKey(char key) {
+            switch (key) {
+                case 'W':
+                    return UP;
+                case 'A':
+                    return LEFT;
+                case 'S':
+                    return DOWN;
+                case 'D':
+                    return RIGHT;
+                case 'I':
+                    // Interact with tiles (open treasure, unlock doors, etc.)
+                    return INTERACT;
+                case ' ':
+                    // Push ability (밀쳐내기) - push chaser away
+                    return PUSH;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Told when a step starts and finishes planning and moving the chasers, e.g. so a
+     * game loop can time that apart from the rest of the step.
+     */
+    public interface PlanningListener {
+        void planningStarted();
+
+        void planningFinished();
+    }
+
+    /** State of the game after a step. */
+    public enum Outcome {
+        PLAYING, CAUGHT, CLEARED
+    }
+
+    /**
+     * What a step did.
+     * @param playerMoved true if the player moved to another tile
+     * @param outcome whether the game goes on, and how it ended if not
+     * @param changedTiles number of tiles the step changed
+     */
+    public record StepResult(boolean playerMoved, Outcome outcome, int changedTiles) {
+    }
+
+    // Chebyshev distance within which the chaser can be pushed
+    private static final int PUSH_RANGE = 2;
+    private static final int PUSH_DISTANCE = 3;
+    // Stealth mode targets that are not a tile: the player, the chaser's room center,
+    // already moved, none
+    private static final int HUNT = -1;
+    private static final int PATROL = -2;
+    private static final int MOVED = -3;
+    private static final int STAY = -4;
+
+    public final TETile[][] world;
+    public final Player player;
+    // Empty for a game without chasers
+    public final List<Chaser> chasers;
+    private final ChaserPlanner planner = new ChaserPlanner();
+
+    // Stealth mode (setStealth): chasers only home in on a player they can see. All three
+    // are null when it is off.
+    private VisibilityCache sight;
+    private FieldOfView playerView;
+    private DistanceFields patrolFields;
+    // Stealth mode scratch: each chaser's target tile, and the chasers sharing one
+    private final ChaserPlanner searchPlanner = new ChaserPlanner();
+    private int[] targetCell = new int[0];
+    private final List<Chaser> group = new ArrayList<>();
+    private int[] groupIndex = new int[0];
+    private final Point groupTarget = new Point();
+
+    // The player and chasers again, as the rules scan them; kept in step with the objects
+    private final EntityStore entities = new EntityStore();
+    private final int playerHandle;
+    private final int[] chaserHandles;
+
+    private Outcome outcome = Outcome.PLAYING;
+    private long turn;
+    private PlanningListener planningListener;
+
+    // Tiles changed by the last step, possibly with repeats
+    private int[] changedX = new int[8];
+    private int[] changedY = new int[8];
+    private int changedCount;
+
+    /**
+     * @param world the world tile map, with the player's AVATAR tile on it
+     * @param player the player
+     * @param chasers the chasers, possibly none; the list is kept
+     */
+    public GameSession(TETile[][] world, Player player, List<Chaser> chasers) {
+        this.world = world;
+        this.player = player;
+        this.chasers = chasers;
+        playerHandle = entities.add(EntityStore.PLAYER, player.pos.x, player.pos.y,
+                player.tileUnderPlayer.id(), 0);
+        entities.setPrevious(playerHandle, player.previousPos.x, player.previousPos.y);
+        chaserHandles = new int[chasers.size()];
+        for (int i = 0; i < chasers.size(); i++) {
+            Chaser c = chasers.get(i);
+            chaserHandles[i] = entities.add(EntityStore.CHASER, c.pos.x, c.pos.y, c.tileUnderChaser.id(), i);
+            entities.setPrevious(chaserHandles[i], c.previousPos.x, c.previousPos.y);
+        }
+    }
+
+    /**
+     * Generates a new world and places the player and one chaser in it.
+     */
+    public static GameSession generate(long seed, int width, int height) {
+        return generate(seed, width, height, 1);
+    }
+
+    /**
+     * Generates a new world and places the player and the given number of chasers in it.
+     * The world is the same for any number of chasers except for the extra ones.
+     */
+    public static GameSession generate(long seed, int width, int height, int chaserCount) {
+        WorldGenerator gen = new WorldGenerator(width, height, seed, chaserCount);
+        TETile[][] world = gen.generate();
+
+        // Find avatar position and create Player
+        Player player = findPlayer(world);
+
+        // Create chasers at the positions from WorldGenerator
+        List<Chaser> chasers = new ArrayList<>();
+        List<Point> positions = gen.getChaserPositions();
+        for (int i = 0; i < positions.size(); i++) {
+            Chaser chaser = new Chaser(positions.get(i).x, positions.get(i).y);
+            chaser.tileUnderChaser = gen.getChaserTilesUnder().get(i);
+            chasers.add(chaser);
+        }
+        return new GameSession(world, player, chasers);
+    }
+
+    /**
+     * Rebuilds a session from a snapshot. It plays on exactly like the session the
+     * snapshot was taken from.
+     * @throws IllegalArgumentException if the snapshot holds an unknown tile id or
+     *         chaser type
+     */
+    public static GameSession restore(SessionSnapshot s) {
+        List<Chaser> chasers = s.chasers();
+        GameSession session = new GameSession(s.world(), s.player(), chasers);
+        session.turn = s.turn;
+        session.outcome = s.outcome;
+        if (s.stealth) {
+            session.setStealth(true);
+            for (int i = 0; i < chasers.size(); i++) {
+                chasers.get(i).lastSeen.setLocation(s.chaserLastSeenX[i], s.chaserLastSeenY[i]);
+                chasers.get(i).patrolIndex = s.chaserPatrolIndex[i];
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Gives the chasers types in turn: chaser i gets types[i % types.length]. Call it
+     * before the first step.
+     */
+    public void setChaserTypes(ChaserType... types) {
+        if (types.length == 0) {
+            throw new IllegalArgumentException("No chaser types");
+        }
+        for (int i = 0; i < chasers.size(); i++) {
+            chasers.get(i).type = types[i % types.length];
+        }
+    }
+
+    /**
+     * Turns stealth mode on or off; call it before the first step. In stealth mode a
+     * chaser homes in on the player only while it can see them. Otherwise it heads for
+     * where it last saw them, and once there, or if it never saw them, patrols the room
+     * centers in turn. Turning it on builds the world's VisibilityCache.
+     */
+    public void setStealth(boolean on) {
+        if (!on) {
+            sight = null;
+            playerView = null;
+            patrolFields = null;
+            return;
+        }
+        sight = new VisibilityCache(world);
+        playerView = new FieldOfView(world);
+        int centers = sight.centerCount();
+        patrolFields = new DistanceFields(world.length, world[0].length, centers);
+        for (int i = 0; i < chasers.size(); i++) {
+            Chaser chaser = chasers.get(i);
+            chaser.lastSeen.setLocation(-1, -1);
+            // Spread the chasers over the rooms
+            chaser.patrolIndex = centers == 0 ? 0 : i % centers;
+        }
+    }
+
+    /**
+     * Reports the chasers' planning of every step from now on to the given listener, or
+     * to no one if it is null.
+     */
+    public void setPlanningListener(PlanningListener listener) {
+        planningListener = listener;
+    }
+
+    /** @return true if the session is in stealth mode */
+    public boolean isStealth() {
+        return sight != null;
+    }
+
+    /**
+     * Copies the session's state into a snapshot.
+     */
+    public SessionSnapshot snapshot() {
+        return new SessionSnapshot(this);
+    }
+
+    /**
+     * Finds the avatar in the world and creates a Player object at that position.
+     */
+    private static Player findPlayer(TETile[][] world) {
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                if (world[x][y].equals(Tileset.AVATAR)) {
+                    return new Player(x, y);
+                }
+            }
+        }
+        throw new RuntimeException("Avatar not found in world");
+    }
+
+    /**
+     * Plays one turn. The chasers take a step only when the player moved. Once the game
+     * has ended, further steps change nothing.
+     */
+    public StepResult step(Input input) {
+        changedCount = 0;
+        if (outcome != Outcome.PLAYING) {
+            return new StepResult(false, outcome, 0);
+        }
+        turn++;
+
+        boolean playerMoved = false;
+        switch (input) {
+            case UP:
+            case DOWN:
+            case LEFT:
+            case RIGHT:
+                playerMoved = movePlayer(input.direction);
+                break;
+            case INTERACT:
+                interact();
+                break;
+            case PUSH:
+                pushChaser();
+                break;
+            default:
+                break;
+        }
+
+        if (outcome == Outcome.PLAYING && !chasers.isEmpty()) {
+            checkCaught(playerMoved);
+        }
+        return new StepResult(playerMoved, outcome, changedCount);
+    }
+
+    /**
+     * Ends the game if a chaser caught the player, moving the chasers first if the
+     * player moved.
+     */
+    private void checkCaught(boolean playerMoved) {
+        if (playerMoved) {
+            // Check if player moved to a chaser's current position
+            if (entities.indexAt(player.pos.x, player.pos.y, EntityStore.CHASER) >= 0) {
+                outcome = Outcome.CAUGHT;
+                return;
+            }
+
+            // Move chasers (this will update their previousPos)
+            if (planningListener != null) {
+                planningListener.planningStarted();
+            }
+            moveChasers();
+            if (planningListener != null) {
+                planningListener.planningFinished();
+            }
+
+            // Check if one swapped positions with the player (passed through each other)
+            // Player's previous position = Chaser's current position AND
+            // Chaser's previous position = Player's current position
+            if (entities.indexSwappedWith(entities.index(playerHandle), EntityStore.CHASER) >= 0) {
+                outcome = Outcome.CAUGHT;
+                return;
+            }
+        }
+
+        // Also catches a chaser stepping onto the player
+        if (entities.indexAt(player.pos.x, player.pos.y, EntityStore.CHASER) >= 0) {
+            outcome = Outcome.CAUGHT;
+        }
+    }
+
+    /** The player and chasers as parallel arrays, for allocation-free scans. */
+    public EntityStore entities() {
+        return entities;
+    }
+
+    /** @return the game state after the last step */
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    /** @return number of turns played */
+    public long turn() {
+        return turn;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of everything the rules depend on: the tile ids, the player
+     * and chaser state, whether stealth mode is on, the turn number and the outcome. Two
+     * sessions that played the same turns from the same start have the same hash.
+     */
+    public long stateHash() {
+        long h = 0xcbf29ce484222325L;
+        for (TETile[] column : world) {
+            for (TETile tile : column) {
+                h = mix(h, tile == null ? -1 : tile.id());
+            }
+        }
+        h = mix(h, player.pos.x);
+        h = mix(h, player.pos.y);
+        h = mix(h, player.previousPos.x);
+        h = mix(h, player.previousPos.y);
+        h = mix(h, player.facing.ordinal());
+        h = mix(h, player.tileUnderPlayer.id());
+        h = mix(h, player.pushAbilityCount);
+        for (Chaser chaser : chasers) {
+            h = mix(h, chaser.pos.x);
+            h = mix(h, chaser.pos.y);
+            h = mix(h, chaser.previousPos.x);
+            h = mix(h, chaser.previousPos.y);
+            h = mix(h, chaser.tileUnderChaser.id());
+            h = mix(h, chaser.type.ordinal());
+            h = mix(h, chaser.lastSeen.x);
+            h = mix(h, chaser.lastSeen.y);
+            h = mix(h, chaser.patrolIndex);
+        }
+        h = mix(h, sight != null ? 1 : 0);
+        h = mix(h, turn);
+        return mix(h, outcome.ordinal());
+    }
+
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (8 * i)) & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** @return number of tiles changed by the last step, possibly with repeats */
+    public int changedCount() {
+        return changedCount;
+    }
+
+    /** @return x of the i-th tile changed by the last step */
+    public int changedX(int i) {
+        return changedX[i];
+    }
+
+    /** @return y of the i-th tile changed by the last step */
+    public int changedY(int i) {
+        return changedY[i];
+    }
+
+    /**
+     * @return true if the player has a push left and a chaser is in push range
+     */
+    public boolean canPush() {
+        return player.pushAbilityCount > 0 && chaserInPushRange() != null;
+    }
+
+    /**
+     * Moves the player in the specified direction if the target tile is walkable.
+     * @return true if player actually moved, false otherwise
+     */
+    private boolean movePlayer(Direction dir) {
+        player.facing = dir;
+
+        int nx = player.pos.x + dir.dx;
+        int ny = player.pos.y + dir.dy;
+
+        // Check bounds
+        if (!inBounds(nx, ny)) {
+            return false;
+        }
+
+        // Check if target tile is walkable (matches WorldGenerator.isWalkableTile
+        // logic)
+        if (!isWalkableTile(world[nx][ny])) {
+            return false;
+        }
+
+        // Save previous position before moving (for chaser to track)
+        player.previousPos.setLocation(player.pos);
+
+        // Restore old location with the tile that was under the player
+        setTile(player.pos.x, player.pos.y, player.tileUnderPlayer);
+
+        // Save the new tile that will be under the player
+        player.tileUnderPlayer = world[nx][ny];
+        entities.setTileUnder(playerHandle, player.tileUnderPlayer.id());
+
+        // Move player and place avatar tile
+        player.pos.setLocation(nx, ny);
+        entities.moveTo(playerHandle, nx, ny);
+        setTile(nx, ny, Tileset.AVATAR);
+        return true;
+    }
+
+    /**
+     * Moves every chaser one step towards the player, as planned by the ChaserPlanner.
+     * Chasers track the player's previous position (before last move) to avoid
+     * immediately catching up to the player's new position. They move closest first, so
+     * a chaser can step into a tile the one ahead of it just left; one whose next tile
+     * still holds a chaser stays put.
+     */
+    private void moveChasers() {
+        if (sight != null) {
+            moveChasersInStealth();
+            return;
+        }
+        planner.plan(world, chasers, player.previousPos);
+        for (int k = 0; k < planner.size(); k++) {
+            int i = planner.order(k);
+            moveChaser(i, planner.nextX(i), planner.nextY(i));
+            if (chasers.get(i).pos.equals(player.pos)) {
+                // Caught; the rest stay put so no two chasers share the player's tile
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stealth version of moveChasers(). The chasers that see the player are planned
+     * together towards the player's previous position, as usual, and move first. Those
+     * searching are planned in groups sharing a last seen position; patrolling ones walk
+     * down the cached distance field of their room center. A chaser that cannot step
+     * towards its target gives it up for the next one.
+     */
+    private void moveChasersInStealth() {
+        int n = chasers.size();
+        int height = world[0].length;
+        if (targetCell.length < n) {
+            targetCell = new int[n];
+            groupIndex = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            targetCell[i] = chooseTarget(chasers.get(i), height);
+        }
+        groupTarget.setLocation(player.previousPos);
+        if (moveGroup(planner, HUNT)) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            int target = targetCell[i];
+            if (target >= 0) {
+                groupTarget.setLocation(target / height, target % height);
+                if (moveGroup(searchPlanner, target)) {
+                    return;
+                }
+            } else if (target == PATROL && patrol(i)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves chaser i one step towards its room center.
+     * @return true if it caught the player
+     */
+    private boolean patrol(int i) {
+        Chaser chaser = chasers.get(i);
+        int p = chaser.patrolIndex;
+        int[] field = patrolFields.field(world, p, sight.centerX(p), sight.centerY(p));
+        int next = patrolFields.nextStep(field, chaser.pos.x, chaser.pos.y);
+        int x = chaser.pos.x;
+        int y = chaser.pos.y;
+        if (next >= 0) {
+            moveChaser(i, next / world[0].length, next % world[0].length);
+        }
+        if (chaser.pos.equals(player.pos)) {
+            return true;
+        }
+        if (chaser.pos.x == x && chaser.pos.y == y) {
+            // Unreachable or blocked: on to the next center
+            chaser.patrolIndex = (p + 1) % sight.centerCount();
+        }
+        return false;
+    }
+
+    /**
+     * Picks a chaser's target for this turn, noting the player's position if it sees
+     * them and moving on to the next room center if it reached its own.
+     * @return HUNT, PATROL, STAY or the last seen tile's index x * height + y
+     */
+    private int chooseTarget(Chaser c, int height) {
+        if (seesPlayer(c)) {
+            c.lastSeen.setLocation(player.pos);
+            return HUNT;
+        }
+        if (c.lastSeen.x >= 0 && !c.pos.equals(c.lastSeen)) {
+            return c.lastSeen.x * height + c.lastSeen.y;
+        }
+        // Lost track of the player: back to patrolling
+        c.lastSeen.setLocation(-1, -1);
+        int centers = sight.centerCount();
+        if (centers == 0) {
+            return STAY;
+        }
+        if (c.pos.x == sight.centerX(c.patrolIndex) && c.pos.y == sight.centerY(c.patrolIndex)) {
+            c.patrolIndex = (c.patrolIndex + 1) % centers;
+        }
+        return PATROL;
+    }
+
+    /**
+     * Line of sight between a chaser and the player: the player's region's visible set
+     * rules out most chasers, and the rest are looked up in the player's field of view,
+     * recomputed at most once per turn however many chasers ask.
+     */
+    private boolean seesPlayer(Chaser c) {
+        if (!sight.mayBeVisible(player.pos.x, player.pos.y, c.pos.x, c.pos.y)) {
+            return false;
+        }
+        playerView.update(player.pos.x, player.pos.y);
+        return playerView.isVisible(c.pos.x, c.pos.y);
+    }
+
+    /**
+     * Plans and moves the chasers whose target is the given one, towards groupTarget.
+     * @return true if one caught the player
+     */
+    private boolean moveGroup(ChaserPlanner groupPlanner, int target) {
+        group.clear();
+        for (int i = 0; i < chasers.size(); i++) {
+            if (targetCell[i] == target) {
+                groupIndex[group.size()] = i;
+                group.add(chasers.get(i));
+                targetCell[i] = MOVED;
+            }
+        }
+        if (group.isEmpty()) {
+            return false;
+        }
+        groupPlanner.plan(world, group, groupTarget);
+        for (int k = 0; k < groupPlanner.size(); k++) {
+            int g = groupPlanner.order(k);
+            int i = groupIndex[g];
+            Chaser chaser = chasers.get(i);
+            int x = chaser.pos.x;
+            int y = chaser.pos.y;
+            moveChaser(i, groupPlanner.nextX(g), groupPlanner.nextY(g));
+            if (chaser.pos.equals(player.pos)) {
+                return true;
+            }
+            if (target != HUNT && chaser.pos.x == x && chaser.pos.y == y) {
+                // Unreachable or blocked: stop searching and patrol
+                chaser.lastSeen.setLocation(-1, -1);
+            }
+        }
+        return false;
+    }
+
+    private void moveChaser(int i, int nx, int ny) {
+        Chaser chaser = chasers.get(i);
+        if (!inBounds(nx, ny) || nx == chaser.pos.x && ny == chaser.pos.y) {
+            return;
+        }
+
+        // The player's tile can be entered (that catches them), another chaser's can't
+        TETile nextTile = world[nx][ny];
+        if (nextTile.equals(Tileset.CHASER)
+                || !isWalkableTile(nextTile) && !nextTile.equals(Tileset.AVATAR)) {
+            return;
+        }
+        placeChaser(i, nx, ny);
+    }
+
+    /**
+     * Moves chaser i to a tile, restoring the tile it leaves and remembering the one it
+     * covers. Its old position becomes its previous one.
+     */
+    private void placeChaser(int i, int nx, int ny) {
+        Chaser chaser = chasers.get(i);
+
+        // Save previous position before moving (for collision detection)
+        chaser.previousPos.setLocation(chaser.pos);
+
+        // Restore old location with the tile that was under the chaser
+        setTile(chaser.pos.x, chaser.pos.y, chaser.tileUnderChaser);
+
+        // Save the new tile that will be under the chaser
+        chaser.tileUnderChaser = world[nx][ny];
+        chaser.pos.setLocation(nx, ny);
+        entities.setTileUnder(chaserHandles[i], chaser.tileUnderChaser.id());
+        entities.moveTo(chaserHandles[i], nx, ny);
+
+        // Place chaser tile (only if not on player)
+        if (!chaser.pos.equals(player.pos)) {
+            setTile(nx, ny, Tileset.CHASER);
+        }
+    }
+
+    /**
+     * Interacts with tiles in front of the player.
+     * Opens treasure chests (increases push ability count), unlocks doors and clears the
+     * game at a portal.
+     */
+    private void interact() {
+        int fx = player.pos.x + player.facing.dx;
+        int fy = player.pos.y + player.facing.dy;
+        if (!inBounds(fx, fy)) {
+            return;
+        }
+
+        TETile frontTile = world[fx][fy];
+        if (frontTile.equals(Tileset.TREASURE)) {
+            player.pushAbilityCount++;
+            setTile(fx, fy, Tileset.OPENED_CHEST);
+        } else if (frontTile.equals(Tileset.LOCKED_DOOR)) {
+            setTile(fx, fy, Tileset.UNLOCKED_DOOR);
+        } else if (frontTile.equals(Tileset.PORTAL)) {
+            outcome = Outcome.CLEARED;
+        }
+    }
+
+    /**
+     * Pushes the nearest chaser away from the player (밀쳐내기).
+     * Only works if a chaser is within 2 tiles of the player (24 tiles total).
+     * Pushes chaser up to 3 tiles away in the direction from player to chaser.
+     * Stops early if blocked by a wall, another chaser or unwalkable tile.
+     */
+    private void pushChaser() {
+        int index = chaserIndexInPushRange();
+        if (player.pushAbilityCount <= 0 || index < 0) {
+            return;
+        }
+        Chaser chaser = chasers.get(index);
+
+        int dx = chaser.pos.x - player.pos.x;
+        int dy = chaser.pos.y - player.pos.y;
+
+        // Push away from the player; on a diagonal along the larger offset, horizontal on ties
+        Direction pushDir;
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            pushDir = dx > 0 ? Direction.RIGHT : Direction.LEFT;
+        } else {
+            pushDir = dy > 0 ? Direction.UP : Direction.DOWN;
+        }
+
+        // Try to push up to 3 tiles, stopping if blocked
+        int pushDistance = 0;
+        for (int i = 1; i <= PUSH_DISTANCE; i++) {
+            int nextX = chaser.pos.x + pushDir.dx * i;
+            int nextY = chaser.pos.y + pushDir.dy * i;
+            if (!inBounds(nextX, nextY)) {
+                break; // Hit boundary, stop pushing
+            }
+            TETile nextTile = world[nextX][nextY];
+            if (nextTile.equals(Tileset.CHASER)
+                    || !isWalkableTile(nextTile) && !nextTile.equals(Tileset.AVATAR)) {
+                break; // Hit wall, chaser or obstacle, stop pushing
+            }
+            pushDistance = i;
+        }
+
+        // If we couldn't push at least 1 tile, don't use the ability
+        if (pushDistance == 0) {
+            return;
+        }
+
+        int targetX = chaser.pos.x + pushDir.dx * pushDistance;
+        int targetY = chaser.pos.y + pushDir.dy * pushDistance;
+        player.pushAbilityCount--;
+        placeChaser(index, targetX, targetY);
+    }
+
+    /**
+     * Finds the nearest chaser within push range: Chebyshev distance at most 2, which
+     * covers the 24 tiles of the 5x5 square around the player. Ties go to the first.
+     * @return the chaser, or null if none is in range
+     */
+    public Chaser chaserInPushRange() {
+        int index = chaserIndexInPushRange();
+        return index < 0 ? null : chasers.get(index);
+    }
+
+    /** Like chaserInPushRange(), but asks the entity store and returns an index. */
+    private int chaserIndexInPushRange() {
+        int nearest = -1;
+        int nearestDistance = PUSH_RANGE + 1;
+        int n = entities.within(player.pos.x, player.pos.y, PUSH_RANGE, EntityStore.CHASER);
+        for (int k = 0; k < n; k++) {
+            int e = entities.found(k);
+            int dx = entities.x(e) - player.pos.x;
+            int dy = entities.y(e) - player.pos.y;
+            int distance = Math.max(Math.abs(dx), Math.abs(dy));
+            int i = entities.owner(e);
+            if (distance > 0 && (distance < nearestDistance || distance == nearestDistance && i < nearest)) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    private void setTile(int x, int y, TETile tile) {
+        if (patrolFields != null && isChaserWalkable(world[x][y]) != isChaserWalkable(tile)) {
+            patrolFields.invalidate();
+        }
+        world[x][y] = tile;
+        if (playerView != null) {
+            playerView.tileChanged(world, x, y);
+        }
+        if (changedCount == changedX.length) {
+            changedX = Arrays.copyOf(changedX, changedCount * 2);
+            changedY = Arrays.copyOf(changedY, changedCount * 2);
+        }
+        changedX[changedCount] = x;
+        changedY[changedCount] = y;
+        changedCount++;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < world.length && y >= 0 && y < world[0].length;
+    }
+
+    /**
+     * Tiles chasers can plan paths through: walkable ones, and those with the player or
+     * a chaser on them.
+     */
+    static boolean isChaserWalkable(TETile tile) {
+        return isWalkableTile(tile) || tile.equals(Tileset.AVATAR) || tile.equals(Tileset.CHASER);
+    }
+
+    /**
+     * Checks if a tile is walkable.
+     * Walkable tiles are all tiles except unwalkable obstacles.
+     * Must match WorldGenerator.isWalkableTile and Pathfinder.isWalkableTile for consistency.
+     */
+    static boolean isWalkableTile(TETile tile) {
+        if (tile == null) {
+            return false;
+        }
+        return !tile.equals(Tileset.AVATAR)
+                && !tile.equals(Tileset.WALL)
+                && !tile.equals(Tileset.NOTHING)
+                && !tile.equals(Tileset.WATER)
+                && !tile.equals(Tileset.LOCKED_DOOR)
+                && !tile.equals(Tileset.MOUNTAIN)
+                && !tile.equals(Tileset.BUSH)
+                && !tile.equals(Tileset.TREE)
+                && !tile.equals(Tileset.PORTAL)
+                && !tile.equals(Tileset.TREASURE)
+                && !tile.equals(Tileset.OPENED_CHEST)
+                && !tile.equals(Tileset.CRATE)
+                && !tile.equals(Tileset.BOOKSHELF)
+                && !tile.equals(Tileset.SNOWMAN)
+                && !tile.equals(Tileset.STATUE);
+    }
+}
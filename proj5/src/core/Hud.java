@@ -0,0 +1,294 @@
+package core;
+
+import tileengine.Renderer;
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * The HUD bar at the top of the game window: the name and tag of the hovered tile in the
+ * middle, an action prompt on the left and the push ability count on the right.
+ *
+ * The game loop calls update() every tick with the current state. The HUD remembers what
+ * it drew last and only redraws the parts whose content changed, so most ticks draw
+ * nothing and need no present. Names, tags and their drawn widths are worked out once
+ * per tile id.
+ */
+public class Hud {
+    /** Prompt shown on the left side of the HUD. */
+    public enum Prompt {
+        NONE, INTERACT, PUSH
+    }
+
+    private static final Color BACKGROUND = new Color(52, 61, 82);
+    private static final String INTERACT_TEXT = "Press I to Interact";
+    private static final String PUSH_TEXT = "Press Space to Push";
+    private static final String QUIT_TEXT = "Press Q to quit";
+    private static final double PROMPT_X = 2.0;
+
+    private final Renderer renderer;
+    private final int width;
+    private final int height;
+    private final double promptWidth;
+
+    // Per tile id, filled in on first use
+    private Label[] labels = new Label[32];
+
+    // What is on screen now. Until valid is set the whole bar is redrawn.
+    private boolean valid = false;
+    private boolean drawnQuit;
+    private Label drawnLabel;
+    private Prompt drawnPrompt;
+    private int drawnPushCount;
+
+    /**
+     * @param renderer renderer to draw with
+     * @param width canvas width in tiles
+     * @param height canvas height in tiles; the HUD takes the top World.HUD_HEIGHT rows
+     */
+    public Hud(Renderer renderer, int width, int height) {
+        this.renderer = renderer;
+        this.width = width;
+        this.height = height;
+        this.promptWidth = Math.max(renderer.textWidth(INTERACT_TEXT, World.HUD_FONT),
+                renderer.textWidth(PUSH_TEXT, World.HUD_FONT));
+    }
+
+    /**
+     * Brings the HUD up to date with the given state.
+     * @param hovered tile under the mouse, or null if none
+     * @param prompt action prompt to show
+     * @param pushCount push ability charges
+     * @param quitPending true after ':' was typed; then only the quit hint is shown
+     * @return true if anything was drawn and needs to be presented
+     */
+    public boolean update(TETile hovered, Prompt prompt, int pushCount, boolean quitPending) {
+        Label label = hovered == null ? null : label(hovered);
+        if (!valid || quitPending != drawnQuit) {
+            drawAll(label, prompt, pushCount, quitPending);
+            return true;
+        }
+        if (quitPending) {
+            return false;
+        }
+
+        boolean drew = false;
+        if (label != drawnLabel) {
+            drawLabel(label);
+            drew = true;
+        }
+        if (prompt != drawnPrompt) {
+            drawPrompt(prompt);
+            drew = true;
+        }
+        if (pushCount != drawnPushCount) {
+            drawPushCount(pushCount);
+            drew = true;
+        }
+        return drew;
+    }
+
+    private void drawAll(Label label, Prompt prompt, int pushCount, boolean quitPending) {
+        clear(width / 2.0, width / 2.0);
+        valid = true;
+        drawnQuit = quitPending;
+        drawnLabel = null;
+        drawnPrompt = Prompt.NONE;
+        if (quitPending) {
+            renderer.text(width / 2.0, height - 0.9, QUIT_TEXT, World.HUD_FONT, Color.YELLOW);
+            return;
+        }
+        drawLabelText(label);
+        drawnLabel = label;
+        drawPromptText(prompt);
+        drawnPrompt = prompt;
+        drawPushCount(pushCount);
+    }
+
+    /**
+     * Replaces the hovered tile's name, clearing just the width of the old and new text.
+     */
+    private void drawLabel(Label label) {
+        double w = Math.max(drawnLabel == null ? 0 : drawnLabel.width, label == null ? 0 : label.width);
+        clear(width / 2.0, w / 2.0 + 0.5);
+        drawLabelText(label);
+        drawnLabel = label;
+    }
+
+    private void drawLabelText(Label label) {
+        if (label == null) {
+            return;
+        }
+        // Main tile name, slightly above center of HUD bar
+        renderer.text(width / 2.0, height - 0.9, label.name, World.HUD_FONT, Color.WHITE);
+        // Smaller tag text just below the name
+        if (label.tagText != null) {
+            renderer.text(width / 2.0, height - 1.5, label.tagText, World.HUD_TAG_FONT, Color.WHITE);
+        }
+    }
+
+    private void drawPrompt(Prompt prompt) {
+        clear(PROMPT_X + promptWidth / 2.0, promptWidth / 2.0 + 0.5);
+        drawPromptText(prompt);
+        drawnPrompt = prompt;
+    }
+
+    private void drawPromptText(Prompt prompt) {
+        if (prompt == Prompt.INTERACT) {
+            renderer.textLeft(PROMPT_X, height - 0.9, INTERACT_TEXT, World.HUD_FONT, Color.CYAN);
+        } else if (prompt == Prompt.PUSH) {
+            renderer.textLeft(PROMPT_X, height - 0.9, PUSH_TEXT, World.HUD_FONT, Color.CYAN);
+        }
+    }
+
+    /**
+     * Draws the push ability icon and count on the right side of the HUD.
+     */
+    private void drawPushCount(int pushCount) {
+        double iconX = width - 2.0;
+        double iconY = height - 0.9;
+        clear(iconX, 1.5);
+        renderer.text(iconX, iconY, "⚡", World.HUD_FONT, Color.CYAN); // Lightning bolt icon for push ability
+        renderer.text(iconX, iconY - 0.6, String.valueOf(pushCount), World.HUD_TAG_FONT, Color.CYAN);
+        drawnPushCount = pushCount;
+    }
+
+    /** Paints the HUD background over a full-height slice of the bar. */
+    private void clear(double centerX, double halfWidth) {
+        double halfHeight = World.HUD_HEIGHT / 2.0;
+        renderer.filledRectangle(centerX, height - halfHeight, halfWidth, halfHeight, BACKGROUND);
+    }
+
+    private Label label(TETile tile) {
+        int id = tile.id();
+        if (id >= labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(id + 1, labels.length * 2));
+        }
+        Label label = labels[id];
+        if (label == null) {
+            String name = getFriendlyTileName(tile);
+            String tag = getTileTag(tile);
+            String tagText = tag.isEmpty() ? null : "(" + tag + ")";
+            double w = renderer.textWidth(name, World.HUD_FONT);
+            if (tagText != null) {
+                w = Math.max(w, renderer.textWidth(tagText, World.HUD_TAG_FONT));
+            }
+            label = new Label(name, tagText, w);
+            labels[id] = label;
+        }
+        return label;
+    }
+
+    /** Text shown for one tile id, with the width of its widest line in tiles. */
+    private record Label(String name, String tagText, double width) {
+    }
+
+    /**
+     * Converts a TETile into a short, user-friendly name for the HUD.
+     */
+    private static String getFriendlyTileName(TETile tile) {
+        // Prefer matching against known tiles so we can control capitalization.
+        if (tile.equals(Tileset.FLOOR)) {
+            return "Floor";
+        } else if (tile.equals(Tileset.GRASS)) {
+            return "Grass";
+        } else if (tile.equals(Tileset.FLOWER)) {
+            return "Flower";
+        } else if (tile.equals(Tileset.SAND)) {
+            return "Sand";
+        } else if (tile.equals(Tileset.SNOW)) {
+            return "Snow";
+        } else if (tile.equals(Tileset.WALL)) {
+            return "Wall";
+        } else if (tile.equals(Tileset.NOTHING)) {
+            return "Nothing";
+        } else if (tile.equals(Tileset.WATER)) {
+            return "Water";
+        } else if (tile.equals(Tileset.MOUNTAIN)) {
+            return "Mountain";
+        } else if (tile.equals(Tileset.TREE)) {
+            return "Tree";
+        } else if (tile.equals(Tileset.LOCKED_DOOR)) {
+            return "Locked Door";
+        } else if (tile.equals(Tileset.UNLOCKED_DOOR)) {
+            return "Unlocked Door";
+        } else if (tile.equals(Tileset.CELL)) {
+            return "Cell";
+        } else if (tile.equals(Tileset.BUSH)) {
+            return "Bush";
+        } else if (tile.equals(Tileset.STATUE)) {
+            return "Statue";
+        } else if (tile.equals(Tileset.CRATE)) {
+            return "Crate";
+        } else if (tile.equals(Tileset.BOOKSHELF)) {
+            return "Bookshelf";
+        } else if (tile.equals(Tileset.SNOWMAN)) {
+            return "Snowman";
+        } else if (tile.equals(Tileset.TREASURE)) {
+            return "Treasure";
+        } else if (tile.equals(Tileset.OPENED_CHEST)) {
+            return "Opened Chest";
+        } else if (tile.equals(Tileset.PORTAL)) {
+            return "Portal";
+        } else if (tile.equals(Tileset.LAVA)) {
+            return "Lava";
+        } else if (tile.equals(Tileset.SPIKE)) {
+            return "Spike";
+        } else if (tile.equals(Tileset.AVATAR)) {
+            return "Player";
+        }
+
+        // Fallback: use description() with first letter capitalized
+        String desc = tile.description();
+        if (desc == null || desc.isEmpty()) {
+            return "";
+        }
+        return desc.substring(0, 1).toUpperCase() + desc.substring(1);
+    }
+
+    /**
+     * Returns a short category tag for the given tile, e.g. "dangerous",
+     * "interactable",
+     * "unwalkable", etc. Used for the tiny HUD text under the tile name.
+     *
+     * Categories follow WorldGenerator's logic for isWalkableTile/isBlockingTile,
+     * tagging as "dangerous", "interactable", or "unwalkable".
+     */
+    private static String getTileTag(TETile tile) {
+        // Dangerous tiles (highest priority)
+        if (tile.equals(Tileset.LAVA) || tile.equals(Tileset.SPIKE)) {
+            return "dangerous";
+        }
+
+        // Interactable tiles
+        if (tile.equals(Tileset.TREASURE)
+                || tile.equals(Tileset.PORTAL)
+                || tile.equals(Tileset.LOCKED_DOOR)
+                || tile.equals(Tileset.UNLOCKED_DOOR)) {
+            return "interactable";
+        }
+
+        // Unwalkable tiles (matches WorldGenerator.isBlockingTile)
+        if (tile.equals(Tileset.AVATAR)
+                || tile.equals(Tileset.WALL)
+                || tile.equals(Tileset.WATER)
+                || tile.equals(Tileset.LOCKED_DOOR)
+                || tile.equals(Tileset.UNLOCKED_DOOR)
+                || tile.equals(Tileset.MOUNTAIN)
+                || tile.equals(Tileset.TREE)
+                || tile.equals(Tileset.OPENED_CHEST)
+                || tile.equals(Tileset.BUSH)
+                || tile.equals(Tileset.STATUE)
+                || tile.equals(Tileset.CRATE)
+                || tile.equals(Tileset.BOOKSHELF)
+                || tile.equals(Tileset.SNOWMAN)
+                || tile.equals(Tileset.PORTAL)
+                || tile.equals(Tileset.TREASURE)) {
+            return "unwalkable";
+        }
+
+        return "";
+    }
+}
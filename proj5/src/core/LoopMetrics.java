@@ -0,0 +1,175 @@
+package core;
+
+import utils.FixedTimestep;
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-tick timings of the game loop, split into the phases of a tick, plus the latency
+ * from a key press to the frame that shows its effect.
+ *
+ * The loop is always in exactly one phase. phase() switches to another one and charges
+ * the time since the last switch to the phase that was active, so nested work such as a
+ * path search inside a chaser move is counted once, under its own phase. At the end of
+ * each tick the time collected per phase goes into that phase's histogram.
+ *
+ * GameSession plans its chasers inside step(); planningTimer() is a listener for it that
+ * moves that time from SIMULATION to PATHFINDING.
+ */
+public class LoopMetrics {
+    /** Parts of a tick that are timed separately. */
+    public enum Phase {
+        INPUT,
+        /** GameSession.step apart from the chasers' planning. */
+        SIMULATION,
+        /** The chasers' planning and moves, and path searches for display. */
+        PATHFINDING,
+        RENDER
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+    private final LatencyHistogram tick = new LatencyHistogram("tick");
+    private final LatencyHistogram keyToPresent = new LatencyHistogram("key-to-present");
+
+    private final long[] phaseNanos = new long[PHASES.length];
+    private Phase current = Phase.INPUT;
+    private long phaseStart;
+    private long tickStart;
+
+    // Time of the earliest key whose effect has not been presented yet, or 0
+    private long pendingKeyNanos;
+
+    public LoopMetrics() {
+        for (Phase p : PHASES) {
+            histograms[p.ordinal()] = new LatencyHistogram(p.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Starts timing a tick, in the input phase.
+     */
+    public void startTick() {
+        tickStart = System.nanoTime();
+        phaseStart = tickStart;
+        current = Phase.INPUT;
+    }
+
+    /**
+     * Switches to the given phase.
+     * @return the phase that was active, so nested work can switch back to it
+     */
+    public Phase phase(Phase next) {
+        long now = System.nanoTime();
+        phaseNanos[current.ordinal()] += now - phaseStart;
+        phaseStart = now;
+        Phase previous = current;
+        current = next;
+        return previous;
+    }
+
+    /**
+     * A listener that counts a session's chaser planning as pathfinding, switching back
+     * to the phase that was active when planning finishes.
+     */
+    public GameSession.PlanningListener planningTimer() {
+        return new GameSession.PlanningListener() {
+            private Phase previous;
+
+            @Override
+            public void planningStarted() {
+                previous = phase(Phase.PATHFINDING);
+            }
+
+            @Override
+            public void planningFinished() {
+                phase(previous);
+            }
+        };
+    }
+
+    /**
+     * Ends the tick and records the time spent in each phase.
+     */
+    public void endTick() {
+        long now = System.nanoTime();
+        phaseNanos[current.ordinal()] += now - phaseStart;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            histograms[i].record(phaseNanos[i]);
+            phaseNanos[i] = 0;
+        }
+        tick.record(now - tickStart);
+    }
+
+    /**
+     * Notes that a key typed at the given time was handled this tick.
+     * @param typedNanos System.nanoTime() when the key was typed
+     */
+    public void keyHandled(long typedNanos) {
+        if (pendingKeyNanos == 0) {
+            pendingKeyNanos = typedNanos;
+        }
+    }
+
+    /**
+     * Notes that a frame was presented; completes the latency of a pending key.
+     */
+    public void presented() {
+        if (pendingKeyNanos != 0) {
+            keyToPresent.record(System.nanoTime() - pendingKeyNanos);
+            pendingKeyNanos = 0;
+        }
+    }
+
+    /** Histogram of time spent in the given phase per tick. */
+    public LatencyHistogram histogram(Phase p) {
+        return histograms[p.ordinal()];
+    }
+
+    /** Histogram of total work per tick, excluding the wait for the next tick. */
+    public LatencyHistogram tick() {
+        return tick;
+    }
+
+    /** Histogram of key press to present latency. */
+    public LatencyHistogram keyToPresent() {
+        return keyToPresent;
+    }
+
+    /**
+     * Short lines for the on-screen debug overlay, in milliseconds.
+     */
+    public List<String> overlayLines(FixedTimestep scheduler) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%.0f ticks/s  late %d  dropped %d",
+                1e9 / scheduler.tickNanos(), scheduler.lateTicks(), scheduler.droppedTicks()));
+        lines.add(overlayLine(tick));
+        for (LatencyHistogram h : histograms) {
+            lines.add(overlayLine(h));
+        }
+        lines.add(overlayLine(keyToPresent));
+        return lines;
+    }
+
+    private static String overlayLine(LatencyHistogram h) {
+        return String.format("%-14s p50 %6.2f  p99 %6.2f ms", h.name(),
+                h.percentile(50) / 1e6, h.percentile(99) / 1e6);
+    }
+
+    /**
+     * Full report with one summary line per histogram, for the console or a stats file.
+     */
+    public String report(FixedTimestep scheduler) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("schedule ").append(scheduler.summary()).append('\n');
+        sb.append(tick.summary()).append('\n');
+        for (LatencyHistogram h : histograms) {
+            sb.append(h.summary()).append('\n');
+        }
+        sb.append(keyToPresent.summary()).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,222 @@
+package core;
+
+import tileengine.Renderer;
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A small map of the whole world in a corner of the view, with markers for the player
+ * and the chasers.
+ *
+ * The map is a BufferedImage with one pixel per block of tiles, built once from the
+ * world. When a tile changes only its block's pixel is recomputed. Each block shows its
+ * most important tile (portal over treasure and doors over walls over floor), so a
+ * portal never disappears when the map is scaled down for a big world.
+ *
+ * The image is at most MAX_PIXELS wide and tall whatever the world size, so drawing the
+ * map costs the same on every world. It is only drawn again when a pixel or a marker
+ * changed, or when something was drawn over it.
+ */
+public class Minimap {
+    private static final int MAX_PIXELS = 160;
+    private static final Color BORDER = new Color(52, 61, 82);
+    private static final Color PLAYER_COLOR = Color.WHITE;
+    private static final Color CHASER_COLOR = Color.RED;
+
+    private final int worldWidth;
+    private final int worldHeight;
+    private final int scale; // tiles per pixel edge
+    private final BufferedImage image;
+
+    // Where the map is drawn, in canvas tiles
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    // Per tile id: packed RGB and priority, filled in on first use
+    private int[] colors = new int[32];
+    private int[] priorities = new int[32];
+    private boolean[] known = new boolean[32];
+
+    private boolean valid = false;
+    private int playerPixel = -1;
+    private int[] chaserPixels = new int[0];
+
+    /**
+     * Builds the map image for a world and places the map in the top-right corner of
+     * the canvas, below the HUD.
+     * @param world the world tile map
+     * @param canvasWidth canvas width in tiles
+     * @param top canvas row just below the HUD
+     */
+    public Minimap(TETile[][] world, int canvasWidth, int top) {
+        this.worldWidth = world.length;
+        this.worldHeight = world[0].length;
+        this.scale = Math.max(1, (Math.max(worldWidth, worldHeight) + MAX_PIXELS - 1) / MAX_PIXELS);
+        this.image = new BufferedImage((worldWidth + scale - 1) / scale, (worldHeight + scale - 1) / scale,
+                BufferedImage.TYPE_INT_RGB);
+        for (int px = 0; px < image.getWidth(); px++) {
+            for (int py = 0; py < image.getHeight(); py++) {
+                updatePixel(world, px, py);
+            }
+        }
+
+        this.width = Math.max(8, canvasWidth / 5);
+        this.height = Math.max(1, Math.round((float) width * image.getHeight() / image.getWidth()));
+        this.x = canvasWidth - width;
+        this.y = top - height;
+    }
+
+    /**
+     * Notes that the tile at (x, y) changed and updates its pixel.
+     */
+    public void tileChanged(TETile[][] world, int tileX, int tileY) {
+        if (tileX < 0 || tileX >= worldWidth || tileY < 0 || tileY >= worldHeight) {
+            return;
+        }
+        if (updatePixel(world, tileX / scale, tileY / scale)) {
+            valid = false;
+        }
+    }
+
+    /**
+     * Notes that something was drawn over the map, so it has to be drawn again.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /** @return true if canvas cell (sx, sy) lies under the map */
+    public boolean covers(int sx, int sy) {
+        return sx >= x && sx < x + width && sy >= y && sy < y + height;
+    }
+
+    /** Canvas area the map is drawn on, as {x, y, width, height} in tiles. */
+    public int[] bounds() {
+        return new int[] {x, y, width, height};
+    }
+
+    /**
+     * Draws the map and markers if anything about them changed.
+     * @param player the player's position
+     * @param chasers the chasers, possibly none
+     * @return true if anything was drawn and needs to be presented
+     */
+    public boolean draw(Renderer renderer, Point player, List<Chaser> chasers) {
+        int newPlayer = pixelOf(player);
+        boolean moved = !valid || newPlayer != playerPixel || chasers.size() != chaserPixels.length;
+        if (chasers.size() != chaserPixels.length) {
+            chaserPixels = new int[chasers.size()];
+        }
+        for (int i = 0; i < chasers.size(); i++) {
+            int pixel = pixelOf(chasers.get(i).pos);
+            if (pixel != chaserPixels[i]) {
+                chaserPixels[i] = pixel;
+                moved = true;
+            }
+        }
+        if (!moved) {
+            return false;
+        }
+        renderer.filledRectangle(x + width / 2.0, y + height / 2.0, width / 2.0, height / 2.0, BORDER);
+        renderer.drawImage(image, x, y, width, height);
+        for (int pixel : chaserPixels) {
+            drawMarker(renderer, pixel, CHASER_COLOR);
+        }
+        drawMarker(renderer, newPlayer, PLAYER_COLOR);
+        playerPixel = newPlayer;
+        valid = true;
+        return true;
+    }
+
+    private void drawMarker(Renderer renderer, int pixel, Color color) {
+        if (pixel < 0) {
+            return;
+        }
+        int px = pixel % image.getWidth();
+        int py = pixel / image.getWidth();
+        double cx = x + (px + 0.5) * width / image.getWidth();
+        double cy = y + (py + 0.5) * height / image.getHeight();
+        renderer.filledCircle(cx, cy, 0.35, color);
+    }
+
+    private int pixelOf(Point p) {
+        return (p.y / scale) * image.getWidth() + p.x / scale;
+    }
+
+    /**
+     * Recomputes one pixel from the tiles of its block.
+     * @return true if its color changed
+     */
+    private boolean updatePixel(TETile[][] world, int px, int py) {
+        int best = -1;
+        int bestPriority = -1;
+        int x1 = Math.min(worldWidth, (px + 1) * scale);
+        int y1 = Math.min(worldHeight, (py + 1) * scale);
+        for (int tx = px * scale; tx < x1; tx++) {
+            for (int ty = py * scale; ty < y1; ty++) {
+                TETile tile = world[tx][ty];
+                if (tile == null) {
+                    continue;
+                }
+                int id = tile.id();
+                learn(tile);
+                if (priorities[id] > bestPriority) {
+                    bestPriority = priorities[id];
+                    best = colors[id];
+                }
+            }
+        }
+        int rgb = best < 0 ? 0 : best;
+        // Image rows run top to bottom, world rows bottom to top
+        int row = image.getHeight() - 1 - py;
+        if ((image.getRGB(px, row) & 0xFFFFFF) == rgb) {
+            return false;
+        }
+        image.setRGB(px, row, rgb);
+        return true;
+    }
+
+    private void learn(TETile tile) {
+        int id = tile.id();
+        if (id >= known.length) {
+            int n = Math.max(id + 1, known.length * 2);
+            colors = Arrays.copyOf(colors, n);
+            priorities = Arrays.copyOf(priorities, n);
+            known = Arrays.copyOf(known, n);
+        }
+        if (known[id]) {
+            return;
+        }
+        // The player and chasers have markers; underneath them is floor
+        TETile shown = tile.equals(Tileset.AVATAR) || tile.equals(Tileset.CHASER) ? Tileset.FLOOR : tile;
+        Color c = Color.BLACK.equals(shown.backgroundColor()) ? shown.textColor() : shown.backgroundColor();
+        colors[id] = c.getRGB() & 0xFFFFFF;
+        priorities[id] = priorityOf(shown);
+        known[id] = true;
+    }
+
+    private static int priorityOf(TETile tile) {
+        if (tile.equals(Tileset.PORTAL)) {
+            return 4;
+        }
+        if (tile.equals(Tileset.TREASURE) || tile.equals(Tileset.LOCKED_DOOR)
+                || tile.equals(Tileset.UNLOCKED_DOOR)) {
+            return 3;
+        }
+        if (tile.equals(Tileset.NOTHING)) {
+            return 0;
+        }
+        if (tile.equals(Tileset.WALL)) {
+            return 2;
+        }
+        return 1;
+    }
+}
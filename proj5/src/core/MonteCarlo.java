@@ -0,0 +1,171 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates how hard each world is by letting AutoPlayer play it many times.
+ *
+ * Usage: java core.MonteCarlo [--seeds FROM-TO] [--sizes S,M,B] [--games N] [--threads N]
+ *
+ * Every seed and size is generated once; each game restores a copy of it and plays it
+ * with one bot per world, whose random state makes every game different, until the bot
+ * gets stuck or a turn limit is hit. Worlds run in parallel on all cores by
+ * default. One line per world reports the win rate, how often the bot was caught or
+ * stalled, the average turns of won games and the pushes used per game. Worlds the bot
+ * never clears are flagged IMPOSSIBLE, worlds it always clears without a push TRIVIAL.
+ */
+public class MonteCarlo {
+    // Turn limit per game, per tile of the world
+    private static final int TURNS_PER_TILE = 4;
+    // Turns in a row without any change after which the bot counts as stuck
+    private static final int MAX_IDLE_TURNS = 8;
+
+    /** Totals of all games played on one world. */
+    private record WorldResult(long seed, char size, int games, int cleared, int caught, int stalled,
+                               long clearedTurns, long pushes, long turns) {
+        String flag() {
+            if (cleared == 0) {
+                return "IMPOSSIBLE";
+            }
+            if (cleared == games && pushes == 0) {
+                return "TRIVIAL";
+            }
+            return "";
+        }
+    }
+
+    public static void main(String[] args) {
+        long fromSeed = 1;
+        long toSeed = 20;
+        String sizes = "S,M";
+        int games = 200;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--seeds":
+                        String[] range = args[++i].split("-");
+                        fromSeed = Long.parseLong(range[0]);
+                        toSeed = Long.parseLong(range[range.length - 1]);
+                        break;
+                    case "--sizes":
+                        sizes = args[++i].toUpperCase();
+                        break;
+                    case "--games":
+                        games = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java core.MonteCarlo [--seeds FROM-TO] [--sizes S,M,B] [--games N]"
+                    + " [--threads N]");
+            System.exit(2);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<WorldResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String size : sizes.split(",")) {
+            for (long seed = fromSeed; seed <= toSeed; seed++) {
+                long worldSeed = seed;
+                char worldSize = size.charAt(0);
+                int worldGames = games;
+                futures.add(pool.submit(() -> playWorld(worldSeed, worldSize, worldGames)));
+            }
+        }
+
+        System.out.printf("%-20s %-4s %6s %7s %7s %7s %9s %8s  %s%n",
+                "seed", "size", "games", "win%", "caught%", "stall%", "winTurns", "pushes", "flag");
+        long totalGames = 0;
+        long totalTurns = 0;
+        long flagged = 0;
+        try {
+            for (Future<WorldResult> f : futures) {
+                WorldResult r = f.get();
+                totalGames += r.games();
+                totalTurns += r.turns();
+                if (!r.flag().isEmpty()) {
+                    flagged++;
+                }
+                System.out.printf("%-20d %-4c %6d %6.1f%% %6.1f%% %6.1f%% %9.1f %8.2f  %s%n",
+                        r.seed(), r.size(), r.games(),
+                        100.0 * r.cleared() / r.games(), 100.0 * r.caught() / r.games(),
+                        100.0 * r.stalled() / r.games(),
+                        r.cleared() == 0 ? 0.0 : (double) r.clearedTurns() / r.cleared(),
+                        (double) r.pushes() / r.games(), r.flag());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("worlds=%d flagged=%d games=%d turns=%d threads=%d seconds=%.2f gamesPerSecond=%.0f"
+                        + " turnsPerSecond=%.0f%n",
+                futures.size(), flagged, totalGames, totalTurns, threads, seconds,
+                totalGames / seconds, totalTurns / seconds);
+    }
+
+    /**
+     * Plays all games on one world.
+     */
+    private static WorldResult playWorld(long seed, char size, int games) {
+        int[] dims = switch (size) {
+            case 'S' -> new int[] {50, 30};
+            case 'M' -> new int[] {80, 50};
+            case 'B' -> new int[] {110, 70};
+            default -> throw new IllegalArgumentException("Unknown size: " + size);
+        };
+        SessionSnapshot start = GameSession.generate(seed, dims[0], dims[1]).snapshot();
+        int maxTurns = TURNS_PER_TILE * dims[0] * dims[1];
+        // Games differ through the bot's random state; runs repeat exactly
+        AutoPlayer bot = new AutoPlayer(new Random(seed * 31 + size));
+
+        int cleared = 0;
+        int caught = 0;
+        int stalled = 0;
+        long clearedTurns = 0;
+        long pushes = 0;
+        long turns = 0;
+        for (int g = 0; g < games; g++) {
+            GameSession session = GameSession.restore(start);
+            int idle = 0;
+            while (session.outcome() == GameSession.Outcome.PLAYING && session.turn() < maxTurns
+                    && idle < MAX_IDLE_TURNS) {
+                int before = session.player.pushAbilityCount;
+                GameSession.StepResult result = session.step(bot.next(session));
+                if (session.player.pushAbilityCount < before) {
+                    pushes++;
+                }
+                // Nothing moves while the player stands still, so an idle bot stays idle
+                idle = result.playerMoved() || result.changedTiles() > 0 ? 0 : idle + 1;
+            }
+            turns += session.turn();
+            switch (session.outcome()) {
+                case CLEARED:
+                    cleared++;
+                    clearedTurns += session.turn();
+                    break;
+                case CAUGHT:
+                    caught++;
+                    break;
+                default:
+                    stalled++;
+                    break;
+            }
+        }
+        return new WorldResult(seed, size, games, cleared, caught, stalled, clearedTurns, pushes, turns);
+    }
+}
@@ -0,0 +1,138 @@
+package core;
+
+import tileengine.TETile;
+import utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Plays random keys against a GameServer and reports the bytes per frame and the time
+ * from sending a key until its frame has been applied.
+ *
+ * Usage: java core.NetBenchmark [--turns N] [--size S|M|B] [--seed N] [--connect HOST:PORT]
+ *
+ * Without --connect a server is started in this JVM on a free loopback port. The same
+ * keys are also played on a local GameSession, and the client's copy of the game is
+ * checked against it after every frame, so a wrong delta fails the run. A game that ends
+ * is restarted with the next seed.
+ */
+public class NetBenchmark {
+    private static final char[] KEYS = {'W', 'A', 'S', 'D', 'W', 'A', 'S', 'D', 'I', ' '};
+
+    public static void main(String[] args) throws IOException {
+        long turns = 20_000;
+        char size = 'B';
+        long seed = 42;
+        String connect = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--turns" -> turns = Long.parseLong(args[++i]);
+                    case "--size" -> size = Character.toUpperCase(args[++i].charAt(0));
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--connect" -> connect = args[++i];
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java core.NetBenchmark [--turns N] [--size S|M|B] [--seed N]"
+                    + " [--connect HOST:PORT]");
+            System.exit(2);
+        }
+        int[] dims = switch (size) {
+            case 'S' -> new int[] {50, 30};
+            case 'M' -> new int[] {80, 50};
+            case 'B' -> new int[] {110, 70};
+            default -> throw new IllegalArgumentException("Unknown size: " + size);
+        };
+
+        GameServer server = null;
+        String host = "127.0.0.1";
+        int port;
+        if (connect == null) {
+            server = new GameServer(0);
+            port = server.port();
+        } else {
+            int colon = connect.lastIndexOf(':');
+            host = connect.substring(0, colon);
+            port = Integer.parseInt(connect.substring(colon + 1));
+        }
+
+        LatencyHistogram latency = new LatencyHistogram("key-to-frame");
+        Random random = new Random(seed);
+        long games = 1;
+        long deltaFrames = 0;
+        long deltaBytes = 0;
+        try (RemoteGame client = new RemoteGame(host, port)) {
+            client.join(seed, dims[0], dims[1]);
+            long fullBytes = client.receivedBytes();
+            GameSession local = GameSession.generate(seed, dims[0], dims[1]);
+            check(client, local);
+
+            for (long t = 0; t < turns; t++) {
+                char key = KEYS[random.nextInt(KEYS.length)];
+                long before = client.receivedBytes();
+                long sent = System.nanoTime();
+                client.sendKey(key);
+                int type = client.readFrame();
+                latency.record(System.nanoTime() - sent);
+                if (type == NetProtocol.DELTA) {
+                    deltaFrames++;
+                    deltaBytes += client.receivedBytes() - before;
+                }
+
+                local.step(GameSession.Input.forKey(key));
+                check(client, local);
+                if (client.outcome() != GameSession.Outcome.PLAYING) {
+                    games++;
+                    client.join(++seed, dims[0], dims[1]);
+                    local = GameSession.generate(seed, dims[0], dims[1]);
+                    check(client, local);
+                }
+            }
+
+            long received = client.receivedBytes();
+            System.out.printf("size=%dx%d turns=%d games=%d fullFrames=%d fullFrameBytes=%d%n",
+                    dims[0], dims[1], turns, games, client.fullFrames(), fullBytes);
+            System.out.printf("deltaFrames=%d bytesPerDelta=%.1f bytesPerTick=%.1f (received %d, sent %d)%n",
+                    deltaFrames, deltaFrames == 0 ? 0.0 : (double) deltaBytes / deltaFrames,
+                    (double) received / turns, received, client.sentBytes());
+            System.out.println(latency.summary());
+            System.out.println("OK: the client's copy matched the game after every frame");
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Compares the client's copy with a local session playing the same keys.
+     * @throws IllegalStateException at the first difference
+     */
+    private static void check(RemoteGame client, GameSession local) {
+        TETile[][] world = local.world;
+        if (client.turn() != local.turn() || client.outcome() != local.outcome()
+                || client.playerX() != local.player.pos.x || client.playerY() != local.player.pos.y
+                || client.facing() != local.player.facing
+                || client.pushesLeft() != local.player.pushAbilityCount
+                || client.chaserCount() != local.chasers.size()) {
+            throw new IllegalStateException("Entities differ at turn " + local.turn());
+        }
+        for (int i = 0; i < client.chaserCount(); i++) {
+            Chaser c = local.chasers.get(i);
+            if (client.chaserX(i) != c.pos.x || client.chaserY(i) != c.pos.y) {
+                throw new IllegalStateException("Chaser " + i + " differs at turn " + local.turn());
+            }
+        }
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                if (client.tileId(x, y) != world[x][y].id()) {
+                    throw new IllegalStateException("Tile " + x + "," + y + " differs at turn " + local.turn());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary protocol between GameServer and RemoteGame over TCP.
+ *
+ * The client sends messages, each a type byte and its fields:
+ *   JOIN   seed (long), width, height   start a new game; answered by a FULL frame
+ *   KEY    seq, key (byte)              play a key; answered by one frame
+ *   RESYNC seq                          ask for a FULL frame
+ *
+ * The server answers every message with exactly one frame:
+ *   header   type (FULL or DELTA), frame seq, acked client seq, turn, outcome (byte)
+ *   entities player cell, facing (byte), pushes left, chaser count, then each chaser's cell
+ *   FULL     width, height, then one tile id byte per cell
+ *   DELTA    count, then count times (cell, tile id byte)
+ *
+ * Cells are x * height + y. All numbers except the seed are unsigned varints, so a frame
+ * for a turn in which the player and one chaser each took a step is about 20 bytes. Frame
+ * seqs count up by one from the JOIN; a client that sees a gap, or whose state otherwise
+ * went wrong, sends RESYNC. The server also sends a FULL frame every FULL_EVERY frames.
+ */
+public final class NetProtocol {
+    public static final int DEFAULT_PORT = 7777;
+
+    // Client messages
+    public static final int JOIN = 1;
+    public static final int KEY = 2;
+    public static final int RESYNC = 3;
+
+    // Server frames
+    public static final int FULL = 1;
+    public static final int DELTA = 2;
+
+    /** Frames between periodic full snapshots. */
+    public static final int FULL_EVERY = 256;
+    /** Largest world side the server accepts. */
+    public static final int MAX_SIDE = 1024;
+
+    private NetProtocol() {
+    }
+
+    static void writeVarlong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarlong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
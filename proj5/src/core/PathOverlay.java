@@ -0,0 +1,196 @@
+package core;
+
+import tileengine.Renderer;
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws the chaser's path as small dots on top of the tiles, touching only the cells
+ * whose dot appears or disappears.
+ *
+ * Cells are kept as indices x * height + y. Each frame the new path is marked in an
+ * array stamped with a frame number, which gives the set difference with the dots on
+ * screen without building any sets: dots not marked this frame are erased by redrawing
+ * their tile, marked cells without a dot get one. All buffers are reused, so an update
+ * only allocates when the dot list has to grow.
+ *
+ * Anything else that redraws a tile wipes the dot on it. Callers report this through
+ * forget() or forgetAll(), so the dot is drawn again next frame if it is still on the path.
+ */
+public class PathOverlay {
+    private static final Color PATH_COLOR = new Color(255, 0, 0, 200); // Red color
+    private static final double DOT_SIZE = 0.15;
+
+    private final Renderer renderer;
+    private final int height;
+
+    // frame number in which each cell was last on the path
+    private final int[] mark;
+    // true while a cell shows a dot
+    private final boolean[] dotted;
+    // cells with a dot, in no particular order; dottedCount entries are valid
+    private int[] dottedCells = new int[64];
+    private int dottedCount;
+    private int frame;
+
+    // Per-frame cost, for the exit report
+    private long frames;
+    private long changedFrames;
+    private long drawCalls;
+    private long maxDrawCalls;
+    private long allocatedBytes;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean measureAllocations;
+
+    /**
+     * @param renderer renderer the dots are drawn with
+     * @param width world width in tiles
+     * @param height world height in tiles
+     */
+    public PathOverlay(Renderer renderer, int width, int height) {
+        this.renderer = renderer;
+        this.height = height;
+        this.mark = new int[width * height];
+        this.dotted = new boolean[width * height];
+        this.measureAllocations = threads instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Brings the dots on screen in line with the given path.
+     * @param path path to show; ignored when show is false
+     * @param show false to erase all dots
+     * @param chaserPos the chaser's cell, which never gets a dot
+     * @param world the tiles as shown, which erased dots are redrawn from
+     * @param fog in fog-of-war mode, only cells in sight get dots; null otherwise
+     * @return true if anything was drawn and needs to be presented
+     */
+    public boolean update(List<Point> path, boolean show, Point chaserPos, TETile[][] world, FogOfWar fog) {
+        long allocatedBefore = allocatedBytes();
+        frame++;
+        int calls = 0;
+
+        // Mark this frame's cells
+        if (show && path != null) {
+            for (int i = 0; i < path.size(); i++) {
+                Point p = path.get(i);
+                // Don't draw path on chaser's current position or player position
+                if (!p.equals(chaserPos)
+                        && p.x >= 0 && p.x < world.length && p.y >= 0 && p.y < height
+                        && renderer.isOnScreen(p.x, p.y)
+                        && (fog == null || fog.isVisible(p.x, p.y))
+                        && !Tileset.AVATAR.equals(world[p.x][p.y])) {
+                    mark[p.x * height + p.y] = frame;
+                }
+            }
+        }
+
+        // Erase dots that are no longer on the path, keep the rest
+        int kept = 0;
+        for (int i = 0; i < dottedCount; i++) {
+            int cell = dottedCells[i];
+            if (mark[cell] == frame) {
+                dottedCells[kept++] = cell;
+            } else {
+                if (calls == 0) {
+                    renderer.resetFont();
+                }
+                dotted[cell] = false;
+                renderer.drawTile(world, cell / height, cell % height);
+                calls++;
+            }
+        }
+        dottedCount = kept;
+
+        // Draw dots for cells that just joined the path
+        if (show && path != null) {
+            for (int i = 0; i < path.size(); i++) {
+                Point p = path.get(i);
+                if (p.x < 0 || p.x >= world.length || p.y < 0 || p.y >= height) {
+                    continue;
+                }
+                int cell = p.x * height + p.y;
+                if (mark[cell] == frame && !dotted[cell]) {
+                    dotted[cell] = true;
+                    addDotted(cell);
+                    renderer.filledCircle(renderer.toScreenX(p.x) + 0.5, renderer.toScreenY(p.y) + 0.5,
+                            DOT_SIZE, PATH_COLOR);
+                    calls++;
+                }
+            }
+        }
+
+        frames++;
+        if (calls > 0) {
+            changedFrames++;
+        }
+        drawCalls += calls;
+        maxDrawCalls = Math.max(maxDrawCalls, calls);
+        allocatedBytes += allocatedBytes() - allocatedBefore;
+        return calls > 0;
+    }
+
+    /**
+     * Notes that the tile at (x, y) was redrawn, wiping any dot on it.
+     */
+    public void forget(int x, int y) {
+        if (x < 0 || x >= dotted.length / height || y < 0 || y >= height) {
+            return;
+        }
+        int cell = x * height + y;
+        if (!dotted[cell]) {
+            return;
+        }
+        dotted[cell] = false;
+        for (int i = 0; i < dottedCount; i++) {
+            if (dottedCells[i] == cell) {
+                dottedCells[i] = dottedCells[--dottedCount];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Notes that the whole view was redrawn, e.g. after the camera moved.
+     */
+    public void forgetAll() {
+        for (int i = 0; i < dottedCount; i++) {
+            dotted[dottedCells[i]] = false;
+        }
+        dottedCount = 0;
+    }
+
+    /**
+     * One-line summary of draw calls and allocations per update.
+     */
+    public String stats() {
+        String allocations = measureAllocations
+                ? String.format("%.1f", frames == 0 ? 0.0 : (double) allocatedBytes / frames)
+                : "n/a";
+        return String.format("frames=%d (%d with changes) drawCalls=%d avgDrawCalls=%.2f maxDrawCalls=%d"
+                        + " allocatedBytesPerFrame=%s",
+                frames, changedFrames, drawCalls, frames == 0 ? 0.0 : (double) drawCalls / frames,
+                maxDrawCalls, allocations);
+    }
+
+    private void addDotted(int cell) {
+        if (dottedCount == dottedCells.length) {
+            dottedCells = Arrays.copyOf(dottedCells, dottedCells.length * 2);
+        }
+        dottedCells[dottedCount++] = cell;
+    }
+
+    private long allocatedBytes() {
+        if (!measureAllocations) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -7,9 +7,11 @@ import java.awt.Point;
 import java.util.*;
 
 /**
- * Pathfinding utility using BFS algorithm.
+ * Pathfinding utility using BFS algorithm, or Dijkstra over a BucketQueue (Dial's
+ * algorithm) when tiles have different costs.
  */
 public class Pathfinder {
+    private static final Direction[] DIRECTIONS = Direction.values();
     
     /**
      * Finds the shortest path from start to target using BFS.
@@ -17,6 +19,16 @@ public class Pathfinder {
      * Returns empty list if no path exists.
      */
     public static List<Point> findPath(Point start, Point target, TETile[][] world) {
+        return findPath(start, target, world, TerrainCosts.UNIFORM);
+    }
+
+    /**
+     * Finds the cheapest path from start to target, where stepping onto a tile costs
+     * what the table says. Returns a list of points representing the path, excluding
+     * the start point, or an empty list if no path exists. With uniform costs this is
+     * the BFS path.
+     */
+    public static List<Point> findPath(Point start, Point target, TETile[][] world, TerrainCosts costs) {
         int width = world.length;
         int height = world[0].length;
         
@@ -31,24 +43,32 @@ public class Pathfinder {
             return new ArrayList<>();
         }
         
-        // BFS setup
-        Queue<Point> queue = new LinkedList<>();
-        Map<Point, Point> parent = new HashMap<>(); // Maps each point to its parent
-        Set<Point> visited = new HashSet<>();
-        
-        queue.offer(start);
-        visited.add(start);
-        parent.put(start, null);
+        if (!costs.isUniform()) {
+            return findCheapestPath(start, target, world, costs);
+        }
+
+        // BFS over cell indices x * height + y; parent[i] is the cell i was reached from,
+        // plus one, so 0 means not visited yet
+        int[] parent = new int[width * height];
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        int startCell = start.x * height + start.y;
+        int targetCell = target.x * height + target.y;
+
+        queue[tail++] = startCell;
+        parent[startCell] = startCell + 1;
         
         // BFS traversal
-        while (!queue.isEmpty()) {
-            Point current = queue.poll();
+        while (head < tail) {
+            int current = queue[head++];
+            int cx = current / height;
+            int cy = current % height;
             
             // Check all 4 directions
-            for (Direction dir : Direction.values()) {
-                int nx = current.x + dir.dx;
-                int ny = current.y + dir.dy;
-                Point next = new Point(nx, ny);
+            for (Direction dir : DIRECTIONS) {
+                int nx = cx + dir.dx;
+                int ny = cy + dir.dy;
                 
                 // Check bounds
                 if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
@@ -56,7 +76,8 @@ public class Pathfinder {
                 }
                 
                 // Check if already visited
-                if (visited.contains(next)) {
+                int next = nx * height + ny;
+                if (parent[next] != 0) {
                     continue;
                 }
                 
@@ -71,13 +92,12 @@ public class Pathfinder {
                 }
                 
                 // Mark as visited and set parent
-                visited.add(next);
-                parent.put(next, current);
-                queue.offer(next);
+                parent[next] = current + 1;
+                queue[tail++] = next;
                 
                 // If we reached the target, reconstruct path
-                if (next.equals(target)) {
-                    return reconstructPath(parent, start, target);
+                if (next == targetCell) {
+                    return reconstructPath(parent, startCell, targetCell, height);
                 }
             }
         }
@@ -87,19 +107,72 @@ public class Pathfinder {
     }
     
     /**
-     * Reconstructs the path from start to target using parent map.
+     * Dial's algorithm: Dijkstra with the open set in a BucketQueue, since the costs are
+     * small ints. A cell may be queued again when a cheaper way to it turns up; the
+     * stale entry is skipped when popped.
      */
-    private static List<Point> reconstructPath(Map<Point, Point> parent, Point start, Point target) {
-        List<Point> path = new ArrayList<>();
-        Point current = target;
-        
-        // Trace back from target to start
-        while (current != null && !current.equals(start)) {
-            path.add(0, new Point(current)); // Add to front to maintain order
-            current = parent.get(current);
+    private static List<Point> findCheapestPath(Point start, Point target, TETile[][] world, TerrainCosts costs) {
+        int width = world.length;
+        int height = world[0].length;
+        int[] parent = new int[width * height];
+        int[] dist = new int[width * height];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        int startCell = start.x * height + start.y;
+        int targetCell = target.x * height + target.y;
+        BucketQueue queue = new BucketQueue(costs.maxCost());
+        dist[startCell] = 0;
+        parent[startCell] = startCell + 1;
+        queue.push(startCell, 0);
+
+        while (!queue.isEmpty()) {
+            int current = queue.pop();
+            int d = queue.lastKey();
+            if (d > dist[current]) {
+                continue;
+            }
+            if (current == targetCell) {
+                return reconstructPath(parent, startCell, targetCell, height);
+            }
+            int cx = current / height;
+            int cy = current % height;
+            for (Direction dir : DIRECTIONS) {
+                int nx = cx + dir.dx;
+                int ny = cy + dir.dy;
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                    continue;
+                }
+                TETile tile = world[nx][ny];
+                if (!isWalkableTile(tile) && !tile.equals(Tileset.CHASER) && !tile.equals(Tileset.AVATAR)) {
+                    continue;
+                }
+                int next = nx * height + ny;
+                int nd = d + costs.cost(tile);
+                if (nd < dist[next]) {
+                    dist[next] = nd;
+                    parent[next] = current + 1;
+                    queue.push(next, nd);
+                }
+            }
         }
-        
-        return path;
+        return new ArrayList<>();
+    }
+
+    /**
+     * Reconstructs the path from start to target using the parent array.
+     */
+    private static List<Point> reconstructPath(int[] parent, int startCell, int targetCell, int height) {
+        int length = 0;
+        for (int cell = targetCell; cell != startCell; cell = parent[cell] - 1) {
+            length++;
+        }
+
+        // Trace back from target to start, filling the list from the end
+        Point[] path = new Point[length];
+        int i = length;
+        for (int cell = targetCell; cell != startCell; cell = parent[cell] - 1) {
+            path[--i] = new Point(cell / height, cell % height);
+        }
+        return new ArrayList<>(Arrays.asList(path));
     }
     
     /**
@@ -0,0 +1,81 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long Pathfinder.findPath takes for each ChaserType's terrain costs:
+ * breadth-first search for standard chasers, Dial's algorithm for the others.
+ *
+ * Usage: java core.PathfinderBenchmark [paths] [S|M|B] [seed]
+ *
+ * Paths run between random walkable tiles of a few generated worlds; every type gets the
+ * same pairs.
+ */
+public class PathfinderBenchmark {
+    private static final int WORLDS = 8;
+
+    public static void main(String[] args) {
+        int paths = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        char size = args.length > 1 ? Character.toUpperCase(args[1].charAt(0)) : 'B';
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int[] dims = switch (size) {
+            case 'S' -> new int[] {50, 30};
+            case 'M' -> new int[] {80, 50};
+            case 'B' -> new int[] {110, 70};
+            default -> throw new IllegalArgumentException("Unknown size: " + size);
+        };
+
+        List<GameSession> worlds = new ArrayList<>();
+        List<List<Point>> walkable = new ArrayList<>();
+        for (int i = 0; i < WORLDS; i++) {
+            GameSession session = GameSession.generate(seed + i, dims[0], dims[1]);
+            worlds.add(session);
+            walkable.add(walkableTiles(session));
+        }
+
+        for (ChaserType type : ChaserType.values()) {
+            // Warm up so the JIT has compiled the search before measuring
+            run(paths / 10, type, worlds, walkable, seed, new LatencyHistogram("warmup"));
+            LatencyHistogram histogram = new LatencyHistogram(type.name().toLowerCase());
+            long steps = run(paths, type, worlds, walkable, seed, histogram);
+            System.out.printf("size=%dx%d paths=%d stepsPerPath=%.1f%n", dims[0], dims[1], paths,
+                    (double) steps / paths);
+            System.out.println(histogram.summary());
+        }
+    }
+
+    /** @return total steps of the paths found */
+    private static long run(int paths, ChaserType type, List<GameSession> worlds, List<List<Point>> walkable,
+                            long seed, LatencyHistogram histogram) {
+        Random random = new Random(seed);
+        long steps = 0;
+        for (int i = 0; i < paths; i++) {
+            int w = i % worlds.size();
+            List<Point> tiles = walkable.get(w);
+            Point from = tiles.get(random.nextInt(tiles.size()));
+            Point to = tiles.get(random.nextInt(tiles.size()));
+            long start = System.nanoTime();
+            List<Point> path = Pathfinder.findPath(from, to, worlds.get(w).world, type.costs);
+            histogram.record(System.nanoTime() - start);
+            steps += path.size();
+        }
+        return steps;
+    }
+
+    private static List<Point> walkableTiles(GameSession session) {
+        List<Point> tiles = new ArrayList<>();
+        for (int x = 0; x < session.world.length; x++) {
+            for (int y = 0; y < session.world[0].length; y++) {
+                if (GameSession.isChaserWalkable(session.world[x][y])) {
+                    tiles.add(new Point(x, y));
+                }
+            }
+        }
+        return tiles;
+    }
+}
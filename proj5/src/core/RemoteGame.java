@@ -0,0 +1,290 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+
+/**
+ * Client side of the NetProtocol: sends keys to a GameServer and keeps a copy of the
+ * game built from the frames it gets back.
+ *
+ * The copy holds one tile id per cell plus the entities. Full frames replace it, delta
+ * frames patch the cells they list. When a frame's seq is not the one expected, the
+ * deltas in between are missing, so the client ignores frames and asks for a full one.
+ */
+public class RemoteGame implements AutoCloseable {
+    private final Socket socket;
+    private final CountingInputStream counter;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private long keySeq;
+
+    // The copy of the game, valid while synced is true
+    private boolean synced;
+    private long frameSeq;
+    private long ackedSeq;
+    private int width;
+    private int height;
+    // tile id per cell, index x * height + y
+    private byte[] tiles = new byte[0];
+    private long turn;
+    private GameSession.Outcome outcome = GameSession.Outcome.PLAYING;
+    private int playerCell;
+    private Direction facing = Direction.UP;
+    private int pushesLeft;
+    // chaser cells; only the first chaserCount are valid
+    private int[] chaserCells = new int[0];
+    private int chaserCount;
+
+    private long fullFrames;
+    private long resyncs;
+
+    /**
+     * Connects to a server.
+     */
+    public RemoteGame(String host, int port) {
+        try {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            counter = new CountingInputStream(socket.getInputStream());
+            in = new DataInputStream(new BufferedInputStream(counter));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not connect to " + host + ":" + port, e);
+        }
+    }
+
+    /**
+     * Starts a new game on the server and reads its first, full frame.
+     */
+    public void join(long seed, int width, int height) throws IOException {
+        out.writeByte(NetProtocol.JOIN);
+        out.writeLong(seed);
+        SessionSnapshot.writeVarint(out, width);
+        SessionSnapshot.writeVarint(out, height);
+        out.flush();
+        frameSeq = 0;
+        synced = false;
+        readFrame();
+    }
+
+    /**
+     * Sends a key without waiting for its frame, so keys can be pipelined.
+     * @return the key's seq, which the frame answering it acks
+     */
+    public long sendKey(char key) throws IOException {
+        out.writeByte(NetProtocol.KEY);
+        NetProtocol.writeVarlong(out, ++keySeq);
+        out.writeByte(key);
+        out.flush();
+        return keySeq;
+    }
+
+    /**
+     * Reads one frame and applies it to the copy of the game. After a gap in the frame
+     * seqs, asks for a full frame and ignores deltas until it arrives.
+     * @return the type of the frame read, FULL or DELTA
+     */
+    public int readFrame() throws IOException {
+        int type = in.readUnsignedByte();
+        long seq = NetProtocol.readVarlong(in);
+        ackedSeq = NetProtocol.readVarlong(in);
+        if (type != NetProtocol.FULL && type != NetProtocol.DELTA) {
+            throw new IOException("Unknown frame type " + type);
+        }
+        boolean inOrder = seq == frameSeq + 1;
+        frameSeq = seq;
+        if (type == NetProtocol.DELTA && !(synced && inOrder)) {
+            // Read past the frame without applying it
+            readEntitiesAndTiles(type, false);
+            if (synced) {
+                synced = false;
+                resyncs++;
+                out.writeByte(NetProtocol.RESYNC);
+                NetProtocol.writeVarlong(out, keySeq);
+                out.flush();
+            }
+            return type;
+        }
+        readEntitiesAndTiles(type, true);
+        if (type == NetProtocol.FULL) {
+            fullFrames++;
+            synced = true;
+        }
+        return type;
+    }
+
+    private void readEntitiesAndTiles(int type, boolean apply) throws IOException {
+        long frameTurn = NetProtocol.readVarlong(in);
+        GameSession.Outcome frameOutcome = GameSession.Outcome.values()[in.readUnsignedByte()];
+        int player = SessionSnapshot.readVarint(in);
+        Direction frameFacing = Direction.values()[in.readUnsignedByte()];
+        int pushes = SessionSnapshot.readVarint(in);
+        int chasers = SessionSnapshot.readVarint(in);
+        if (chasers > NetProtocol.MAX_SIDE * NetProtocol.MAX_SIDE) {
+            throw new IOException("Too many chasers: " + chasers);
+        }
+        if (apply) {
+            turn = frameTurn;
+            outcome = frameOutcome;
+            playerCell = player;
+            facing = frameFacing;
+            pushesLeft = pushes;
+            if (chaserCells.length < chasers) {
+                chaserCells = new int[chasers];
+            }
+            chaserCount = chasers;
+        }
+        for (int i = 0; i < chasers; i++) {
+            int cell = SessionSnapshot.readVarint(in);
+            if (apply) {
+                chaserCells[i] = cell;
+            }
+        }
+
+        if (type == NetProtocol.FULL) {
+            int w = SessionSnapshot.readVarint(in);
+            int h = SessionSnapshot.readVarint(in);
+            if (w > NetProtocol.MAX_SIDE || h > NetProtocol.MAX_SIDE) {
+                throw new IOException("World too large: " + w + "x" + h);
+            }
+            width = w;
+            height = h;
+            if (tiles.length != w * h) {
+                tiles = new byte[w * h];
+            }
+            in.readFully(tiles);
+            return;
+        }
+        int n = SessionSnapshot.readVarint(in);
+        for (int i = 0; i < n; i++) {
+            int cell = SessionSnapshot.readVarint(in);
+            byte id = in.readByte();
+            if (cell >= tiles.length) {
+                throw new IOException("Cell " + cell + " outside the world");
+            }
+            if (apply) {
+                tiles[cell] = id;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean synced() {
+        return synced;
+    }
+
+    public long ackedSeq() {
+        return ackedSeq;
+    }
+
+    public long turn() {
+        return turn;
+    }
+
+    public GameSession.Outcome outcome() {
+        return outcome;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Tile id at a cell of the copy. */
+    public int tileId(int x, int y) {
+        return tiles[x * height + y];
+    }
+
+    public int playerX() {
+        return playerCell / height;
+    }
+
+    public int playerY() {
+        return playerCell % height;
+    }
+
+    public Direction facing() {
+        return facing;
+    }
+
+    public int pushesLeft() {
+        return pushesLeft;
+    }
+
+    /** Number of chasers in the level; chaserX(i) and chaserY(i) take i below it. */
+    public int chaserCount() {
+        return chaserCount;
+    }
+
+    public int chaserX(int i) {
+        return chaserCells[i] / height;
+    }
+
+    public int chaserY(int i) {
+        return chaserCells[i] % height;
+    }
+
+    /** Bytes received from the server so far. */
+    public long receivedBytes() {
+        return counter.count;
+    }
+
+    /** Bytes sent to the server so far. */
+    public long sentBytes() {
+        return out.size();
+    }
+
+    /** Full frames received so far. */
+    public long fullFrames() {
+        return fullFrames;
+    }
+
+    /** Times a gap in the frame seqs made the client ask for a full frame. */
+    public long resyncs() {
+        return resyncs;
+    }
+
+    /** Counts the bytes read through it. */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
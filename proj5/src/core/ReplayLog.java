@@ -0,0 +1,469 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the inputs of a game so it can be played again exactly, and reads them back
+ * with fast seeking.
+ *
+ * A world is a pure function of its seed, size and number of chasers, and a GameSession
+ * step is a pure function of the state, the input, the chaser types and whether stealth
+ * mode is on, so those and the input of every turn are all a replay needs. The file is
+ * binary:
+ *
+ *   header:   magic "DGRP", version (short), seed (long), width (int), height (int),
+ *             chasers (int), stealth (boolean), ChaserType ordinal per chaser (byte)
+ *   event:    turn delta (unsigned varint, at least 1), input ordinal (byte)
+ *   keyframe: turn delta 0, KEYFRAME, full (boolean), SessionSnapshot, stateHash (long)
+ *   trailer:  turn delta 0, END, final turn (long), GameSession.stateHash() (long)
+ *
+ * Keyframes let a reader jump close to any turn instead of playing from the start (see
+ * Replay.seek). One is written at turn 0, and after that whenever the steps since the
+ * last one took TARGET_SEEK_NANOS, so fast-forwarding from a keyframe takes about that
+ * long however slow or fast the turns are. Keyframes store only the tiles that differ
+ * from the previous keyframe, with a full one every FULL_KEYFRAME_EVERY keyframes, so a
+ * long game adds a few dozen bytes per keyframe.
+ *
+ * One turn usually takes two bytes. Everything is buffered and appended as the game
+ * goes; the trailer is written by close(). A log without a trailer (e.g. after a crash)
+ * can still be replayed, just not verified.
+ */
+public class ReplayLog {
+    static final int MAGIC = 0x44475250; // "DGRP"
+    static final short VERSION = 1;
+
+    private static final int END = 0;
+    private static final int KEYFRAME = 1;
+
+    // Fast-forward time a keyframe should save a seek, measured on the recording machine
+    private static final long TARGET_SEEK_NANOS = 5_000_000L;
+    // Keeps keyframes apart while the JIT is still warming up and steps are slow
+    private static final int MIN_KEYFRAME_TURNS = 64;
+    // Bounds the chain of deltas a seek has to apply
+    private static final int FULL_KEYFRAME_EVERY = 16;
+
+    private static final GameSession.Input[] INPUTS = GameSession.Input.values();
+
+    private final GameSession session;
+    private final DataOutputStream out;
+    private long lastTurn;
+    private boolean closed;
+
+    private byte[] keyframeTiles;
+    private int keyframes;
+    private long keyframeTurn;
+    private long nanosSinceKeyframe;
+
+    private ReplayLog(GameSession session, DataOutputStream out) {
+        this.session = session;
+        this.out = out;
+    }
+
+    /**
+     * Starts a replay log for a newly generated game.
+     * @param path file to write; replaced if it exists
+     * @param session the game, before its first step and with its chaser types and
+     *                stealth mode already set
+     * @param chasers the chaser count the world was generated with
+     * @throws RuntimeException if the file cannot be written
+     */
+    public static ReplayLog record(String path, GameSession session, long seed, int width, int height,
+                                   int chasers) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(Path.of(path))));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(seed);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(chasers);
+            out.writeBoolean(session.isStealth());
+            for (int i = 0; i < chasers; i++) {
+                // The world may have room for fewer chasers than asked for
+                ChaserType type = i < session.chasers.size() ? session.chasers.get(i).type : ChaserType.STANDARD;
+                out.writeByte(type.ordinal());
+            }
+            ReplayLog log = new ReplayLog(session, out);
+            log.writeKeyframe();
+            return log;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Appends the input of the turn the session just played, and a keyframe if it is
+     * time for one.
+     * @param stepNanos how long the step took, which decides when the next keyframe is due
+     */
+    public synchronized void append(GameSession.Input input, long stepNanos) {
+        if (closed) {
+            return;
+        }
+        try {
+            writeVarint(out, session.turn() - lastTurn);
+            out.writeByte(input.ordinal());
+            lastTurn = session.turn();
+
+            nanosSinceKeyframe += stepNanos;
+            if (nanosSinceKeyframe >= TARGET_SEEK_NANOS && lastTurn - keyframeTurn >= MIN_KEYFRAME_TURNS) {
+                writeKeyframe();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeKeyframe() throws IOException {
+        SessionSnapshot snapshot = session.snapshot();
+        boolean full = keyframes % FULL_KEYFRAME_EVERY == 0;
+        out.writeByte(0);
+        out.writeByte(KEYFRAME);
+        out.writeBoolean(full);
+        snapshot.write(out, full ? null : keyframeTiles);
+        out.writeLong(session.stateHash());
+        keyframeTiles = snapshot.tiles;
+        keyframes++;
+        keyframeTurn = session.turn();
+        nanosSinceKeyframe = 0;
+    }
+
+    /**
+     * Writes the trailer with the session's final turn and state hash, and closes the
+     * file. Safe to call more than once.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.writeByte(0);
+            out.writeByte(END);
+            out.writeLong(session.turn());
+            out.writeLong(session.stateHash());
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * A replay log read back into memory: the header, the inputs in turn order, the
+     * keyframes (still encoded) and the trailer, if the log has one.
+     */
+    public static class Replay {
+        public final long seed;
+        public final int width;
+        public final int height;
+        public final int chasers;
+        public final boolean stealth;
+        // Type of each chaser
+        private final ChaserType[] chaserTypes;
+        // turns[i] is the turn on which inputs[i] was played
+        public final long[] turns;
+        public final byte[] inputs;
+        public final boolean finished;
+        public final long finalTurn;
+        public final long finalHash;
+
+        // Per keyframe: its turn, the first event after it, whether it is full, its
+        // encoded snapshot and the state hash it was taken with
+        private final long[] keyframeTurns;
+        private final int[] keyframeEvents;
+        private final boolean[] keyframeFull;
+        private final byte[][] keyframeData;
+        private final long[] keyframeHashes;
+
+        private Replay(Reader r, boolean finished, long finalTurn, long finalHash) {
+            this.seed = r.seed;
+            this.width = r.width;
+            this.height = r.height;
+            this.chasers = r.chasers;
+            this.stealth = r.stealth;
+            this.chaserTypes = r.chaserTypes;
+            this.turns = Arrays.copyOf(r.turns, r.count);
+            this.inputs = Arrays.copyOf(r.inputs, r.count);
+            this.finished = finished;
+            this.finalTurn = finalTurn;
+            this.finalHash = finalHash;
+            int k = r.keyframes.size();
+            keyframeTurns = new long[k];
+            keyframeEvents = new int[k];
+            keyframeFull = new boolean[k];
+            keyframeData = new byte[k][];
+            keyframeHashes = new long[k];
+            for (int i = 0; i < k; i++) {
+                Reader.Keyframe kf = r.keyframes.get(i);
+                keyframeTurns[i] = kf.turn();
+                keyframeEvents[i] = kf.event();
+                keyframeFull[i] = kf.full();
+                keyframeData[i] = kf.data();
+                keyframeHashes[i] = kf.hash();
+            }
+        }
+
+        /** @return number of recorded inputs */
+        public int size() {
+            return inputs.length;
+        }
+
+        /** @return number of keyframes */
+        public int keyframes() {
+            return keyframeTurns.length;
+        }
+
+        /** @return bytes taken by the encoded keyframes */
+        public long keyframeBytes() {
+            long bytes = 0;
+            for (byte[] data : keyframeData) {
+                bytes += data.length;
+            }
+            return bytes;
+        }
+
+        /**
+         * Returns the game as it was after the given turn, or at its end if the turn is
+         * past it. Restores the nearest keyframe at or before the turn and plays the
+         * inputs from there; without keyframes the world is generated and played from
+         * the start.
+         * @throws IllegalArgumentException if the log is inconsistent
+         */
+        public GameSession seek(long turn) {
+            int k = lastKeyframeAtOrBefore(turn);
+            if (k < 0) {
+                return playFromStart(turn);
+            }
+            GameSession session = GameSession.restore(keyframe(k));
+            if (session.stateHash() != keyframeHashes[k]) {
+                throw new IllegalArgumentException("Keyframe at turn " + keyframeTurns[k] + " is corrupt");
+            }
+            return play(session, keyframeEvents[k], turn);
+        }
+
+        /**
+         * Generates the world and plays the inputs from the start up to and including
+         * the given turn, without using any keyframe, e.g. to verify a log end to end.
+         */
+        public GameSession playFromStart(long turn) {
+            GameSession session = GameSession.generate(seed, width, height, chasers);
+            session.setChaserTypes(chaserTypes);
+            session.setStealth(stealth);
+            return play(session, 0, turn);
+        }
+
+        /**
+         * Plays inputs from the given event on, up to and including the given turn.
+         * @throws IllegalArgumentException if an input is unknown or the session's turns
+         *         don't match the logged ones
+         */
+        private GameSession play(GameSession session, int event, long turn) {
+            for (int i = event; i < inputs.length && turns[i] <= turn; i++) {
+                int input = inputs[i];
+                if (input < 0 || input >= INPUTS.length) {
+                    throw new IllegalArgumentException("Unknown input " + input + " at turn " + turns[i]);
+                }
+                session.step(INPUTS[input]);
+                if (session.turn() != turns[i]) {
+                    throw new IllegalArgumentException("Logged turn " + turns[i]
+                            + " but the session is at turn " + session.turn());
+                }
+            }
+            return session;
+        }
+
+        private int lastKeyframeAtOrBefore(long turn) {
+            int lo = 0;
+            int hi = keyframeTurns.length - 1;
+            int found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keyframeTurns[mid] <= turn) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Decodes keyframe k by applying the deltas since the last full keyframe.
+         */
+        private SessionSnapshot keyframe(int k) {
+            int first = k;
+            while (!keyframeFull[first]) {
+                first--;
+            }
+            try {
+                SessionSnapshot snapshot = null;
+                for (int i = first; i <= k; i++) {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(keyframeData[i]));
+                    byte[] base = i == first ? null : snapshot.tiles;
+                    snapshot = SessionSnapshot.read(in, width, height, base);
+                }
+                return snapshot;
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Keyframe at turn " + keyframeTurns[k] + " is corrupt", e);
+            }
+        }
+    }
+
+    /**
+     * Reads a whole replay log.
+     * @throws IllegalArgumentException if the file is not a replay log of this version
+     * @throws RuntimeException if the file cannot be read
+     */
+    public static Replay read(String path) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(Path.of(path));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            return new Reader(path, bytes).read();
+        } catch (IOException e) {
+            // Cut off inside the header
+            throw new IllegalArgumentException(path + " is truncated", e);
+        }
+    }
+
+    /** State while reading a log. */
+    private static class Reader {
+        record Keyframe(long turn, int event, boolean full, byte[] data, long hash) {
+        }
+
+        private final String path;
+        private final byte[] bytes;
+        private final ByteArrayInputStream buffer;
+        private final DataInputStream in;
+        long seed;
+        int width;
+        int height;
+        int chasers;
+        boolean stealth;
+        ChaserType[] chaserTypes;
+        long[] turns;
+        byte[] inputs;
+        int count;
+        final List<Keyframe> keyframes = new ArrayList<>();
+        // Tiles of the last keyframe read, the base of the next delta
+        private byte[] decodedTiles;
+
+        Reader(String path, byte[] bytes) {
+            this.path = path;
+            this.bytes = bytes;
+            this.buffer = new ByteArrayInputStream(bytes);
+            this.in = new DataInputStream(buffer);
+        }
+
+        Replay read() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(path + " is not a replay log");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported replay log version " + version);
+            }
+            seed = in.readLong();
+            width = in.readInt();
+            height = in.readInt();
+            chasers = in.readInt();
+            if (chasers < 1) {
+                throw new IllegalArgumentException(path + ": bad chaser count " + chasers);
+            }
+            stealth = in.readBoolean();
+            chaserTypes = new ChaserType[chasers];
+            for (int i = 0; i < chasers; i++) {
+                int type = in.readUnsignedByte();
+                if (type >= ChaserType.values().length) {
+                    throw new IllegalArgumentException(path + ": unknown chaser type " + type);
+                }
+                chaserTypes[i] = ChaserType.values()[type];
+            }
+
+            // At least two bytes per event
+            turns = new long[in.available() / 2];
+            inputs = new byte[turns.length];
+            long turn = 0;
+            try {
+                while (true) {
+                    long delta = readVarint(in);
+                    if (delta > 0) {
+                        byte input = in.readByte();
+                        turn += delta;
+                        turns[count] = turn;
+                        inputs[count] = input;
+                        count++;
+                        continue;
+                    }
+                    int kind = in.readUnsignedByte();
+                    if (kind == KEYFRAME) {
+                        readKeyframe();
+                    } else if (kind == END) {
+                        long finalTurn = in.readLong();
+                        long finalHash = in.readLong();
+                        return new Replay(this, true, finalTurn, finalHash);
+                    } else {
+                        throw new IllegalArgumentException(path + ": unknown record " + kind);
+                    }
+                }
+            } catch (EOFException e) {
+                // No trailer: the game did not end normally. Keep the complete records.
+                return new Replay(this, false, turn, 0);
+            }
+        }
+
+        private void readKeyframe() throws IOException {
+            boolean full = in.readBoolean();
+            if (!full && decodedTiles == null) {
+                throw new IllegalArgumentException(path + ": delta keyframe without a full one before it");
+            }
+            int start = bytes.length - buffer.available();
+            // Decoded only to find where it ends; seeks decode it again when needed
+            byte[] base = full ? null : decodedTiles;
+            SessionSnapshot snapshot = SessionSnapshot.read(in, width, height, base);
+            int end = bytes.length - buffer.available();
+            long hash = in.readLong();
+            decodedTiles = snapshot.tiles;
+            keyframes.add(new Keyframe(snapshot.turn, count, full, Arrays.copyOfRange(bytes, start, end), hash));
+        }
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package core;
+
+/**
+ * Plays a replay log headlessly at full speed and checks that it ends in the same
+ * state as the recorded game.
+ *
+ * Usage: java core.ReplayRunner FILE [repeats] [--seek TURN]
+ *
+ * The world is regenerated from the logged seed and size, and every logged input is
+ * stepped through a GameSession. The final turn and GameSession.stateHash() are compared
+ * with the log's trailer. With repeats > 1 the replay is run that many times and the
+ * best speed is reported, as a benchmark of raw turns per second (world generation
+ * included).
+ *
+ * With --seek, the game after TURN is also restored through the log's keyframes. The
+ * seek time is reported and the result is checked against playing from the start.
+ *
+ * Exits with status 1 if the replay does not match the log.
+ */
+public class ReplayRunner {
+    public static void main(String[] args) {
+        String file = null;
+        int repeats = 1;
+        Long seekTurn = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--seek")) {
+                    seekTurn = Long.parseLong(args[++i]);
+                } else if (file == null) {
+                    file = args[i];
+                } else {
+                    repeats = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            file = null;
+        }
+        if (file == null) {
+            System.err.println("Usage: java core.ReplayRunner FILE [repeats] [--seek TURN]");
+            System.exit(2);
+        }
+        ReplayLog.Replay replay = ReplayLog.read(file);
+
+        GameSession session = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < repeats; i++) {
+            long start = System.nanoTime();
+            session = replay.playFromStart(Long.MAX_VALUE);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        long hash = session.stateHash();
+        System.out.printf("seed=%d size=%dx%d inputs=%d turns=%d outcome=%s hash=%016x%n",
+                replay.seed, replay.width, replay.height, replay.size(), session.turn(),
+                session.outcome(), hash);
+        System.out.printf("keyframes=%d keyframeBytes=%d%n", replay.keyframes(), replay.keyframeBytes());
+        System.out.printf("turnsPerSecond=%.0f nsPerTurn=%.1f (including world generation)%n",
+                session.turn() / Math.max(bestNanos / 1e9, 1e-9),
+                session.turn() == 0 ? 0.0 : bestNanos / (double) session.turn());
+
+        boolean ok = true;
+        if (seekTurn != null) {
+            ok = checkSeek(replay, seekTurn, repeats);
+        }
+
+        if (!replay.finished) {
+            System.out.println("UNVERIFIED: the log has no final hash (the game did not end normally)");
+        } else if (replay.finalTurn != session.turn() || replay.finalHash != hash) {
+            System.out.printf("MISMATCH: logged turn=%d hash=%016x%n", replay.finalTurn, replay.finalHash);
+            ok = false;
+        } else {
+            System.out.println("OK");
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Seeks to a turn through the keyframes and compares the result with playing from
+     * the start.
+     * @return true if both give the same state
+     */
+    private static boolean checkSeek(ReplayLog.Replay replay, long turn, int repeats) {
+        GameSession sought = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < Math.max(repeats, 5); i++) {
+            long start = System.nanoTime();
+            sought = replay.seek(turn);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        long start = System.nanoTime();
+        GameSession played = replay.playFromStart(turn);
+        long playNanos = System.nanoTime() - start;
+
+        System.out.printf("seek turn=%d seekMs=%.3f fromStartMs=%.3f%n",
+                sought.turn(), bestNanos / 1e6, playNanos / 1e6);
+        if (sought.stateHash() != played.stateHash()) {
+            System.out.printf("SEEK MISMATCH: hash=%016x from start=%016x%n",
+                    sought.stateHash(), played.stateHash());
+            return false;
+        }
+        return true;
+    }
+}
@@ -4,21 +4,582 @@ import tileengine.TETile;
 import tileengine.Tileset;
 import utils.FileUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
 /**
  * Handles saving and loading game state to/from a file.
+ *
+ * Games are saved in a binary format, streamed through a FileChannel a column of tiles at
+ * a time, so neither side holds more of the file than that. A game generated from a
+ * seed is saved as that seed plus a journal of the tiles that have changed since, and
+ * every save holds a full snapshot of its tiles:
+ *
+ *   header:   magic "DGSV" (int), version (short), kind (byte), Compression ordinal (byte)
+ *   body, through a Deflater if the compression is DEFLATE:
+ *   seed:     (SEED kind only) WorldGenerator.VERSION (int), seed (long), chasers the
+ *             world was generated with (int)
+ *   size:     width (int), height (int)
+ *   player:   x (int), y (int), facing ordinal (byte), tile id under the player (byte),
+ *             push ability count (int)
+ *   stealth:  whether the game is in stealth mode (boolean)
+ *   chasers:  count (int), then per chaser x (int), y (int), tile id under it (byte),
+ *             ChaserType ordinal (byte) and, in stealth mode, last seen x (int) and
+ *             y (int) and patrol index (int)
+ *   journal:  (SEED kind only) count (int), then per changed tile, by index, the index
+ *             minus the previous one (unsigned varint) and its tile id now (byte)
+ *   tiles:    column by column (index x * height + y), one tile id per tile (byte) if
+ *             the compression is NONE, else runs of equal tiles, each its length
+ *             (unsigned varint) and tile id (byte), which never cross columns
+ *   checksum: CRC32 of the body above, before deflating (int)
+ *
+ * The world is always loaded from the tiles. A SEED save from the current
+ * WorldGenerator.VERSION is generated again once the checksum passed, and if the
+ * journal applied to it gives the same tiles, the game keeps its Origin so its later
+ * saves are journals too. A save from another generator version, or one whose seed
+ * now generates a different map, loads as a full snapshot instead.
+ *
+ * Saves from before the binary format are text: a comma-separated header line and a
+ * character per tile. They can still be loaded, but CELL and LOCKED_DOOR share a
+ * character there, so cells come back as locked doors.
  */
 public class SaveLoad {
 
-    private static final String PATH = "savefile.txt";
+    static final int MAGIC = 0x44475356; // "DGSV"
+    static final short VERSION = 1;
+
+    // Kinds of save
+    private static final int FULL = 0;
+    private static final int SEED = 1;
+
+    /** How the body of a save is compressed. */
+    public enum Compression {
+        /** One byte per tile. */
+        NONE,
+        /** Runs of equal tiles within each column. */
+        RLE,
+        /** RLE, and the whole body through a Deflater. */
+        DEFLATE
+    }
+
+    static final String PATH = "savefile.bin";
+    // Where Autosave writes, so an autosave never replaces a game saved with :Q
+    static final String AUTOSAVE_PATH = "autosave.bin";
+    // Where saves were written before the binary format
+    private static final String TEXT_PATH = "savefile.txt";
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    // Larger worlds are taken for corrupt sizes rather than allocated
+    private static final long MAX_TILES = 1L << 28;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final ChaserType[] CHASER_TYPES = ChaserType.values();
+    private static final Compression[] COMPRESSIONS = Compression.values();
 
     /**
-     * Saves the game state to a file.
+     * Saves the game state to the save file as a full snapshot.
      * 
      * @param world the world tile map
      * @param p the player
-     * @param chaser the chaser (can be null)
+     * @param chasers the chasers (can be empty)
+     */
+    public static void save(TETile[][] world, Player p, List<Chaser> chasers) {
+        save(PATH, world, p, chasers, false, null, Compression.RLE);
+    }
+
+    /**
+     * Saves a running game to the save file as a full snapshot, plus its origin and a
+     * journal of changed tiles if it has one the current WorldGenerator can generate
+     * again. The chasers' types and the stealth state are saved with it. Tiles are
+     * run-length encoded but not deflated.
+     *
+     * @param origin how the world was generated, or null if it was not (or is unknown)
+     */
+    public static void save(GameSession session, Origin origin) {
+        save(PATH, session.world, session.player, session.chasers, session.isStealth(), origin, Compression.RLE);
+    }
+
+    /**
+     * Saves the game state to the given file as a full snapshot, replacing it if it
+     * exists.
+     *
+     * @throws RuntimeException if the file cannot be written
+     */
+    public static void save(String path, TETile[][] world, Player p, List<Chaser> chasers,
+                            Compression compression) {
+        save(path, world, p, chasers, false, null, compression);
+    }
+
+    /**
+     * Saves a snapshot of a game to the given file, replacing it if it exists; see
+     * save(session, origin). The snapshot's turn is not saved, like a running game's.
+     *
+     * @throws RuntimeException if the file cannot be written
+     */
+    public static void save(String path, SessionSnapshot snapshot, Origin origin, Compression compression) {
+        List<Chaser> chasers = snapshot.chasers();
+        for (int i = 0; i < snapshot.chaserLastSeenX.length; i++) {
+            chasers.get(i).lastSeen.setLocation(snapshot.chaserLastSeenX[i], snapshot.chaserLastSeenY[i]);
+            chasers.get(i).patrolIndex = snapshot.chaserPatrolIndex[i];
+        }
+        save(path, snapshot.world(), snapshot.player(), chasers, snapshot.stealth, origin, compression);
+    }
+
+    /**
+     * Saves the game state to the given file, replacing it if it exists; see
+     * save(session, origin).
+     *
+     * The save is written to a temporary file next to it, forced to disk and then
+     * renamed over it, so a crash while saving leaves the previous save as it was. The
+     * temporary file is deleted if the save fails.
+     *
+     * @throws RuntimeException if the file cannot be written
+     */
+    public static void save(String path, TETile[][] world, Player p, List<Chaser> chasers, boolean stealth,
+                            Origin origin, Compression compression) {
+        Path target = Path.of(path);
+        Path temp = Path.of(path + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES);
+                write(file, world, p, chasers, stealth, origin, compression);
+                file.flush();
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temp, e);
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp, e);
+            throw e;
+        }
+    }
+
+    /** Deletes a file if it exists, adding a failure to do so to the error that caused it. */
+    private static void deleteQuietly(Path file, Exception cause) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Writes a save to a stream, leaving the stream open.
+     */
+    static void write(OutputStream file, TETile[][] world, Player p, List<Chaser> chasers, boolean stealth,
+                      Origin origin, Compression compression) throws IOException {
+        int[] changed = origin != null && origin.regenerates(world) ? changedTiles(world, origin) : null;
+
+        DataOutputStream header = new DataOutputStream(file);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeByte(changed != null ? SEED : FULL);
+        header.writeByte(compression.ordinal());
+
+        Deflater deflater = compression == Compression.DEFLATE ? new Deflater() : null;
+        try {
+            DeflaterOutputStream deflated = deflater != null
+                    ? new DeflaterOutputStream(file, deflater, BUFFER_BYTES) : null;
+            // Buffered so the Deflater is not handed single bytes
+            OutputStream body = deflated != null ? new BufferedOutputStream(deflated, BUFFER_BYTES) : file;
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(body, crc));
+            if (changed != null) {
+                out.writeInt(WorldGenerator.VERSION);
+                out.writeLong(origin.seed);
+                out.writeInt(origin.chasers);
+            }
+            writeEntities(out, world, p, chasers, stealth);
+            if (changed != null) {
+                writeJournal(out, world, changed);
+            }
+            writeTiles(out, world, compression != Compression.NONE);
+            new DataOutputStream(body).writeInt((int) crc.getValue());
+            if (deflated != null) {
+                body.flush();
+                deflated.finish();
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Indices of the tiles that differ from the world the origin generates, in order, or
+     * null when most of them do and the world is no longer much like the generated one.
      */
-    public static void save(TETile[][] world, Player p, Chaser chaser) {
+    private static int[] changedTiles(TETile[][] world, Origin origin) {
+        byte[] generated = origin.generatedTiles();
+        int width = world.length;
+        int height = world[0].length;
+        int[] changed = new int[16];
+        int count = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (world[x][y].id() != generated[x * height + y]) {
+                    if (count == changed.length) {
+                        changed = Arrays.copyOf(changed, count * 2);
+                    }
+                    changed[count++] = x * height + y;
+                }
+            }
+        }
+        // A journal of most of the world would be larger than the tiles saved with it
+        return count * 2 >= width * height ? null : Arrays.copyOf(changed, count);
+    }
+
+    private static void writeEntities(DataOutputStream out, TETile[][] world, Player p, List<Chaser> chasers,
+                                      boolean stealth) throws IOException {
+        out.writeInt(world.length);
+        out.writeInt(world[0].length);
+
+        out.writeInt(p.pos.x);
+        out.writeInt(p.pos.y);
+        out.writeByte(p.facing.ordinal());
+        out.writeByte(p.tileUnderPlayer.id());
+        out.writeInt(p.pushAbilityCount);
+        out.writeBoolean(stealth);
+
+        out.writeInt(chasers.size());
+        for (Chaser chaser : chasers) {
+            out.writeInt(chaser.pos.x);
+            out.writeInt(chaser.pos.y);
+            out.writeByte(chaser.tileUnderChaser.id());
+            out.writeByte(chaser.type.ordinal());
+            if (stealth) {
+                out.writeInt(chaser.lastSeen.x);
+                out.writeInt(chaser.lastSeen.y);
+                out.writeInt(chaser.patrolIndex);
+            }
+        }
+    }
+
+    /** Writes the tiles a column at a time, each as its runs if rle is set. */
+    private static void writeTiles(OutputStream out, TETile[][] world, boolean rle) throws IOException {
+        int height = world[0].length;
+        // A run takes at most a 5-byte varint and the tile id
+        byte[] column = new byte[rle ? height * 6 : height];
+        for (TETile[] tiles : world) {
+            int n = 0;
+            if (!rle) {
+                for (int y = 0; y < height; y++) {
+                    column[n++] = (byte) tiles[y].id();
+                }
+            } else {
+                for (int y = 0; y < height; ) {
+                    TETile tile = tiles[y];
+                    int run = 1;
+                    while (y + run < height && tiles[y + run] == tile) {
+                        run++;
+                    }
+                    n = putVarint(column, n, run);
+                    column[n++] = (byte) tile.id();
+                    y += run;
+                }
+            }
+            out.write(column, 0, n);
+        }
+    }
+
+    private static void writeJournal(DataOutputStream out, TETile[][] world, int[] changed) throws IOException {
+        int height = world[0].length;
+        out.writeInt(changed.length);
+        byte[] entry = new byte[6];
+        int previous = 0;
+        for (int index : changed) {
+            int n = putVarint(entry, 0, index - previous);
+            entry[n++] = (byte) world[index / height][index % height].id();
+            out.write(entry, 0, n);
+            previous = index;
+        }
+    }
+
+    /** @return the offset after the varint */
+    private static int putVarint(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    /**
+     * Loads the game state from the save file, or from a text save of an older version
+     * if there is none. An autosave is only left behind by a game that did not end or get
+     * saved, e.g. after a crash; it is loaded instead when there is no save file, or when
+     * it is newer than the save file and of the same game (the same Origin, or neither
+     * has one). An autosave that cannot be loaded is passed over.
+     *
+     * @return SaveState containing world, player, and chasers, or null if file doesn't exist
+     */
+    public static SaveState load() {
+        SaveState saved = FileUtils.fileExists(PATH) ? load(PATH) : null;
+        if (FileUtils.fileExists(AUTOSAVE_PATH) && writtenAfter(AUTOSAVE_PATH, PATH)) {
+            try {
+                SaveState recovered = load(AUTOSAVE_PATH);
+                if (saved == null || Origin.same(recovered.origin, saved.origin)) {
+                    return recovered;
+                }
+            } catch (IllegalArgumentException e) {
+                // Keep to the save file
+            }
+        }
+        if (saved != null) {
+            return saved;
+        }
+        if (FileUtils.fileExists(TEXT_PATH)) {
+            return load(TEXT_PATH);
+        }
+        return null;
+    }
+
+    /** Whether file a was modified after file b, or b does not exist. */
+    private static boolean writtenAfter(String a, String b) {
+        try {
+            return !FileUtils.fileExists(b)
+                    || Files.getLastModifiedTime(Path.of(a)).compareTo(Files.getLastModifiedTime(Path.of(b))) > 0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Loads the game state from the given file, binary or text.
+     *
+     * @throws IllegalArgumentException if a binary save is corrupt or of another version
+     * @throws RuntimeException if the file cannot be read
+     */
+    public static SaveState load(String path) {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+             InputStream file = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_BYTES)) {
+            byte[] magic = file.readNBytes(4);
+            if (magic.length < 4 || ByteBuffer.wrap(magic).getInt() != MAGIC) {
+                // Text saves are small, so they are still read whole
+                return decodeText(FileUtils.readFile(path));
+            }
+            return read(file);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException(path + " is truncated", e);
+        } catch (ZipException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(path + " is corrupt", e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(path + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a binary save from a stream positioned after the magic number.
+     *
+     * @throws IllegalArgumentException if the save is corrupt or of another version
+     */
+    static SaveState read(InputStream file) throws IOException {
+        DataInputStream header = new DataInputStream(file);
+        short version = header.readShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported save file version " + version);
+        }
+        int kind = header.readByte();
+        if (kind != FULL && kind != SEED) {
+            throw new IllegalArgumentException("Unknown kind of save " + kind);
+        }
+        int compressionOrdinal = header.readByte();
+        if (compressionOrdinal < 0 || compressionOrdinal >= COMPRESSIONS.length) {
+            throw new IllegalArgumentException("Unknown compression " + compressionOrdinal);
+        }
+        Compression compression = COMPRESSIONS[compressionOrdinal];
+
+        CRC32 crc = new CRC32();
+
+        Inflater inflater = compression == Compression.DEFLATE ? new Inflater() : null;
+        try {
+            // Buffered so the Inflater is not asked for single bytes
+            InputStream body = inflater != null
+                    ? new BufferedInputStream(new InflaterInputStream(file, inflater, BUFFER_BYTES), BUFFER_BYTES)
+                    : file;
+            DataInputStream in = new DataInputStream(new CheckedInputStream(body, crc));
+
+            int generatorVersion = 0;
+            long seed = 0;
+            int generatedChasers = 0;
+            if (kind == SEED) {
+                generatorVersion = in.readInt();
+                seed = in.readLong();
+                generatedChasers = in.readInt();
+            }
+
+            int width = in.readInt();
+            int height = in.readInt();
+            if (width < 1 || height < 1 || (long) width * height > MAX_TILES) {
+                throw new IllegalArgumentException("Bad world size " + width + "x" + height);
+            }
+
+            Player p = new Player(in.readInt(), in.readInt());
+            p.facing = DIRECTIONS[in.readByte()];
+            p.tileUnderPlayer = Tileset.byId(in.readByte());
+            p.pushAbilityCount = in.readInt();
+            boolean stealth = in.readBoolean();
+
+            int chaserCount = in.readInt();
+            List<Chaser> chasers = new ArrayList<>();
+            int[] stealthState = new int[stealth ? 3 * chaserCount : 0];
+            for (int i = 0; i < chaserCount; i++) {
+                Chaser chaser = new Chaser(in.readInt(), in.readInt());
+                chaser.tileUnderChaser = Tileset.byId(in.readByte());
+                int type = in.readUnsignedByte();
+                if (type >= CHASER_TYPES.length) {
+                    throw new IllegalArgumentException("Unknown chaser type " + type);
+                }
+                chaser.type = CHASER_TYPES[type];
+                if (stealth) {
+                    stealthState[3 * i] = in.readInt();
+                    stealthState[3 * i + 1] = in.readInt();
+                    stealthState[3 * i + 2] = in.readInt();
+                }
+                chasers.add(chaser);
+            }
+
+            int[] journal = kind == SEED ? readJournal(in, width * height) : null;
+            TETile[][] world = readTiles(in, width, height, compression != Compression.NONE);
+
+            int expected = (int) crc.getValue();
+            if (new DataInputStream(body).readInt() != expected) {
+                throw new IllegalArgumentException("Checksum mismatch");
+            }
+            if (body.read() != -1) {
+                throw new IllegalArgumentException("Bytes after the checksum");
+            }
+
+            // Only generated once the save is known to be intact, since a corrupt size
+            // would make it generate a huge world
+            Origin origin = null;
+            if (kind == SEED && generatorVersion == WorldGenerator.VERSION) {
+                Origin generated = new Origin(seed, width, height, generatedChasers);
+                if (journalMatches(world, journal, generated)) {
+                    origin = generated;
+                }
+            }
+            return new SaveState(world, p, chasers, stealth ? stealthState : null, origin);
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static TETile[][] readTiles(DataInputStream in, int width, int height, boolean rle) throws IOException {
+        TETile[][] world = new TETile[width][height];
+        byte[] column = new byte[height];
+        for (int x = 0; x < width; x++) {
+            TETile[] tiles = world[x];
+            if (!rle) {
+                in.readFully(column);
+                for (int y = 0; y < height; y++) {
+                    tiles[y] = Tileset.byId(column[y]);
+                }
+                continue;
+            }
+            for (int y = 0; y < height; ) {
+                int run = readVarint(in);
+                if (run < 1 || run > height - y) {
+                    throw new IllegalArgumentException("Bad run of " + run + " tiles at " + x + "," + y);
+                }
+                Arrays.fill(tiles, y, y + run, Tileset.byId(in.readByte()));
+                y += run;
+            }
+        }
+        return world;
+    }
+
+    /** Reads a journal of changed tiles as pairs of tile index and tile id. */
+    private static int[] readJournal(DataInputStream in, int tiles) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > tiles) {
+            throw new IllegalArgumentException("Bad journal of " + count + " tiles");
+        }
+        int[] journal = new int[2 * count];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            index += readVarint(in);
+            if (index >= tiles) {
+                throw new IllegalArgumentException("Journal tile " + index + " is outside the world");
+            }
+            journal[2 * i] = index;
+            journal[2 * i + 1] = in.readByte();
+        }
+        return journal;
+    }
+
+    /** @return true if the origin's world with the journal applied has the given tiles */
+    private static boolean journalMatches(TETile[][] world, int[] journal, Origin origin) {
+        byte[] tiles = origin.generatedTiles().clone();
+        int height = origin.height;
+        for (int i = 0; i < journal.length; i += 2) {
+            tiles[journal[i]] = (byte) journal[i + 1];
+        }
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < height; y++) {
+                if (world[x][y].id() != tiles[x * height + y]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saves the game state in the text format of older versions. Only kept so benchmarks
+     * can compare the two formats.
+     */
+    static void saveText(String path, TETile[][] world, Player p, List<Chaser> chasers) {
         StringBuilder sb = new StringBuilder();
 
         // Save player position, facing, tileUnderPlayer, and pushAbilityCount
@@ -27,8 +588,8 @@ public class SaveLoad {
           .append(p.tileUnderPlayer.character()).append(",")
           .append(p.pushAbilityCount);
         
-        // Save chaser position and tileUnderChaser if chaser exists
-        if (chaser != null) {
+        // Save position and tileUnderChaser of each chaser
+        for (Chaser chaser : chasers) {
             sb.append(",").append(chaser.pos.x).append(",").append(chaser.pos.y)
               .append(",").append(chaser.tileUnderChaser.character());
         }
@@ -44,18 +605,14 @@ public class SaveLoad {
             sb.append("\n");
         }
 
-        FileUtils.writeFile(PATH, sb.toString());
+        FileUtils.writeFile(path, sb.toString());
     }
 
     /**
-     * Loads the game state from a file.
-     * 
-     * @return SaveState containing world, player, and chaser, or null if file doesn't exist
+     * Decodes a text save of an older version.
      */
-    public static SaveState load() {
-        if (!FileUtils.fileExists(PATH)) return null;
-
-        String[] lines = FileUtils.readFile(PATH).split("\n");
+    private static SaveState decodeText(String contents) {
+        String[] lines = contents.split("\n");
 
         String[] header = lines[0].split(",");
         int px = Integer.parseInt(header[0]);
@@ -80,30 +637,34 @@ public class SaveLoad {
         p.tileUnderPlayer = decode(tileUnderPlayerChar);
         p.pushAbilityCount = pushAbilityCount;
         
-        // Load chaser from header if present (new format), otherwise find in world (old format)
-        Chaser chaser = null;
+        // Load chasers from header if present (new format), otherwise find in world (old format)
+        List<Chaser> chasers = new ArrayList<>();
         if (header.length >= 8) {
-            // New format: chaser position and tileUnderChaser are in header
-            int chaserX = Integer.parseInt(header[5]);
-            int chaserY = Integer.parseInt(header[6]);
-            char tileUnderChaserChar = header[7].charAt(0);
-            chaser = new Chaser(chaserX, chaserY);
-            chaser.tileUnderChaser = decode(tileUnderChaserChar);
+            // New format: position and tileUnderChaser of each chaser are in header
+            for (int i = 5; i + 2 < header.length; i += 3) {
+                int chaserX = Integer.parseInt(header[i]);
+                int chaserY = Integer.parseInt(header[i + 1]);
+                char tileUnderChaserChar = header[i + 2].charAt(0);
+                Chaser chaser = new Chaser(chaserX, chaserY);
+                chaser.tileUnderChaser = decode(tileUnderChaserChar);
+                chasers.add(chaser);
+            }
         } else {
             // Old format: find chaser in world for backward compatibility
             for (int x = 0; x < width; x++) {
                 for (int y = 0; y < height; y++) {
                     if (world[x][y] != null && world[x][y].equals(Tileset.CHASER)) {
-                        chaser = new Chaser(x, y);
+                        Chaser chaser = new Chaser(x, y);
                         chaser.tileUnderChaser = Tileset.FLOOR; // Default for old saves
+                        chasers.add(chaser);
                         break;
                     }
                 }
-                if (chaser != null) break;
+                if (!chasers.isEmpty()) break;
             }
         }
 
-        return new SaveState(world, p, chaser);
+        return new SaveState(world, p, chasers, null, null);
     }
 
     /**
@@ -156,15 +717,88 @@ public class SaveLoad {
         return Tileset.NOTHING;
     }
 
+    /**
+     * How a world was generated: enough for WorldGenerator to generate it again. The
+     * world is generated at most once per Origin, by the first save or load that needs
+     * it, and kept as tile ids.
+     */
+    public static class Origin {
+        public final long seed;
+        public final int width;
+        public final int height;
+        // Chasers the world was generated with
+        public final int chasers;
+        // Tile id per tile of the generated world, index x * height + y, once generated
+        private byte[] generatedTiles;
+
+        public Origin(long seed, int width, int height, int chasers) {
+            this.seed = seed;
+            this.width = width;
+            this.height = height;
+            this.chasers = chasers;
+        }
+
+        /** Tile ids of the world as it was before the first turn. */
+        synchronized byte[] generatedTiles() {
+            if (generatedTiles == null) {
+                TETile[][] world = new WorldGenerator(width, height, seed, chasers).generate();
+                byte[] tiles = new byte[width * height];
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        tiles[x * height + y] = (byte) world[x][y].id();
+                    }
+                }
+                generatedTiles = tiles;
+            }
+            return generatedTiles;
+        }
+
+        /** @return true if both are null or both generate the same world */
+        static boolean same(Origin a, Origin b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            return a.seed == b.seed && a.width == b.width && a.height == b.height && a.chasers == b.chasers;
+        }
+
+        /** @return true if the world has this origin's size, so it can be saved as a journal */
+        boolean regenerates(TETile[][] world) {
+            return world.length == width && world[0].length == height;
+        }
+    }
+
     public static class SaveState {
         public final TETile[][] world;
         public final Player player;
-        public final Chaser chaser;
+        // With their saved types
+        public final List<Chaser> chasers;
+        // Last seen x, y and patrol index per chaser in stealth mode, null if it was off
+        public final int[] stealthState;
+        // How the world was generated, or null for a full snapshot
+        public final Origin origin;
 
-        public SaveState(TETile[][] w, Player p, Chaser c) {
+        public SaveState(TETile[][] w, Player p, List<Chaser> c, int[] s, Origin o) {
             world = w;
             player = p;
-            chaser = c;
+            chasers = c;
+            stealthState = s;
+            origin = o;
+        }
+
+        /**
+         * A session that plays on under the saved rules: the chasers' saved types, and
+         * stealth mode with their saved stealth state if it was on.
+         */
+        public GameSession session() {
+            GameSession session = new GameSession(world, player, chasers);
+            if (stealthState != null) {
+                session.setStealth(true);
+                for (int i = 0; i < chasers.size(); i++) {
+                    chasers.get(i).lastSeen.setLocation(stealthState[3 * i], stealthState[3 * i + 1]);
+                    chasers.get(i).patrolIndex = stealthState[3 * i + 2];
+                }
+            }
+            return session;
         }
     }
 }
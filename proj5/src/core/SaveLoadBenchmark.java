@@ -0,0 +1,121 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Measures how long saving and loading a game take, and how large the save file is, for
+ * each way of saving it: a full snapshot with each Compression, a seed and journal, and
+ * the text format of older versions.
+ *
+ * Usage: java core.SaveLoadBenchmark [rounds] [S|M|B|WxH] [seed]
+ *
+ * Each round saves and loads every one of a few generated worlds once per format, after
+ * the bot has played some turns in them so the journal is not empty. Sizes are compared
+ * with the uncompressed snapshot, and MB/s is that snapshot's size over the mean time, so
+ * every format is measured against the same amount of game state. The files go to a
+ * temporary directory that is deleted afterwards.
+ */
+public class SaveLoadBenchmark {
+    // Tiles over all worlds of a size, which bounds the worlds kept in memory
+    private static final long TILES = 4_000_000L;
+    private static final int MAX_WORLDS = 8;
+    private static final int TURNS = 200;
+    private static final String[] FORMATS = {"none", "rle", "deflate", "journal", "text"};
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        String size = args.length > 1 ? args[1].toUpperCase() : "B";
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int[] dims = switch (size) {
+            case "S" -> new int[] {50, 30};
+            case "M" -> new int[] {80, 50};
+            case "B" -> new int[] {110, 70};
+            default -> parseDims(size);
+        };
+
+        int count = (int) Math.max(1, Math.min(MAX_WORLDS, TILES / ((long) dims[0] * dims[1])));
+        GameSession[] worlds = new GameSession[count];
+        SaveLoad.Origin[] origins = new SaveLoad.Origin[count];
+        AutoPlayer bot = new AutoPlayer(new Random(seed));
+        for (int i = 0; i < count; i++) {
+            worlds[i] = GameSession.generate(seed + i, dims[0], dims[1]);
+            origins[i] = new SaveLoad.Origin(seed + i, dims[0], dims[1], 1);
+            for (int t = 0; t < TURNS && worlds[i].outcome() == GameSession.Outcome.PLAYING; t++) {
+                worlds[i].step(bot.next(worlds[i]));
+            }
+        }
+
+        Path dir = Files.createTempDirectory("saveload");
+        try {
+            long uncompressed = 0;
+            for (String format : FORMATS) {
+                String path = dir.resolve("save." + format).toString();
+                // Warm up so the JIT has compiled both directions before measuring
+                run(Math.max(1, rounds / 10), format, path, worlds, origins, new LatencyHistogram("warmup"),
+                        new LatencyHistogram("warmup"));
+                LatencyHistogram save = new LatencyHistogram(format + " save");
+                LatencyHistogram load = new LatencyHistogram(format + " load");
+                run(rounds, format, path, worlds, origins, save, load);
+
+                long bytes = new File(path).length();
+                if (uncompressed == 0) {
+                    uncompressed = bytes;
+                }
+                System.out.printf("size=%dx%d format=%s bytes=%d ratio=%.4f saveMBps=%.1f loadMBps=%.1f%n",
+                        dims[0], dims[1], format, bytes, (double) bytes / uncompressed,
+                        uncompressed * 1e3 / save.mean(), uncompressed * 1e3 / load.mean());
+                System.out.println(save.summary());
+                System.out.println(load.summary());
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static int[] parseDims(String size) {
+        String[] parts = size.split("X");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Unknown size: " + size);
+        }
+        return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    private static void run(int rounds, String format, String path, GameSession[] worlds,
+                            SaveLoad.Origin[] origins, LatencyHistogram save, LatencyHistogram load) {
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < worlds.length; i++) {
+                GameSession session = worlds[i];
+                long start = System.nanoTime();
+                switch (format) {
+                    case "none" -> SaveLoad.save(path, session.world, session.player, session.chasers,
+                            SaveLoad.Compression.NONE);
+                    case "rle" -> SaveLoad.save(path, session.world, session.player, session.chasers,
+                            SaveLoad.Compression.RLE);
+                    case "deflate" -> SaveLoad.save(path, session.world, session.player, session.chasers,
+                            SaveLoad.Compression.DEFLATE);
+                    case "journal" -> SaveLoad.save(path, session.world, session.player, session.chasers,
+                            session.isStealth(), origins[i], SaveLoad.Compression.RLE);
+                    default -> SaveLoad.saveText(path, session.world, session.player, session.chasers);
+                }
+                long saved = System.nanoTime();
+                SaveLoad.SaveState state = SaveLoad.load(path);
+                load.record(System.nanoTime() - saved);
+                save.record(saved - start);
+                if (state.world.length != session.world.length) {
+                    throw new IllegalStateException("Loaded a different world");
+                }
+            }
+        }
+    }
+}
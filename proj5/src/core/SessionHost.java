@@ -0,0 +1,318 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many GameSessions in one JVM, each played on its own virtual thread.
+ *
+ * A client talks to its session through two bounded queues: submit() offers an input and
+ * poll() takes the update the session sent back after playing it. When the client stops
+ * reading, the session blocks on its full output queue, its input queue fills up and
+ * submit() starts returning false, so a slow client only ever holds a fixed amount of
+ * memory. A session that gets no input, or whose client reads no update, for the idle
+ * timeout is evicted, and one whose game ended closes itself after sending the final
+ * update.
+ *
+ * An idle session is a virtual thread parked on its input queue, so it costs no carrier
+ * thread and only its world, queues and a small stack. memoryBytes() estimates that per
+ * session, plus the updates waiting in its output queue; the host refuses new sessions
+ * once the total would pass its memory budget.
+ */
+public class SessionHost implements AutoCloseable {
+    /** Why a session stopped. */
+    public enum CloseReason {
+        OPEN, GAME_OVER, IDLE, CLOSED
+    }
+
+    /**
+     * What a session sends back after one turn: the new turn and outcome, and each tile
+     * the turn changed as a cell x << 16 | y with its new tile id.
+     */
+    public record Update(long turn, GameSession.Outcome outcome, int[] changedCells, byte[] changedTiles) {
+        /** Rough heap size of the update. */
+        long bytes() {
+            return UPDATE_BYTES + 4L * changedCells.length + changedTiles.length;
+        }
+    }
+
+    // An input and when it was submitted, for the tick latency
+    private record Request(GameSession.Input input, long submittedNanos) {
+    }
+
+    // Rough heap sizes used by the memory accounting (compressed references)
+    private static final long UPDATE_BYTES = 32 + 2 * 16;
+    private static final long REQUEST_BYTES = 24 + 16;
+    // The session, player and chaser objects with their points, lists and scratch arrays
+    private static final long SESSION_BYTES = 2048;
+    private static final long THREAD_BYTES = 1024;
+
+    private final long idleNanos;
+    private final int queueCapacity;
+    private final long memoryBudget;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong memory = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyHistogram tickLatency = new LatencyHistogram("tick-latency");
+
+    /**
+     * @param idleTimeoutMillis a session without input for this long is evicted
+     * @param queueCapacity     size of each session's input and output queue
+     * @param memoryBudget      estimated bytes all sessions may use together
+     */
+    public SessionHost(long idleTimeoutMillis, int queueCapacity, long memoryBudget) {
+        if (idleTimeoutMillis <= 0 || queueCapacity <= 0 || memoryBudget <= 0) {
+            throw new IllegalArgumentException("Timeout, queue capacity and budget must be positive");
+        }
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.queueCapacity = queueCapacity;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Starts a session on a freshly generated world.
+     */
+    public Session open(long seed, int width, int height) {
+        return open(GameSession.generate(seed, width, height).snapshot());
+    }
+
+    /**
+     * Starts a session from a snapshot, so many players can start the same world without
+     * generating it again.
+     * @throws IllegalStateException if the session would pass the memory budget
+     */
+    public Session open(SessionSnapshot start) {
+        long bytes = baseBytes(start);
+        if (memory.addAndGet(bytes) > memoryBudget) {
+            memory.addAndGet(-bytes);
+            rejected.incrementAndGet();
+            throw new IllegalStateException("Session memory budget of " + memoryBudget + " bytes reached");
+        }
+        Session s = new Session(nextId.getAndIncrement(), GameSession.restore(start), bytes);
+        sessions.put(s.id, s);
+        s.thread.start();
+        return s;
+    }
+
+    /** The open session with the given id, or null. */
+    public Session get(long id) {
+        return sessions.get(id);
+    }
+
+    /** Number of open sessions. */
+    public int size() {
+        return sessions.size();
+    }
+
+    /** Estimated bytes held by all open sessions and their queued updates. */
+    public long memoryBytes() {
+        return memory.get();
+    }
+
+    /** Sessions evicted for being idle so far. */
+    public long evicted() {
+        return evicted.get();
+    }
+
+    /** Sessions refused because of the memory budget so far. */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /** Time from submitting an input until its update is queued, over all sessions. */
+    public LatencyHistogram tickLatency() {
+        return tickLatency;
+    }
+
+    /**
+     * Closes every session and waits for their threads to end.
+     */
+    @Override
+    public void close() {
+        List<Session> open = new ArrayList<>(sessions.values());
+        for (Session s : open) {
+            s.close();
+        }
+        for (Session s : open) {
+            try {
+                s.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estimated bytes of a session without queued updates: the tile grid, the session and
+     * entity objects, the entity store, the chaser planners once they have planned a turn, both queues'
+     * arrays with a full input queue and a parked virtual thread.
+     */
+    private long baseBytes(SessionSnapshot start) {
+        long grid = 16 + 4L * start.width + start.width * (16 + 4L * start.height);
+        long types = Arrays.stream(start.chaserType).distinct().count();
+        long planner = ChaserPlanner.bytes(start.width, start.height, start.chaserX.length, (int) types);
+        // Stealth mode plans groups of chasers with a second planner, which otherwise
+        // never plans
+        long planners = planner + (start.stealth ? planner : ChaserPlanner.bytes(start.width, start.height, 0, 0));
+        long queues = 2 * (64 + 16 + 4L * queueCapacity) + queueCapacity * REQUEST_BYTES;
+        long entities = EntityStore.bytes(start.chaserX.length + 1);
+        return grid + planners + entities + queues + SESSION_BYTES + THREAD_BYTES;
+    }
+
+    /**
+     * One hosted game. All methods may be called from any thread.
+     */
+    public final class Session {
+        private final long id;
+        private final GameSession game;
+        private final long baseBytes;
+        private final BlockingQueue<Request> inputs = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Update> outputs = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+        private volatile CloseReason closeReason = CloseReason.OPEN;
+        // Bytes of unread updates, counted in the host's total until the session ends
+        private long queuedBytes;
+        private boolean released;
+
+        private Session(long id, GameSession game, long baseBytes) {
+            this.id = id;
+            this.game = game;
+            this.baseBytes = baseBytes;
+            this.thread = Thread.ofVirtual().name("session-" + id).unstarted(this::run);
+        }
+
+        public long id() {
+            return id;
+        }
+
+        /**
+         * Queues an input without waiting.
+         * @return false if the input queue is full or the session has stopped
+         */
+        public boolean submit(GameSession.Input input) {
+            if (closeReason != CloseReason.OPEN) {
+                return false;
+            }
+            return inputs.offer(new Request(input, System.nanoTime()));
+        }
+
+        /** The next update, or null if there is none yet. */
+        public Update poll() {
+            return taken(outputs.poll());
+        }
+
+        /** The next update, waiting up to the timeout; null if none arrived. */
+        public Update poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return taken(outputs.poll(timeout, unit));
+        }
+
+        /** OPEN while the session plays, otherwise why it stopped. */
+        public CloseReason closeReason() {
+            return closeReason;
+        }
+
+        /** Estimated bytes held by this session, including queued updates. */
+        public synchronized long memoryBytes() {
+            return baseBytes + queuedBytes;
+        }
+
+        /**
+         * Stops the session. Updates already queued can still be polled.
+         */
+        public void close() {
+            stop(CloseReason.CLOSED);
+            thread.interrupt();
+        }
+
+        private Update taken(Update u) {
+            if (u != null) {
+                account(-u.bytes());
+            }
+            return u;
+        }
+
+        private synchronized void account(long bytes) {
+            queuedBytes += bytes;
+            if (!released) {
+                memory.addAndGet(bytes);
+            }
+        }
+
+        // Takes the session out of the host's total; unread updates stay pollable
+        private synchronized void release() {
+            released = true;
+            memory.addAndGet(-baseBytes - queuedBytes);
+        }
+
+        private void run() {
+            try {
+                while (closeReason == CloseReason.OPEN) {
+                    Request r = inputs.poll(idleNanos, TimeUnit.NANOSECONDS);
+                    if (r == null) {
+                        if (stop(CloseReason.IDLE)) {
+                            evicted.incrementAndGet();
+                        }
+                        break;
+                    }
+                    Update u = play(r.input());
+                    account(u.bytes());
+                    // Blocks while the client lags, which in turn fills the input queue; a client
+                    // that stops reading for the idle timeout is evicted like one that stops sending
+                    if (!outputs.offer(u, idleNanos, TimeUnit.NANOSECONDS)) {
+                        account(-u.bytes());
+                        if (stop(CloseReason.IDLE)) {
+                            evicted.incrementAndGet();
+                        }
+                        break;
+                    }
+                    tickLatency.record(System.nanoTime() - r.submittedNanos());
+                    if (u.outcome() != GameSession.Outcome.PLAYING) {
+                        stop(CloseReason.GAME_OVER);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // close() was called
+            } finally {
+                sessions.remove(id);
+                release();
+                inputs.clear();
+            }
+        }
+
+        private Update play(GameSession.Input input) {
+            GameSession.StepResult result = game.step(input);
+            int n = game.changedCount();
+            int[] cells = new int[n];
+            byte[] tiles = new byte[n];
+            for (int i = 0; i < n; i++) {
+                int x = game.changedX(i);
+                int y = game.changedY(i);
+                cells[i] = x << 16 | y;
+                tiles[i] = (byte) game.world[x][y].id();
+            }
+            return new Update(game.turn(), result.outcome(), cells, tiles);
+        }
+
+        // Sets the reason once; later calls keep the first one
+        private synchronized boolean stop(CloseReason reason) {
+            if (closeReason != CloseReason.OPEN) {
+                return false;
+            }
+            closeReason = reason;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for SessionHost: opens many sessions that stay idle, then lets a number
+ * of simulated players send inputs to some of them at a fixed rate, and reports the
+ * latency of each turn along with the memory the sessions take.
+ *
+ * Usage: java core.SessionLoadTest [--sessions N] [--active N] [--rate PER_SECOND]
+ *        [--seconds N] [--size S|M|B] [--queue N] [--idle-ms N] [--budget-mb N]
+ *
+ * All sessions start from a few pre-generated worlds, like players of a tournament round
+ * sharing seeds. Each active player runs on its own virtual thread, sends a random move
+ * every 1/rate seconds and waits for the update; a player whose game ends opens a new
+ * session. Round trips are timed on the player's side, tick latency inside the host.
+ * Memory is reported both as the host's estimate and as the measured heap growth.
+ */
+public class SessionLoadTest {
+    private static final GameSession.Input[] INPUTS = GameSession.Input.values();
+    // Worlds the sessions start from
+    private static final int WORLDS = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = 10_000;
+        int active = 200;
+        int rate = 20;
+        int seconds = 10;
+        char size = 'S';
+        int queue = 16;
+        long idleMillis = 600_000;
+        long budgetMb = 2048;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--sessions" -> sessions = Integer.parseInt(args[++i]);
+                    case "--active" -> active = Integer.parseInt(args[++i]);
+                    case "--rate" -> rate = Integer.parseInt(args[++i]);
+                    case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                    case "--size" -> size = Character.toUpperCase(args[++i].charAt(0));
+                    case "--queue" -> queue = Integer.parseInt(args[++i]);
+                    case "--idle-ms" -> idleMillis = Long.parseLong(args[++i]);
+                    case "--budget-mb" -> budgetMb = Long.parseLong(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (active > sessions || rate <= 0) {
+                throw new IllegalArgumentException("Need active <= sessions and a positive rate");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java core.SessionLoadTest [--sessions N] [--active N] [--rate PER_SECOND]"
+                    + " [--seconds N] [--size S|M|B] [--queue N] [--idle-ms N] [--budget-mb N]");
+            System.exit(2);
+        }
+        int[] dims = switch (size) {
+            case 'S' -> new int[] {50, 30};
+            case 'M' -> new int[] {80, 50};
+            case 'B' -> new int[] {110, 70};
+            default -> throw new IllegalArgumentException("Unknown size: " + size);
+        };
+
+        SessionSnapshot[] worlds = new SessionSnapshot[WORLDS];
+        for (int i = 0; i < WORLDS; i++) {
+            worlds[i] = GameSession.generate(i + 1, dims[0], dims[1]).snapshot();
+        }
+
+        SessionHost host = new SessionHost(idleMillis, queue, budgetMb << 20);
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        List<SessionHost.Session> opened = new ArrayList<>(sessions);
+        try {
+            for (int i = 0; i < sessions; i++) {
+                opened.add(host.open(worlds[i % WORLDS]));
+            }
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage() + " after " + opened.size() + " sessions");
+        }
+        double openMs = (System.nanoTime() - start) / 1e6;
+        long heapAfter = usedHeap();
+        System.out.printf("sessions=%d openMs=%.1f estimatedBytesPerSession=%d measuredBytesPerSession=%d%n",
+                host.size(), openMs, host.memoryBytes() / Math.max(1, host.size()),
+                (heapAfter - heapBefore) / Math.max(1, opened.size()));
+
+        LatencyHistogram roundTrip = new LatencyHistogram("round-trip");
+        AtomicLong turns = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        AtomicLong restarts = new AtomicLong();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> players = new ArrayList<>();
+        for (int p = 0; p < Math.min(active, opened.size()); p++) {
+            SessionHost.Session first = opened.get(p);
+            int world = p % WORLDS;
+            Random random = new Random(p);
+            players.add(Thread.ofVirtual().name("player-" + p).start(() -> {
+                SessionHost.Session s = first;
+                long next = System.nanoTime();
+                try {
+                    while (next < end) {
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                        }
+                        next += intervalNanos;
+                        long sent = System.nanoTime();
+                        if (!s.submit(INPUTS[1 + random.nextInt(4)])) {
+                            refused.incrementAndGet();
+                            continue;
+                        }
+                        SessionHost.Update u = s.poll(1, TimeUnit.SECONDS);
+                        if (u == null) {
+                            continue;
+                        }
+                        roundTrip.record(System.nanoTime() - sent);
+                        turns.incrementAndGet();
+                        if (u.outcome() != GameSession.Outcome.PLAYING) {
+                            s = host.open(worlds[world]);
+                            restarts.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException | IllegalStateException e) {
+                    // stop playing; the host may have no room for a new session
+                }
+            }));
+        }
+
+        for (int second = 1; second <= seconds; second++) {
+            Thread.sleep(1000);
+            System.out.printf("t=%ds sessions=%d memoryMB=%.1f turns=%d %s%n", second, host.size(),
+                    host.memoryBytes() / 1048576.0, turns.get(), host.tickLatency().summary());
+        }
+        for (Thread t : players) {
+            t.join();
+        }
+
+        System.out.println(roundTrip.summary());
+        System.out.println(host.tickLatency().summary());
+        System.out.printf("turns=%d turnsPerSecond=%.0f refused=%d restarts=%d evicted=%d rejected=%d%n",
+                turns.get(), turns.get() / (double) seconds, refused.get(), restarts.get(),
+                host.evicted(), host.rejected());
+        host.close();
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,299 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact copy of a GameSession's state: one byte per tile id plus the player and
+ * chasers' fields, the turn and the outcome. GameSession.restore() turns it back into a
+ * session that plays on exactly like the original.
+ *
+ * Snapshots can be written in full or as a delta against an earlier snapshot of the same
+ * world. A delta lists only the runs of tiles that differ, so a snapshot of a game where
+ * a few chests were opened and two entities moved takes a few dozen bytes.
+ */
+public class SessionSnapshot {
+    public final int width;
+    public final int height;
+    // tile id per tile, index x * height + y
+    public final byte[] tiles;
+    public final long turn;
+    public final GameSession.Outcome outcome;
+
+    public final int playerX;
+    public final int playerY;
+    public final int playerPreviousX;
+    public final int playerPreviousY;
+    public final Direction facing;
+    public final int tileUnderPlayer;
+    public final int pushAbilityCount;
+
+    // One entry per chaser
+    public final int[] chaserX;
+    public final int[] chaserY;
+    public final int[] chaserPreviousX;
+    public final int[] chaserPreviousY;
+    public final int[] tileUnderChaser;
+    // ChaserType ordinal per chaser
+    public final int[] chaserType;
+
+    public final boolean stealth;
+    // One entry per chaser in stealth mode, empty otherwise
+    public final int[] chaserLastSeenX;
+    public final int[] chaserLastSeenY;
+    public final int[] chaserPatrolIndex;
+
+    SessionSnapshot(GameSession session) {
+        TETile[][] world = session.world;
+        Player player = session.player;
+        width = world.length;
+        height = world[0].length;
+        tiles = new byte[width * height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                tiles[x * height + y] = (byte) world[x][y].id();
+            }
+        }
+        turn = session.turn();
+        outcome = session.outcome();
+
+        playerX = player.pos.x;
+        playerY = player.pos.y;
+        playerPreviousX = player.previousPos.x;
+        playerPreviousY = player.previousPos.y;
+        facing = player.facing;
+        tileUnderPlayer = player.tileUnderPlayer.id();
+        pushAbilityCount = player.pushAbilityCount;
+
+        int n = session.chasers.size();
+        chaserX = new int[n];
+        chaserY = new int[n];
+        chaserPreviousX = new int[n];
+        chaserPreviousY = new int[n];
+        tileUnderChaser = new int[n];
+        chaserType = new int[n];
+        for (int i = 0; i < n; i++) {
+            Chaser chaser = session.chasers.get(i);
+            chaserType[i] = chaser.type.ordinal();
+            chaserX[i] = chaser.pos.x;
+            chaserY[i] = chaser.pos.y;
+            chaserPreviousX[i] = chaser.previousPos.x;
+            chaserPreviousY[i] = chaser.previousPos.y;
+            tileUnderChaser[i] = chaser.tileUnderChaser.id();
+        }
+
+        stealth = session.isStealth();
+        int m = stealth ? n : 0;
+        chaserLastSeenX = new int[m];
+        chaserLastSeenY = new int[m];
+        chaserPatrolIndex = new int[m];
+        for (int i = 0; i < m; i++) {
+            Chaser chaser = session.chasers.get(i);
+            chaserLastSeenX[i] = chaser.lastSeen.x;
+            chaserLastSeenY[i] = chaser.lastSeen.y;
+            chaserPatrolIndex[i] = chaser.patrolIndex;
+        }
+    }
+
+    private SessionSnapshot(int width, int height, byte[] tiles, DataInput in) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        turn = in.readLong();
+        outcome = GameSession.Outcome.values()[in.readUnsignedByte()];
+        playerX = in.readInt();
+        playerY = in.readInt();
+        playerPreviousX = in.readInt();
+        playerPreviousY = in.readInt();
+        facing = Direction.values()[in.readUnsignedByte()];
+        tileUnderPlayer = in.readUnsignedByte();
+        pushAbilityCount = in.readInt();
+        int n = readVarint(in);
+        chaserX = new int[n];
+        chaserY = new int[n];
+        chaserPreviousX = new int[n];
+        chaserPreviousY = new int[n];
+        tileUnderChaser = new int[n];
+        for (int i = 0; i < n; i++) {
+            chaserX[i] = in.readInt();
+            chaserY[i] = in.readInt();
+            chaserPreviousX[i] = in.readInt();
+            chaserPreviousY[i] = in.readInt();
+            tileUnderChaser[i] = in.readUnsignedByte();
+        }
+
+        stealth = in.readBoolean();
+        int m = stealth ? n : 0;
+        chaserLastSeenX = new int[m];
+        chaserLastSeenY = new int[m];
+        chaserPatrolIndex = new int[m];
+        for (int i = 0; i < m; i++) {
+            // Tile index plus one, 0 for none
+            int seen = readVarint(in) - 1;
+            chaserLastSeenX[i] = seen < 0 ? -1 : seen / height;
+            chaserLastSeenY[i] = seen < 0 ? -1 : seen % height;
+            chaserPatrolIndex[i] = readVarint(in);
+        }
+
+        chaserType = new int[n];
+        for (int i = 0; i < n; i++) {
+            chaserType[i] = in.readUnsignedByte();
+        }
+    }
+
+    /**
+     * The snapshot's tiles as a new world.
+     * @throws IllegalArgumentException if a tile id is unknown
+     */
+    public TETile[][] world() {
+        TETile[][] world = new TETile[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                world[x][y] = Tileset.byId(tiles[x * height + y]);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * A new player with the snapshot's player fields.
+     * @throws IllegalArgumentException if the tile id under the player is unknown
+     */
+    public Player player() {
+        Player player = new Player(playerX, playerY);
+        player.previousPos.setLocation(playerPreviousX, playerPreviousY);
+        player.facing = facing;
+        player.tileUnderPlayer = Tileset.byId(tileUnderPlayer);
+        player.pushAbilityCount = pushAbilityCount;
+        return player;
+    }
+
+    /**
+     * New chasers with the snapshot's chaser fields and types, but not their stealth
+     * state.
+     * @throws IllegalArgumentException if a tile id or chaser type is unknown
+     */
+    public List<Chaser> chasers() {
+        List<Chaser> chasers = new ArrayList<>();
+        for (int i = 0; i < chaserX.length; i++) {
+            Chaser chaser = new Chaser(chaserX[i], chaserY[i]);
+            chaser.previousPos.setLocation(chaserPreviousX[i], chaserPreviousY[i]);
+            chaser.tileUnderChaser = Tileset.byId(tileUnderChaser[i]);
+            if (chaserType[i] >= ChaserType.values().length) {
+                throw new IllegalArgumentException("Unknown chaser type " + chaserType[i]);
+            }
+            chaser.type = ChaserType.values()[chaserType[i]];
+            chasers.add(chaser);
+        }
+        return chasers;
+    }
+
+    /**
+     * Writes the snapshot. Tiles equal to base are left out; with a null base all
+     * tiles are written.
+     * @param base tiles of an earlier snapshot of the same world, or null
+     */
+    public void write(DataOutput out, byte[] base) throws IOException {
+        out.writeLong(turn);
+        out.writeByte(outcome.ordinal());
+        out.writeInt(playerX);
+        out.writeInt(playerY);
+        out.writeInt(playerPreviousX);
+        out.writeInt(playerPreviousY);
+        out.writeByte(facing.ordinal());
+        out.writeByte(tileUnderPlayer);
+        out.writeInt(pushAbilityCount);
+        writeVarint(out, chaserX.length);
+        for (int i = 0; i < chaserX.length; i++) {
+            out.writeInt(chaserX[i]);
+            out.writeInt(chaserY[i]);
+            out.writeInt(chaserPreviousX[i]);
+            out.writeInt(chaserPreviousY[i]);
+            out.writeByte(tileUnderChaser[i]);
+        }
+        out.writeBoolean(stealth);
+        for (int i = 0; i < chaserLastSeenX.length; i++) {
+            int x = chaserLastSeenX[i];
+            writeVarint(out, x < 0 ? 0 : x * height + chaserLastSeenY[i] + 1);
+            writeVarint(out, chaserPatrolIndex[i]);
+        }
+        for (int type : chaserType) {
+            out.writeByte(type);
+        }
+        writeTiles(out, base);
+    }
+
+    /**
+     * Reads a snapshot written by write().
+     * @param base the same base tiles the snapshot was written against, or null if it
+     *             was written in full; not modified
+     */
+    public static SessionSnapshot read(DataInput in, int width, int height, byte[] base) throws IOException {
+        byte[] tiles = base == null ? new byte[width * height] : base.clone();
+        // Entity fields come first in the stream, tiles last
+        SessionSnapshot snapshot = new SessionSnapshot(width, height, tiles, in);
+        readTiles(in, tiles);
+        return snapshot;
+    }
+
+    /**
+     * Tiles as runs: count of tiles equal to base, count of differing tiles and their
+     * ids, repeated until every tile is covered.
+     */
+    private void writeTiles(DataOutput out, byte[] base) throws IOException {
+        int n = tiles.length;
+        int i = 0;
+        while (i < n) {
+            int start = i;
+            while (base != null && i < n && tiles[i] == base[i]) {
+                i++;
+            }
+            int same = i - start;
+            start = i;
+            while (i < n && (base == null || tiles[i] != base[i])) {
+                i++;
+            }
+            writeVarint(out, same);
+            writeVarint(out, i - start);
+            out.write(tiles, start, i - start);
+        }
+    }
+
+    private static void readTiles(DataInput in, byte[] tiles) throws IOException {
+        int i = 0;
+        while (i < tiles.length) {
+            i += readVarint(in);
+            int run = readVarint(in);
+            if (i + run > tiles.length) {
+                throw new IOException("Snapshot tile runs overflow the world");
+            }
+            in.readFully(tiles, i, run);
+            i += run;
+        }
+    }
+
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
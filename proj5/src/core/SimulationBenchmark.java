@@ -0,0 +1,90 @@
+package core;
+
+import utils.LatencyHistogram;
+
+import java.util.Random;
+
+/**
+ * Measures how many game turns per second GameSession plays without any rendering.
+ *
+ * Plays random moves, interacts and pushes on generated worlds. A game that ends is
+ * replaced by a new world; generating it is not counted as simulation time. Every turn's
+ * time also goes into a histogram, to show how the chaser count affects the slowest turns.
+ * With "stealth" the games run in stealth mode; building the visibility cache counts as
+ * generating the world.
+ *
+ * Usage: java core.SimulationBenchmark [turns] [S|M|B] [seed] [chasers] [stealth]
+ */
+public class SimulationBenchmark {
+    private static final GameSession.Input[] INPUTS = GameSession.Input.values();
+
+    public static void main(String[] args) {
+        long turns = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        char size = args.length > 1 ? Character.toUpperCase(args[1].charAt(0)) : 'S';
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int chasers = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        boolean stealth = args.length > 4 && args[4].equalsIgnoreCase("stealth");
+        int[] dims = switch (size) {
+            case 'S' -> new int[] {50, 30};
+            case 'M' -> new int[] {80, 50};
+            case 'B' -> new int[] {110, 70};
+            default -> throw new IllegalArgumentException("Unknown size: " + size);
+        };
+
+        // Warm up so the JIT has compiled step() before measuring
+        run(turns / 10, dims, seed, chasers, stealth);
+        Result r = run(turns, dims, seed, chasers, stealth);
+
+        double seconds = r.nanos / 1e9;
+        System.out.printf("size=%c chasers=%d stealth=%b turns=%d games=%d caught=%d cleared=%d%n",
+                size, chasers, stealth, turns, r.games, r.caught, r.cleared);
+        System.out.printf("turnsPerSecond=%.0f nsPerTurn=%.1f%n", turns / seconds, r.nanos / (double) turns);
+        System.out.println(r.tick.summary());
+    }
+
+    private static Result run(long turns, int[] dims, long seed, int chasers, boolean stealth) {
+        Random random = new Random(seed);
+        Result r = new Result();
+        long worldSeed = seed;
+        GameSession session = newGame(worldSeed, dims, chasers, stealth);
+        r.games = 1;
+        long start = System.nanoTime();
+        for (long t = 0; t < turns; t++) {
+            long turnStart = System.nanoTime();
+            // Mostly moves, like a player would
+            GameSession.Input input = random.nextInt(8) == 0
+                    ? INPUTS[random.nextInt(INPUTS.length)]
+                    : INPUTS[1 + random.nextInt(4)];
+            GameSession.StepResult result = session.step(input);
+            r.tick.record(System.nanoTime() - turnStart);
+
+            if (result.outcome() != GameSession.Outcome.PLAYING) {
+                r.nanos += System.nanoTime() - start;
+                if (result.outcome() == GameSession.Outcome.CAUGHT) {
+                    r.caught++;
+                } else {
+                    r.cleared++;
+                }
+                session = newGame(++worldSeed, dims, chasers, stealth);
+                r.games++;
+                start = System.nanoTime();
+            }
+        }
+        r.nanos += System.nanoTime() - start;
+        return r;
+    }
+
+    private static GameSession newGame(long seed, int[] dims, int chasers, boolean stealth) {
+        GameSession session = GameSession.generate(seed, dims[0], dims[1], chasers);
+        session.setStealth(stealth);
+        return session;
+    }
+
+    private static class Result {
+        long nanos;
+        long games;
+        long caught;
+        long cleared;
+        final LatencyHistogram tick = new LatencyHistogram("tick");
+    }
+}
@@ -0,0 +1,175 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Buckets entity ids by position so that "who is on this tile" and "who is within
+ * Chebyshev distance r" look at a few buckets instead of every entity.
+ *
+ * The world is cut into square cells of 2^cellShift tiles, and each cell hashes to one
+ * of a power of two of buckets. The table starts small and doubles whenever there are
+ * more ids than buckets, so a hash of a few ids stays a few hundred bytes. A bucket is
+ * an intrusive doubly linked list threaded through per-id arrays, so inserting,
+ * removing and moving an id are O(1) and allocate nothing; a move within one cell only
+ * updates the stored position. Cells sharing a bucket are told apart by the stored
+ * positions. Ids are small non-negative ints, such as the slots of an EntityStore.
+ *
+ * Query results go into a buffer owned by the hash and stay valid until the next query.
+ */
+public class SpatialHash {
+    private static final int NONE = -1;
+    private static final int MAX_TABLE_BITS = 24;
+
+    private final int cellShift;
+    private int bucketMask;
+    private int[] head;
+    // Ids in the hash
+    private int count;
+
+    // Per id: position, bucket and neighbors in the bucket's list
+    private int[] x = new int[16];
+    private int[] y = new int[16];
+    private int[] bucketOf = new int[16];
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+
+    private int[] results = new int[16];
+
+    /**
+     * @param cellShift log2 of the side of a cell in tiles
+     * @param tableBits log2 of the initial number of buckets
+     */
+    public SpatialHash(int cellShift, int tableBits) {
+        if (cellShift < 0 || cellShift > 8 || tableBits < 1 || tableBits > MAX_TABLE_BITS) {
+            throw new IllegalArgumentException("Bad cell shift or table size");
+        }
+        this.cellShift = cellShift;
+        bucketMask = (1 << tableBits) - 1;
+        head = new int[1 << tableBits];
+        Arrays.fill(head, NONE);
+        Arrays.fill(bucketOf, NONE);
+    }
+
+    /**
+     * Adds an id at a tile.
+     * @throws IllegalArgumentException if the id is already in the hash
+     */
+    public void insert(int id, int tx, int ty) {
+        if (id >= x.length) {
+            grow(Math.max(id + 1, x.length * 2));
+        }
+        if (bucketOf[id] != NONE) {
+            throw new IllegalArgumentException("Id " + id + " is already in the hash");
+        }
+        x[id] = tx;
+        y[id] = ty;
+        link(id, bucket(tx >> cellShift, ty >> cellShift));
+        if (++count > head.length && head.length < 1 << MAX_TABLE_BITS) {
+            rehash(head.length * 2);
+        }
+    }
+
+    /** Removes an id; does nothing if it isn't in the hash. */
+    public void remove(int id) {
+        if (id < x.length && bucketOf[id] != NONE) {
+            unlink(id);
+            count--;
+        }
+    }
+
+    /** Moves an id to a tile, relinking it only if it changes cells. */
+    public void move(int id, int tx, int ty) {
+        int oldBucket = bucketOf[id];
+        int newBucket = bucket(tx >> cellShift, ty >> cellShift);
+        x[id] = tx;
+        y[id] = ty;
+        if (newBucket != oldBucket) {
+            unlink(id);
+            link(id, newBucket);
+        }
+    }
+
+    /**
+     * Finds the ids within Chebyshev distance r of a tile; r = 0 finds those on it.
+     * @return the number found; result(i) gives them, in no particular order
+     */
+    public int query(int tx, int ty, int r) {
+        int count = 0;
+        int minCx = (tx - r) >> cellShift;
+        int maxCx = (tx + r) >> cellShift;
+        int minCy = (ty - r) >> cellShift;
+        int maxCy = (ty + r) >> cellShift;
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                for (int id = head[bucket(cx, cy)]; id != NONE; id = next[id]) {
+                    // Only ids in this cell, so a bucket shared by two cells of the
+                    // query doesn't report its ids twice
+                    if (x[id] >> cellShift != cx || y[id] >> cellShift != cy
+                            || Math.abs(x[id] - tx) > r || Math.abs(y[id] - ty) > r) {
+                        continue;
+                    }
+                    if (count == results.length) {
+                        results = Arrays.copyOf(results, count * 2);
+                    }
+                    results[count++] = id;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** The i-th id found by the last query. */
+    public int result(int i) {
+        return results[i];
+    }
+
+    private int bucket(int cx, int cy) {
+        int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA6B;
+        return (h ^ h >>> 16) & bucketMask;
+    }
+
+    private void link(int id, int bucket) {
+        bucketOf[id] = bucket;
+        prev[id] = NONE;
+        next[id] = head[bucket];
+        if (head[bucket] != NONE) {
+            prev[head[bucket]] = id;
+        }
+        head[bucket] = id;
+    }
+
+    private void unlink(int id) {
+        int bucket = bucketOf[id];
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else {
+            head[bucket] = next[id];
+        }
+        if (next[id] != NONE) {
+            prev[next[id]] = prev[id];
+        }
+        bucketOf[id] = NONE;
+    }
+
+    /** Moves every id into a table of the given number of buckets. */
+    private void rehash(int buckets) {
+        head = new int[buckets];
+        Arrays.fill(head, NONE);
+        bucketMask = buckets - 1;
+        for (int id = 0; id < x.length; id++) {
+            if (bucketOf[id] != NONE) {
+                link(id, bucket(x[id] >> cellShift, y[id] >> cellShift));
+            }
+        }
+    }
+
+    private void grow(int capacity) {
+        int old = x.length;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        bucketOf = Arrays.copyOf(bucketOf, capacity);
+        Arrays.fill(bucketOf, old, capacity, NONE);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
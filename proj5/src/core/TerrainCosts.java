@@ -0,0 +1,68 @@
+package core;
+
+import tileengine.TETile;
+
+import java.util.Arrays;
+
+/**
+ * What it costs a chaser to step onto each kind of tile, by tile id, for pathfinding.
+ * Costs are small positive ints, at most MAX_COST, so weighted searches can use a
+ * BucketQueue. A cost only changes which path is shortest: every step still takes one
+ * turn.
+ *
+ * Tables are immutable; with() derives a new one.
+ */
+public class TerrainCosts {
+    public static final int MAX_COST = 16;
+    // Tile ids are below 128
+    private static final int IDS = 128;
+
+    /** Every tile costs 1, so the shortest path is the one with the fewest steps. */
+    public static final TerrainCosts UNIFORM = new TerrainCosts(uniformCosts());
+
+    private final int[] costs;
+    private final int maxCost;
+
+    private TerrainCosts(int[] costs) {
+        this.costs = costs;
+        int max = 1;
+        for (int c : costs) {
+            max = Math.max(max, c);
+        }
+        maxCost = max;
+    }
+
+    /**
+     * @return a copy of this table where stepping onto the given tile costs cost
+     * @throws IllegalArgumentException if cost is not in 1..MAX_COST
+     */
+    public TerrainCosts with(TETile tile, int cost) {
+        if (cost < 1 || cost > MAX_COST) {
+            throw new IllegalArgumentException("Cost must be in 1.." + MAX_COST + ": " + cost);
+        }
+        int[] copy = costs.clone();
+        copy[tile.id()] = cost;
+        return new TerrainCosts(copy);
+    }
+
+    /** Cost of stepping onto a tile. */
+    public int cost(TETile tile) {
+        return costs[tile.id()];
+    }
+
+    /** The largest cost in the table. */
+    public int maxCost() {
+        return maxCost;
+    }
+
+    /** @return true if every tile costs 1 */
+    public boolean isUniform() {
+        return maxCost == 1;
+    }
+
+    private static int[] uniformCosts() {
+        int[] costs = new int[IDS];
+        Arrays.fill(costs, 1);
+        return costs;
+    }
+}
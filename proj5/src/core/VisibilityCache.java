@@ -0,0 +1,216 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.Tileset;
+
+import java.util.Arrays;
+
+/**
+ * Which parts of a world can possibly see each other, precomputed per room, so line of
+ * sight between two tiles can usually be ruled out with one bit test.
+ *
+ * The clear tiles are split into regions: rooms, the connected tiles that are part of a
+ * 2x2 block of clear tiles, and corridors, the connected clear tiles that are not. Each
+ * region gets a potentially visible set: every tile in sight of at least one of its
+ * tiles, found by shadowcasting from each of them. A tile outside the set of the
+ * region holding the viewer is not in the viewer's sight, whatever the viewer's exact
+ * tile. Locked doors are taken as clear, since they can be opened, so the sets stay
+ * valid for the whole game; a tile inside the set still needs an exact check.
+ *
+ * The regions are read from the tile map alone, so they are the same for a generated,
+ * restored or loaded world. Building the cache costs one field of view per clear tile.
+ * Each room also gets a center, the room tile nearest its middle, for chasers to patrol.
+ */
+public class VisibilityCache {
+    private final int height;
+    // Region of each tile, index x * height + y; -1 for opaque tiles
+    private final int[] regionOf;
+    // Potentially visible set of each region, as a bitset over the tiles
+    private final long[][] visibleFrom;
+    private final int[] centerX;
+    private final int[] centerY;
+
+    public VisibilityCache(TETile[][] world) {
+        int width = world.length;
+        height = world[0].length;
+        regionOf = new int[width * height];
+        Arrays.fill(regionOf, -1);
+
+        int[] queue = new int[width * height];
+        int regions = 0;
+        int rooms = 0;
+        int[] roomRegion = new int[16];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (regionOf[x * height + y] < 0 && isClear(world, x, y)) {
+                    boolean room = isRoomTile(world, x, y);
+                    label(world, x, y, regions, room, queue);
+                    if (room) {
+                        if (rooms == roomRegion.length) {
+                            roomRegion = Arrays.copyOf(roomRegion, rooms * 2);
+                        }
+                        roomRegion[rooms++] = regions;
+                    }
+                    regions++;
+                }
+            }
+        }
+
+        // One field of view per clear tile, ORed into its region's set
+        int words = (width * height + 63) >>> 6;
+        visibleFrom = new long[regions][words];
+        FieldOfView fov = new FieldOfView(world);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (world[x][y].equals(Tileset.LOCKED_DOOR)) {
+                    fov.setClear(x, y);
+                }
+            }
+        }
+        for (int cell = 0; cell < regionOf.length; cell++) {
+            if (regionOf[cell] >= 0) {
+                fov.update(cell / height, cell % height);
+                fov.addVisibleTo(visibleFrom[regionOf[cell]]);
+            }
+        }
+
+        // Rooms without a walkable tile, e.g. all water, get no center
+        int[] center = findCenters(world, regions);
+        int[] xs = new int[rooms];
+        int[] ys = new int[rooms];
+        int centers = 0;
+        for (int r = 0; r < rooms; r++) {
+            int c = center[roomRegion[r]];
+            if (c >= 0) {
+                xs[centers] = c / height;
+                ys[centers] = c % height;
+                centers++;
+            }
+        }
+        centerX = Arrays.copyOf(xs, centers);
+        centerY = Arrays.copyOf(ys, centers);
+    }
+
+    /** Number of regions, rooms and corridors. */
+    public int regionCount() {
+        return visibleFrom.length;
+    }
+
+    /** @return the region of a tile, or -1 if it is opaque */
+    public int regionOf(int x, int y) {
+        return regionOf[x * height + y];
+    }
+
+    /**
+     * @return false if (toX, toY) is certainly out of sight from (fromX, fromY); true if
+     *         it may be in sight
+     */
+    public boolean mayBeVisible(int fromX, int fromY, int toX, int toY) {
+        int region = regionOf[fromX * height + fromY];
+        if (region < 0) {
+            // A viewer on an opaque tile has no set; leave it to the exact check
+            return true;
+        }
+        int cell = toX * height + toY;
+        return (visibleFrom[region][cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /** Number of room centers, one per room with a walkable tile. */
+    public int centerCount() {
+        return centerX.length;
+    }
+
+    public int centerX(int i) {
+        return centerX[i];
+    }
+
+    public int centerY(int i) {
+        return centerY[i];
+    }
+
+    /**
+     * Tiles a region can be made of: clear ones, and locked doors.
+     */
+    private static boolean isClear(TETile[][] world, int x, int y) {
+        if (x < 0 || x >= world.length || y < 0 || y >= world[0].length) {
+            return false;
+        }
+        TETile tile = world[x][y];
+        return !FieldOfView.isOpaque(tile) || tile.equals(Tileset.LOCKED_DOOR);
+    }
+
+    /** @return true if the tile is in some 2x2 block of clear tiles */
+    private static boolean isRoomTile(TETile[][] world, int x, int y) {
+        for (int dx = -1; dx <= 0; dx++) {
+            for (int dy = -1; dy <= 0; dy++) {
+                if (isClear(world, x + dx, y + dy) && isClear(world, x + dx + 1, y + dy)
+                        && isClear(world, x + dx, y + dy + 1) && isClear(world, x + dx + 1, y + dy + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flood fills a region from (x, y) over the clear tiles of the same kind, room or
+     * corridor.
+     */
+    private void label(TETile[][] world, int x, int y, int region, boolean room, int[] queue) {
+        regionOf[x * height + y] = region;
+        queue[0] = x * height + y;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int cx = queue[head] / height;
+            int cy = queue[head] % height;
+            for (Direction d : Direction.values()) {
+                int nx = cx + d.dx;
+                int ny = cy + d.dy;
+                if (isClear(world, nx, ny) && regionOf[nx * height + ny] < 0
+                        && isRoomTile(world, nx, ny) == room) {
+                    regionOf[nx * height + ny] = region;
+                    queue[tail++] = nx * height + ny;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the walkable tile of each region nearest the region's mean position, the
+     * first one on ties; the mean itself may be outside an L-shaped room.
+     * @return per region the tile's index, or -1 if the region has no walkable tile
+     */
+    private int[] findCenters(TETile[][] world, int regions) {
+        long[] sumX = new long[regions];
+        long[] sumY = new long[regions];
+        long[] count = new long[regions];
+        for (int cell = 0; cell < regionOf.length; cell++) {
+            int r = regionOf[cell];
+            if (r >= 0) {
+                sumX[r] += cell / height;
+                sumY[r] += cell % height;
+                count[r]++;
+            }
+        }
+        int[] center = new int[regions];
+        Arrays.fill(center, -1);
+        long[] best = new long[regions];
+        for (int cell = 0; cell < regionOf.length; cell++) {
+            int r = regionOf[cell];
+            if (r < 0) {
+                continue;
+            }
+            if (GameSession.isChaserWalkable(world[cell / height][cell % height])) {
+                // Squared distance to the mean, scaled by count^2 to stay in integers
+                long dx = (cell / height) * count[r] - sumX[r];
+                long dy = (cell % height) * count[r] - sumY[r];
+                long distance = dx * dx + dy * dy;
+                if (center[r] < 0 || distance < best[r]) {
+                    best[r] = distance;
+                    center[r] = cell;
+                }
+            }
+        }
+        return center;
+    }
+}
@@ -1,9 +1,19 @@
 package core;
 
 import edu.princeton.cs.algs4.StdDraw;
+import tileengine.AnsiRenderer;
+import tileengine.FrameRecorder;
+import tileengine.ImageCache;
+import tileengine.InputSource;
+import tileengine.Renderer;
+import tileengine.StdDrawInput;
 import tileengine.TERenderer;
 import tileengine.TETile;
+import tileengine.TerminalInput;
+import tileengine.ThreadedRenderer;
 import tileengine.Tileset;
+import utils.FileUtils;
+import utils.FixedTimestep;
 
 import java.awt.*;
 
@@ -27,14 +37,74 @@ public class World {
     private static final int BIG_WIDTH = 110;
     private static final int BIG_HEIGHT = 70;
 
-    private static int SIZE; // 0 = Small; 1 = Medium; 2 = Big
+    // Worlds larger than this are shown through a camera that follows the player.
+    // In terminal mode these are set from the terminal size.
+    private static int maxViewWidth = BIG_WIDTH;
+    private static int maxViewHeight = BIG_HEIGHT;
+
+    // Number of rows at the top of the window used by the HUD bar
+    public static final int HUD_HEIGHT = 2;
 
     private static final int MENU_WIDTH = 56;
     private static final int MENU_HEIGHT = 50;
     private static final int SEED_MAXIMUM_LENGTH = 18;
 
-    // world renderer
-    private static final TERenderer renderer = new TERenderer();
+    private static final Color OVERLAY_COLOR = new Color(16, 18, 24);
+
+    // Game loop pacing; the tick rate can be changed with --tick-rate
+    private static final int DEFAULT_TICK_RATE = 33;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final int OVERLAY_WIDTH = 38;
+
+    // world renderer and input; the menus always use StdDraw directly
+    private static Renderer renderer = new TERenderer();
+    private static InputSource input = new StdDrawInput();
+
+    // Set when drawing runs on its own thread (--render-thread)
+    private static boolean renderOnThread = false;
+    private static ThreadedRenderer renderThread;
+
+    // Game loop timing, shown by the debug overlay (F) and written to --stats-file
+    private static FixedTimestep scheduler = new FixedTimestep(DEFAULT_TICK_RATE, MAX_CATCH_UP_TICKS);
+    private static final LoopMetrics metrics = new LoopMetrics();
+    private static String statsFile;
+
+    // Presented frames go to a PNG sequence or GIF (--record PATH)
+    private static String recordPath;
+    private static FrameRecorder recorder;
+
+    // Inputs of a new game are logged for ReplayRunner (--replay-log FILE, off by default)
+    private static String replayLogPath;
+    private static ReplayLog replayLog;
+
+    // The running game is saved every N turns on a background thread (--autosave N, 0 for never)
+    private static int autosaveTurns = 100;
+    private static Autosave autosave;
+    private static boolean showDebugOverlay = false;
+
+    // Chasers in newly generated worlds (--chasers N)
+    private static int chaserCount = 1;
+
+    // Fog-of-war mode (--fog): only tiles in the player's line of sight are shown
+    private static boolean fogOfWar = false;
+    private static FogOfWar fog;
+    private static final java.util.List<Chaser> visibleChasers = new java.util.ArrayList<>();
+
+    // Types of the chasers in new games, in turn (--chaser-types T,..); loaded games keep theirs
+    private static ChaserType[] chaserTypes = {ChaserType.STANDARD};
+
+    // Stealth mode of new games (--stealth): chasers only home in on the player while they see them
+    private static boolean stealthMode = false;
+
+    // How the running game's world was generated, or null if it was loaded from a full save
+    private static SaveLoad.Origin origin;
+
+    // Chaser path dots of the running game, or null when there is no chaser
+    private static PathOverlay pathOverlay;
+
+    // Overview of the whole world in the top-right corner, toggled with M
+    private static Minimap minimap;
+    private static boolean showMinimap = false;
     
     // Flag to track if we're waiting for Q after pressing :
     private static boolean waitingForQuit = false;
@@ -44,6 +114,29 @@ public class World {
      * Can be called directly or through Main.main().
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--terminal")) {
+            runInTerminal(args);
+            return;
+        }
+        try {
+            for (int i = 0; i < args.length; i++) {
+                i = parseLoopOption(args, i);
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: [--render-thread] [--tick-rate N] [--stats-file FILE] [--record PATH]"
+                    + " [--replay-log FILE] [--autosave N] [--chasers N] [--chaser-types T,..] [--fog] [--stealth]");
+            System.exit(2);
+        }
+        if (renderOnThread) {
+            useRenderThread();
+        }
+        startRecording();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closeReplayLog();
+            reportLoopStats();
+        }));
+
         renderer.initialize(MENU_WIDTH, MENU_HEIGHT);
 
         drawTitle();
@@ -53,6 +146,259 @@ public class World {
         mainMenu();
     }
 
+    /**
+     * Plays in the terminal instead of a window, skipping the menus:
+     *   --terminal --seed N [--size S|M|B]   start a new world
+     *   --terminal --load                    load savefile.bin, or autosave.bin after a crash
+     * The game loop options of window mode (--render-thread, --tick-rate N,
+     * --stats-file FILE, --record PATH, --replay-log FILE, --autosave N, ...) can be
+     * added as well.
+     * Keys are read from standard input, so a key sequence can also be piped in, e.g.
+     * for CI smoke runs. The game quits when piped input ends. Renderer throughput is
+     * printed to stderr on exit.
+     * Nothing on this path may touch StdDraw, which needs a display.
+     */
+    private static void runInTerminal(String[] args) {
+        Long seed = null;
+        char size = 'S';
+        boolean load = false;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--size":
+                        size = Character.toUpperCase(args[++i].charAt(0));
+                        break;
+                    case "--load":
+                        load = true;
+                        break;
+                    default:
+                        i = parseLoopOption(args, i);
+                        break;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            seed = null;
+            load = false;
+        }
+        int[] worldSize = worldSizeFor(size);
+        if ((seed == null && !load) || worldSize == null) {
+            System.err.println("Usage: --terminal (--seed N [--size S|M|B] | --load)"
+                    + " [--render-thread] [--tick-rate N] [--stats-file FILE] [--record PATH]"
+                    + " [--replay-log FILE] [--autosave N] [--chasers N] [--chaser-types T,..] [--fog] [--stealth]");
+            System.exit(2);
+        }
+
+        AnsiRenderer ansi = new AnsiRenderer();
+        TerminalInput terminalInput = TerminalInput.open();
+        renderer = ansi;
+        input = terminalInput;
+        if (renderOnThread) {
+            useRenderThread();
+        }
+        startRecording();
+
+        // Leave the last row free so writing the bottom-right cell never scrolls
+        int[] terminalSize = AnsiRenderer.terminalSize();
+        maxViewWidth = terminalSize[0];
+        maxViewHeight = terminalSize[1] - 1;
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // The render thread must finish its last frame before the terminal is reset
+            if (renderThread != null) {
+                renderThread.stop();
+            }
+            ansi.close();
+            terminalInput.close();
+            System.err.println("Renderer: " + ansi.stats());
+            closeReplayLog();
+            reportLoopStats();
+        }));
+
+        if (load) {
+            loadGame();
+            System.err.println("No save file found.");
+            System.exit(1);
+        }
+        generateAndRenderWorld(seed, worldSize[0], worldSize[1]);
+    }
+
+    /**
+     * Applies the game loop option at args[i]:
+     *   --render-thread     draw on a separate thread
+     *   --tick-rate N       run the game loop at N ticks per second
+     *   --stats-file FILE   write loop timings to FILE on exit
+     *   --record PATH       record presented frames to PATH (.gif, else a PNG directory)
+     *   --replay-log FILE   log the inputs of new games to FILE
+     *   --autosave N        save every N turns instead of every 100; 0 turns autosave off
+     *   --chasers N         put N chasers in new worlds instead of one
+     *   --chaser-types T,.. give the chasers of new worlds these types in turn, e.g. wary,standard
+     *   --fog               show only what is in the player's line of sight
+     *   --stealth           in new worlds chasers hunt only a player they can see, else search
+     *                       and patrol
+     * @return index of the last argument used by the option
+     * @throws IllegalArgumentException if args[i] is not a game loop option
+     */
+    private static int parseLoopOption(String[] args, int i) {
+        switch (args[i]) {
+            case "--render-thread":
+                renderOnThread = true;
+                return i;
+            case "--tick-rate":
+                scheduler = new FixedTimestep(Integer.parseInt(args[i + 1]), MAX_CATCH_UP_TICKS);
+                return i + 1;
+            case "--stats-file":
+                statsFile = args[i + 1];
+                return i + 1;
+            case "--record":
+                recordPath = args[i + 1];
+                return i + 1;
+            case "--replay-log":
+                replayLogPath = args[i + 1];
+                return i + 1;
+            case "--autosave":
+                autosaveTurns = Integer.parseInt(args[i + 1]);
+                if (autosaveTurns < 0) {
+                    throw new IllegalArgumentException("--autosave needs 0 or more turns");
+                }
+                return i + 1;
+            case "--chasers":
+                chaserCount = Integer.parseInt(args[i + 1]);
+                if (chaserCount < 1) {
+                    throw new IllegalArgumentException("--chasers needs at least 1");
+                }
+                return i + 1;
+            case "--chaser-types":
+                chaserTypes = parseChaserTypes(args[i + 1]);
+                return i + 1;
+            case "--fog":
+                fogOfWar = true;
+                return i;
+            case "--stealth":
+                stealthMode = true;
+                return i;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of chaser type names, in any case.
+     * @throws IllegalArgumentException if a name is not a ChaserType
+     */
+    private static ChaserType[] parseChaserTypes(String list) {
+        String[] names = list.split(",");
+        ChaserType[] types = new ChaserType[names.length];
+        for (int i = 0; i < names.length; i++) {
+            try {
+                types[i] = ChaserType.valueOf(names[i].trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown chaser type: " + names[i]);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Wraps the current renderer so that drawing and presenting happen on a separate
+     * render thread, which always draws the newest frame and skips stale ones.
+     */
+    private static void useRenderThread() {
+        renderThread = new ThreadedRenderer(renderer);
+        renderer = renderThread;
+    }
+
+    /**
+     * Starts recording presented frames if --record was given.
+     */
+    private static void startRecording() {
+        if (recordPath != null) {
+            recorder = new FrameRecorder(recordPath);
+            renderer.setRecorder(recorder);
+        }
+    }
+
+    /** Starts the --replay-log log, if any; the game goes on without one if the file cannot be written. */
+    private static void startReplayLog(GameSession session, long seed, int width, int height) {
+        if (replayLogPath == null) {
+            return;
+        }
+        try {
+            replayLog = ReplayLog.record(replayLogPath, session, seed, width, height, chaserCount);
+        } catch (RuntimeException e) {
+            System.err.println("Cannot write replay log, not logging: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops autosaving the running game and deletes its autosave, if it has one.
+     */
+    private static void discardAutosave() {
+        if (autosave != null) {
+            autosave.discard();
+        }
+    }
+
+    /**
+     * Finishes the replay log of the running game with its final state, if there is one.
+     */
+    private static void closeReplayLog() {
+        if (replayLog != null) {
+            replayLog.close();
+        }
+    }
+
+    /**
+     * Prints game loop and render thread timings to stderr and writes them to the
+     * stats file, if one was given. Runs on exit.
+     */
+    private static void reportLoopStats() {
+        if (renderThread != null) {
+            renderThread.stop();
+        }
+        String report = metrics.report(scheduler);
+        if (renderThread != null) {
+            report += "render thread " + renderThread.stats() + "\n";
+        }
+        if (pathOverlay != null) {
+            report += "path overlay " + pathOverlay.stats() + "\n";
+        }
+        report += "image cache " + ImageCache.stats() + "\n";
+        if (recorder != null) {
+            // Waits for the frames still buffered to be encoded
+            recorder.close();
+            report += "recorder " + recorder.stats() + "\n";
+        }
+        if (autosave != null) {
+            // Waits for a pending autosave to be written
+            autosave.close();
+            report += "autosave " + autosave.stats() + "\n";
+        }
+        System.err.print(report);
+        if (statsFile != null) {
+            FileUtils.writeFile(statsFile, report);
+        }
+    }
+
+    /**
+     * Returns {width, height} for a size letter (S, M or B), or null if unknown.
+     */
+    private static int[] worldSizeFor(char size) {
+        switch (size) {
+            case 'S':
+                return new int[] { SMALL_WIDTH, SMALL_HEIGHT };
+            case 'M':
+                return new int[] { MEDIUM_WIDTH, MEDIUM_HEIGHT };
+            case 'B':
+                return new int[] { BIG_WIDTH, BIG_HEIGHT };
+            default:
+                return null;
+        }
+    }
+
     /**
      * mainMenu method is expected to end up with calling either
      * 1. getSeedInput(): Generate new world with seed input
@@ -221,43 +567,31 @@ public class World {
     }
 
     /**
-     * Loads a saved game from savefile.txt and starts the game loop.
+     * Loads the saved game (see SaveLoad.load) and starts the game loop.
      * Returns to main menu if no save file exists.
      */
     private static void loadGame() {
-        SaveLoad.SaveState state = SaveLoad.load();
+        SaveLoad.SaveState state;
+        try {
+            state = SaveLoad.load();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cannot load save file: " + e.getMessage());
+            return;
+        }
         if (state == null) {
             return; // No save file exists, return to menu
         }
+        origin = state.origin;
 
-        TETile[][] world = state.world;
-        Player player = state.player;
-        Chaser chaser = state.chaser;
-
-        // Determine world size from loaded world dimensions
-        int width = world.length;
-        int height = world[0].length;
-        
-        // Set SIZE based on loaded world dimensions
-        if (width == SMALL_WIDTH && height == SMALL_HEIGHT) {
-            SIZE = 0;
-        } else if (width == MEDIUM_WIDTH && height == MEDIUM_HEIGHT) {
-            SIZE = 1;
-        } else if (width == BIG_WIDTH && height == BIG_HEIGHT) {
-            SIZE = 2;
-        } else {
-            // Unknown size, default to medium
-            SIZE = 1;
-        }
-
-        // Initialize renderer with loaded world dimensions
-        renderer.initialize(width, height);
+        // The saved chaser types and stealth mode, not the command line's
+        GameSession session = state.session();
+        startFog(session);
 
-        // Render the loaded world
-        renderer.renderFrame(world);
+        // Initialize renderer with loaded world dimensions and render the loaded world
+        initializeRenderer(shown(state.world), state.player);
 
         // Start game loop with loaded world, player, and chaser
-        runGameLoop(world, player, chaser);
+        runGameLoop(session);
     }
 
     /**
@@ -348,15 +682,8 @@ public class World {
             }
             char c = StdDraw.nextKeyTyped();
 
-            if (c == 's' || c == 'S') {
-                SIZE = 0;
-                return new int[] { SMALL_WIDTH, SMALL_HEIGHT };
-            } else if (c == 'm' || c == 'M') {
-                SIZE = 1;
-                return new int[] { MEDIUM_WIDTH, MEDIUM_HEIGHT };
-            } else if (c == 'b' || c == 'B') {
-                SIZE = 2;
-                return new int[] { BIG_WIDTH, BIG_HEIGHT };
+            if (c == 's' || c == 'S' || c == 'm' || c == 'M' || c == 'b' || c == 'B') {
+                return worldSizeFor(Character.toUpperCase(c));
             } else if (c == 'n' || c == 'N') {
                 return null;
             } else {
@@ -382,645 +709,339 @@ public class World {
      * @param height the height of the world
      */
     private static void generateAndRenderWorld(long seed, int width, int height) {
-        renderer.initialize(width, height);
+        GameSession session = GameSession.generate(seed, width, height, chaserCount);
+        origin = new SaveLoad.Origin(seed, width, height, chaserCount);
+        session.setChaserTypes(chaserTypes);
+        session.setStealth(stealthMode);
+        // Loaded games have no seed to start a replay from, so only new games are logged
+        startReplayLog(session, seed, width, height);
 
-        WorldGenerator gen = new WorldGenerator(width, height, seed);
-        TETile[][] world = gen.generate();
+        startFog(session);
+        initializeRenderer(shown(session.world), session.player);
 
-        // Find avatar position and create Player
-        Player player = findPlayer(world);
-        
-        // Create chaser at position from WorldGenerator
-        Chaser chaser = null;
-        java.awt.Point chaserPos = gen.getChaserPosition();
-        if (chaserPos != null) {
-            chaser = new Chaser(chaserPos.x, chaserPos.y);
-            // Initialize tileUnderChaser from WorldGenerator
-            TETile tileUnder = gen.getChaserTileUnder();
-            if (tileUnder != null) {
-                chaser.tileUnderChaser = tileUnder;
-            } else {
-                chaser.tileUnderChaser = Tileset.FLOOR; // Fallback
-            }
-        }
+        runGameLoop(session);
+    }
 
-        renderer.renderFrame(world);
+    /**
+     * Sets up the fog-of-war view of a new game if --fog was given.
+     */
+    private static void startFog(GameSession session) {
+        fog = fogOfWar ? new FogOfWar(session) : null;
+    }
 
-        runGameLoop(world, player, chaser);
+    /**
+     * The tiles to draw: the world itself, or in fog-of-war mode what the player sees
+     * of it.
+     */
+    private static TETile[][] shown(TETile[][] world) {
+        return fog == null ? world : fog.view();
     }
 
     /**
-     * Finds the avatar in the world and creates a Player object at that position.
+     * Sets up the window for the given world and renders it. Worlds that fit in the
+     * largest window are drawn whole, as before. Bigger worlds get a window of the
+     * maximum size and a camera that follows the player, with the HUD rows kept free.
      */
-    private static Player findPlayer(TETile[][] world) {
-        for (int x = 0; x < world.length; x++) {
-            for (int y = 0; y < world[0].length; y++) {
-                if (world[x][y].equals(Tileset.AVATAR)) {
-                    return new Player(x, y);
-                }
-            }
+    private static void initializeRenderer(TETile[][] world, Player player) {
+        int width = world.length;
+        int height = world[0].length;
+
+        if (width <= maxViewWidth && height <= maxViewHeight) {
+            renderer.initialize(width, height);
+            renderer.renderFrame(world);
+            return;
         }
-        throw new RuntimeException("Avatar not found in world");
+
+        int viewWidth = Math.min(width, maxViewWidth);
+        int viewHeight = Math.min(height, maxViewHeight);
+        renderer.initialize(viewWidth, viewHeight);
+        renderer.enableCamera(viewWidth, viewHeight - HUD_HEIGHT);
+        renderer.follow(world, player.pos.x, player.pos.y);
+        renderer.renderFrame(world);
     }
 
     /**
-     * Main game loop: handles player movement and updates HUD based on mouse
-     * position
+     * Main game loop: turns keys into game session steps, draws what they changed and
+     * updates the HUD based on mouse position
      *
-     * @param world  the world tile map
-     * @param player the player object
-     * @param chaser the chaser entity (can be null)
+     * @param session the game to play
      */
-    private static void runGameLoop(TETile[][] world, Player player, Chaser chaser) {
-        int worldWidth;
-        int worldHeight;
-
-        if (SIZE == 0) {
-            worldWidth = SMALL_WIDTH;
-            worldHeight = SMALL_HEIGHT;
-        } else if (SIZE == 1) {
-            worldWidth = MEDIUM_WIDTH;
-            worldHeight = MEDIUM_HEIGHT;
-        } else {
-            worldWidth = BIG_WIDTH;
-            worldHeight = BIG_HEIGHT;
-        }
+    private static void runGameLoop(GameSession session) {
+        TETile[][] world = session.world;
+        TETile[][] shown = shown(world);
+        Player player = session.player;
+        session.setPlanningListener(metrics.planningTimer());
+        // P shows the path of the first chaser
+        Chaser chaser = session.chasers.isEmpty() ? null : session.chasers.get(0);
+
+        // HUD and end screens are laid out in window coordinates, which only match the
+        // world's when the whole world fits in the window
+        int screenWidth = renderer.width();
+        int screenHeight = renderer.height();
 
         // Reset quit waiting flag
         waitingForQuit = false;
         
-        // Initial HUD background
-        clearHUDArea(worldWidth, worldHeight);
-        StdDraw.show();
+        // Drawn in full on the first tick, then only where something changes
+        Hud hud = new Hud(renderer, screenWidth, screenHeight);
+        pathOverlay = chaser == null ? null : new PathOverlay(renderer, world.length, world[0].length);
+        minimap = new Minimap(shown, screenWidth, screenHeight - HUD_HEIGHT);
+        // Shown from the start when the camera only shows part of the world
+        showMinimap = world.length > screenWidth || world[0].length > screenHeight - HUD_HEIGHT;
+        if (autosaveTurns > 0) {
+            autosave = new Autosave(SaveLoad.AUTOSAVE_PATH, autosaveTurns, origin);
+        }
 
         // Main loop: handle input and update HUD based on mouse position
         while (true) {
-            boolean playerMoved = false;
-            
-            // If waiting for Q after pressing :, check for Q key first
-            if (waitingForQuit) {
-                if (StdDraw.hasNextKeyTyped()) {
-                    char q = Character.toUpperCase(StdDraw.nextKeyTyped());
-                    if (q == 'Q') {
-                        SaveLoad.save(world, player, chaser);
-                        System.exit(0);
-                    } else {
-                        // If not Q, cancel quit mode and process the key normally
-                        waitingForQuit = false;
-                        // Process the key that was pressed
-                        playerMoved = processKeyAfterQuitCancel(world, player, chaser, q);
+            metrics.startTick();
+            GameSession.Input action = null;
+
+            if (input.hasNextKeyTyped()) {
+                char c = Character.toUpperCase(input.nextKeyTyped());
+                metrics.keyHandled(input.lastKeyTypedNanos());
+                if (!waitingForQuit) {
+                    action = handleKey(shown, chaser, c);
+                } else if (c == 'Q') {
+                    if (autosave != null) {
+                        // So no autosave is written after this save
+                        autosave.close();
+                    }
+                    SaveLoad.save(session, origin);
+                    discardAutosave();
+                    System.exit(0);
+                } else {
+                    // If not Q, cancel quit mode and process the key normally
+                    waitingForQuit = false;
+                    if (c != ':') {
+                        action = handleKey(shown, chaser, c);
                     }
                 }
-            } else {
-                // Handle keyboard input for player movement
-                playerMoved = handleInput(world, player, chaser);
-            }
-            
-            // Update chaser path for display (always use current player position)
-            if (chaser != null) {
-                // Calculate path from chaser to current player position for display
-                chaser.path = Pathfinder.findPath(chaser.pos, player.pos, world);
             }
             
-            // Check for collision - handle cases where player and chaser swap positions
-            if (chaser != null && playerMoved) {
-                // Check if player moved to chaser's current position
-                if (player.pos.equals(chaser.pos)) {
-                    showGameOver(worldWidth, worldHeight);
-                    System.exit(0);
+            metrics.phase(LoopMetrics.Phase.SIMULATION);
+
+            // Keys that don't affect the game, like the overlay toggles, take no turn
+            if (action != null) {
+                long stepStart = System.nanoTime();
+                GameSession.StepResult result = session.step(action);
+                if (replayLog != null) {
+                    replayLog.append(action, System.nanoTime() - stepStart);
                 }
-                
-                // Move chaser (this will update chaser.previousPos)
-                moveChaser(chaser, player, world);
-                
-                // Check if chaser caught the player after moving
-                if (chaser.pos.equals(player.pos)) {
-                    showGameOver(worldWidth, worldHeight);
-                    System.exit(0);
+                if (autosave != null) {
+                    autosave.turnPlayed(session);
+                }
+                drawChanges(session, result.playerMoved());
+                if (result.outcome() != GameSession.Outcome.PLAYING) {
+                    // A game that is over must not be resumed from its last autosave
+                    discardAutosave();
                 }
-                
-                // Check if they swapped positions (passed through each other)
-                // Player's previous position = Chaser's current position AND
-                // Chaser's previous position = Player's current position
-                if (player.previousPos.equals(chaser.pos) && 
-                    chaser.previousPos.equals(player.pos)) {
-                    showGameOver(worldWidth, worldHeight);
+                if (result.outcome() == GameSession.Outcome.CAUGHT) {
+                    showGameOver(screenWidth, screenHeight);
                     System.exit(0);
                 }
+                if (result.outcome() == GameSession.Outcome.CLEARED) {
+                    showClearScreen(screenWidth, screenHeight);
+                }
             }
-            
-            // Also check if they're on the same tile (in case chaser moves without player moving)
-            if (chaser != null && chaser.pos.equals(player.pos)) {
-                showGameOver(worldWidth, worldHeight);
-                System.exit(0);
+
+            // Update chaser path for display (always use current player position)
+            if (chaser != null) {
+                chaser.path = findPath(chaser.pos, player.pos, world, chaser.type.costs);
             }
 
+            metrics.phase(LoopMetrics.Phase.RENDER);
+
             // Update HUD based on mouse position
-            updateHUDWithMouse(world, worldWidth, worldHeight, player, chaser);
+            boolean drew = updateHUDWithMouse(hud, session, screenHeight);
             
             // Render chaser and path
-            if (chaser != null) {
-                renderChaserAndPath(chaser, world);
+            if (chaser != null && renderChaserAndPath(chaser, world)) {
+                // A dot may have been drawn over the minimap
+                minimap.invalidate();
+                drew = true;
             }
 
-            StdDraw.pause(30); // ~30 FPS, avoids busy-waiting
-        }
-    }
+            if (showDebugOverlay) {
+                drawDebugOverlay(screenHeight);
+                minimap.invalidate();
+                drew = true;
+            }
 
-    /**
-     * Processes a key press after quitting was cancelled.
-     * This allows normal key processing even after : was pressed.
-     * 
-     * @return true if player actually moved, false otherwise
-     */
-    private static boolean processKeyAfterQuitCancel(TETile[][] world, Player player, Chaser chaser, char c) {
-        switch (c) {
-            case 'W':
-                return movePlayer(player, Direction.UP, world);
-            case 'A':
-                return movePlayer(player, Direction.LEFT, world);
-            case 'S':
-                return movePlayer(player, Direction.DOWN, world);
-            case 'D':
-                return movePlayer(player, Direction.RIGHT, world);
-            case 'P':
-                // Toggle path display
-                if (chaser != null) {
-                    chaser.showPath = !chaser.showPath;
-                }
-                return false;
-            case 'I':
-                // Interact with tiles (open treasure, unlock doors, etc.)
-                interact(player, world);
-                return false;
-            case ' ':
-                // Push ability (밀쳐내기) - push chaser away
-                if (chaser != null) {
-                    pushChaser(chaser, player, world);
-                }
-                return false;
-            default:
-                return false;
+            if (showMinimap && minimap.draw(renderer, player.pos, shownChasers(session))) {
+                drew = true;
+            }
+
+            // One present for everything drawn on top of the tiles this tick
+            if (drew) {
+                present();
+            }
+
+            // Scripted input has run out: nothing else can happen
+            if (input.isClosed()) {
+                System.exit(0);
+            }
+
+            metrics.endTick();
+            // Fixed tick rate: sleeps only for what is left of this tick
+            scheduler.awaitNextTick();
         }
     }
-    
+
     /**
-     * Handles keyboard input for player movement (W/A/S/D), save/quit (:Q), 
-     * path toggle (P), interact (I), and push ability (Space).
+     * Handles a key: W/A/S/D move, I interacts and Space pushes, which the game session
+     * plays as a turn. The display keys (: for save/quit, P path, F timing overlay,
+     * M minimap) are handled here.
      * 
-     * @return true if player actually moved, false otherwise
+     * @return the turn to play, or null if the key takes no turn
      */
-    private static boolean handleInput(TETile[][] world, Player player, Chaser chaser) {
-        if (!StdDraw.hasNextKeyTyped()) {
-            return false;
-        }
-
-        char c = Character.toUpperCase(StdDraw.nextKeyTyped());
+    private static GameSession.Input handleKey(TETile[][] world, Chaser chaser, char c) {
         switch (c) {
-            case 'W':
-                return movePlayer(player, Direction.UP, world);
-            case 'A':
-                return movePlayer(player, Direction.LEFT, world);
-            case 'S':
-                return movePlayer(player, Direction.DOWN, world);
-            case 'D':
-                return movePlayer(player, Direction.RIGHT, world);
             case ':':
                 // Set flag to show quit message and wait for Q
                 waitingForQuit = true;
-                return false;
-            case 'Q':
-                // In world mode, Q alone does nothing
-                return false;
+                return null;
             case 'P':
                 // Toggle path display
                 if (chaser != null) {
                     chaser.showPath = !chaser.showPath;
                 }
-                return false;
-            case 'I':
-                // Interact with tiles (open treasure, unlock doors, etc.)
-                interact(player, world);
-                return false;
-            case ' ':
-                // Push ability (밀쳐내기) - push chaser away
-                if (chaser != null) {
-                    pushChaser(chaser, player, world);
-                }
-                return false;
+                return null;
+            case 'F':
+                // Toggle frame timing overlay
+                toggleDebugOverlay(world);
+                return null;
+            case 'M':
+                // Toggle minimap
+                toggleMinimap(world);
+                return null;
             default:
-                return false;
+                // Turn keys; in world mode, Q alone does nothing
+                return GameSession.Input.forKey(c);
         }
     }
 
     /**
-     * Moves the player in the specified direction if the target tile is walkable.
-     * Only redraws the affected tiles without re-rendering the entire world.
-     * 
-     * @param player the player to move
-     * @param dir the direction to move
-     * @param world the world tile map
-     * @return true if player actually moved, false otherwise
+     * Redraws the tiles changed by the last step, keeps the player centered when the
+     * world is bigger than the window and shows the result.
      */
-    private static boolean movePlayer(Player player, Direction dir, TETile[][] world) {
-        player.facing = dir;
-
-        int nx = player.pos.x + dir.dx;
-        int ny = player.pos.y + dir.dy;
-
-        // Check bounds
-        if (nx < 0 || nx >= world.length || ny < 0 || ny >= world[0].length) {
-            return false;
+    private static void drawChanges(GameSession session, boolean playerMoved) {
+        if (fog != null) {
+            drawFogChanges(session, playerMoved);
+            return;
         }
-
-        // Check if target tile is walkable (matches WorldGenerator.isWalkableTile
-        // logic)
-        if (isWalkableTile(world[nx][ny])) {
-            // Reset font to tile rendering font before redrawing tiles
-            // (HUD may have changed the font)
-            renderer.resetFont();
-            
-            // Save previous position before moving (for chaser to track)
-            player.previousPos = new java.awt.Point(player.pos.x, player.pos.y);
-            
-            // Restore old location with the tile that was under the player
-            world[player.pos.x][player.pos.y] = player.tileUnderPlayer;
-            world[player.pos.x][player.pos.y].draw(player.pos.x, player.pos.y);
-
-            // Save the new tile that will be under the player
-            player.tileUnderPlayer = world[nx][ny];
-
-            // Move player
-            player.pos = new java.awt.Point(nx, ny);
-
-            // Place avatar tile and redraw
-            world[nx][ny] = Tileset.AVATAR;
-            world[nx][ny].draw(nx, ny);
-
-            // Show the updated tiles
-            StdDraw.show();
-            return true; // Player actually moved
+        if (session.changedCount() == 0) {
+            return;
         }
-        return false; // Player did not move
-    }
-
-    /**
-     * Moves the chaser one step towards the player using BFS pathfinding.
-     * The chaser tracks the player's previous position (before last move) to avoid
-     * immediately catching up to the player's new position.
-     * Note: The path for display is calculated separately in runGameLoop using current position.
-     * 
-     * @param chaser the chaser to move
-     * @param player the target player
-     * @param world the world tile map
-     */
-    private static void moveChaser(Chaser chaser, Player player, TETile[][] world) {
-        // Find path from chaser to player's previous position (before last move)
-        // This prevents chaser from immediately catching up to player's new position
-        java.util.List<java.awt.Point> path = Pathfinder.findPath(chaser.pos, player.previousPos, world);
-        
-        // If path exists and has at least one step, move chaser
-        if (!path.isEmpty()) {
-            java.awt.Point nextPos = path.get(0);
-            
-            // Check bounds
-            if (nextPos.x >= 0 && nextPos.x < world.length && 
-                nextPos.y >= 0 && nextPos.y < world[0].length) {
-                
-                // Check if target is walkable or passable
-                // Pathfinder allows CHASER and AVATAR to be traversed, so we allow them too
-                TETile nextTile = world[nextPos.x][nextPos.y];
-                if (isWalkableTile(nextTile) || 
-                    nextTile.equals(Tileset.AVATAR) ||
-                    nextTile.equals(Tileset.CHASER)) {
-                    
-                    // Reset font before drawing
-                    renderer.resetFont();
-                    
-                    // Save previous position before moving (for collision detection)
-                    chaser.previousPos = new java.awt.Point(chaser.pos.x, chaser.pos.y);
-                    
-                    // Restore old location with the tile that was under the chaser
-                    world[chaser.pos.x][chaser.pos.y] = chaser.tileUnderChaser;
-                    world[chaser.pos.x][chaser.pos.y].draw(chaser.pos.x, chaser.pos.y);
-                    
-                    // Save the new tile that will be under the chaser
-                    chaser.tileUnderChaser = world[nextPos.x][nextPos.y];
-                    
-                    // Move chaser
-                    chaser.pos = nextPos;
-                    
-                    // Place chaser tile (only if not on player)
-                    if (!chaser.pos.equals(player.pos)) {
-                        world[chaser.pos.x][chaser.pos.y] = Tileset.CHASER;
-                        world[chaser.pos.x][chaser.pos.y].draw(chaser.pos.x, chaser.pos.y);
-                    }
-                    
-                    // Show the updated tiles
-                    StdDraw.show();
-                    
-                    // Update path after moving (for next display)
-                    chaser.path = Pathfinder.findPath(chaser.pos, player.pos, world);
-                }
-            }
+        // HUD may have changed the font
+        renderer.resetFont();
+        for (int i = 0; i < session.changedCount(); i++) {
+            drawTile(session.world, session.changedX(i), session.changedY(i));
         }
+        followPlayer(session, playerMoved);
+        present();
     }
-    
+
     /**
-     * Renders the chaser's path as small yellow dots on top of tiles (if path display is enabled).
-     * Clears previous path by redrawing tiles before drawing new path.
+     * Fog-of-war version of drawChanges: redraws the visible tiles the step changed
+     * and the tiles that came into or went out of sight.
      */
-    private static void renderChaserAndPath(Chaser chaser, TETile[][] world) {
-        // Clear previous path by redrawing tiles
-        if (chaser.previousPath != null && !chaser.previousPath.isEmpty()) {
-            renderer.resetFont();
-            for (java.awt.Point p : chaser.previousPath) {
-                // Redraw the tile to clear the path dot
-                if (p.x >= 0 && p.x < world.length && 
-                    p.y >= 0 && p.y < world[0].length &&
-                    !p.equals(chaser.pos)) {
-                    world[p.x][p.y].draw(p.x, p.y);
-                }
-            }
-        }
-        
-        // Draw new path if path display is enabled
-        if (chaser.showPath && chaser.path != null && !chaser.path.isEmpty()) {
-            StdDraw.setPenColor(new java.awt.Color(255, 0, 0, 200)); // Red color
-            
-            for (java.awt.Point p : chaser.path) {
-                // Don't draw path on chaser's current position or player position
-                if (!p.equals(chaser.pos) && 
-                    p.x >= 0 && p.x < world.length &&
-                    p.y >= 0 && p.y < world[0].length &&
-                    (world[p.x][p.y] == null || !world[p.x][p.y].equals(Tileset.AVATAR))) {
-                    double centerX = p.x + 0.5;
-                    double centerY = p.y + 0.5;
-                    double dotSize = 0.15;
-                    StdDraw.filledCircle(centerX, centerY, dotSize);
-                }
-            }
+    private static void drawFogChanges(GameSession session, boolean playerMoved) {
+        int n = fog.sync(session);
+        if (n == 0) {
+            return;
         }
-        
-        // Update previous path for next frame
-        if (chaser.path != null) {
-            chaser.previousPath = new java.util.ArrayList<>(chaser.path);
-        } else {
-            chaser.previousPath = null;
+        renderer.resetFont();
+        for (int i = 0; i < n; i++) {
+            drawTile(fog.view(), fog.redrawX(i), fog.redrawY(i));
         }
-        
-        StdDraw.show();
+        followPlayer(session, playerMoved);
+        present();
     }
-    
+
     /**
-     * Checks if a tile is walkable.
-     * Walkable tiles are all tiles except unwalkable obstacles.
-     * Must match WorldGenerator.isWalkableTile and Pathfinder.isWalkableTile for consistency.
+     * Keeps the player centered when the world is bigger than the window.
      */
-    private static boolean isWalkableTile(TETile tile) {
-        if (tile == null) {
-            return false;
+    private static void followPlayer(GameSession session, boolean playerMoved) {
+        if (playerMoved && renderer.follow(shown(session.world), session.player.pos.x, session.player.pos.y)) {
+            if (pathOverlay != null) {
+                pathOverlay.forgetAll();
+            }
+            minimap.invalidate();
         }
-        return !tile.equals(Tileset.AVATAR)
-                && !tile.equals(Tileset.WALL)
-                && !tile.equals(Tileset.NOTHING)
-                && !tile.equals(Tileset.WATER)
-                && !tile.equals(Tileset.LOCKED_DOOR)
-                && !tile.equals(Tileset.MOUNTAIN)
-                && !tile.equals(Tileset.BUSH)
-                && !tile.equals(Tileset.TREE)
-                && !tile.equals(Tileset.PORTAL)
-                && !tile.equals(Tileset.TREASURE)
-                && !tile.equals(Tileset.OPENED_CHEST)
-                && !tile.equals(Tileset.CRATE)
-                && !tile.equals(Tileset.BOOKSHELF)
-                && !tile.equals(Tileset.SNOWMAN)
-                && !tile.equals(Tileset.STATUE);
     }
-    
+
     /**
-     * Interacts with tiles in front of the player.
-     * Opens treasure chests (increases push ability count) and unlocks doors.
+     * The chasers to mark on the minimap: all of them, or in fog-of-war mode those in
+     * sight.
      */
-    private static void interact(Player player, TETile[][] world) {
-        java.awt.Point front = player.frontTile();
-        
-        // Check bounds
-        if (front.x < 0 || front.x >= world.length || 
-            front.y < 0 || front.y >= world[0].length) {
-            return;
-        }
-        
-        TETile frontTile = world[front.x][front.y];
-        
-        // Open treasure chest
-        if (frontTile.equals(Tileset.TREASURE)) {
-            player.pushAbilityCount++;
-            // Replace treasure with opened chest
-            world[front.x][front.y] = Tileset.OPENED_CHEST;
-            renderer.resetFont();
-            world[front.x][front.y].draw(front.x, front.y);
-            StdDraw.show();
+    private static java.util.List<Chaser> shownChasers(GameSession session) {
+        if (fog == null) {
+            return session.chasers;
         }
-        
-        // Unlock door
-        if (frontTile.equals(Tileset.LOCKED_DOOR)) {
-            world[front.x][front.y] = Tileset.UNLOCKED_DOOR;
-            renderer.resetFont();
-            world[front.x][front.y].draw(front.x, front.y);
-            StdDraw.show();
-        }
-        
-        // Interact with portal (clear game)
-        if (frontTile.equals(Tileset.PORTAL)) {
-            showClearScreen(world.length, world[0].length);
+        visibleChasers.clear();
+        for (Chaser c : session.chasers) {
+            if (fog.isVisible(c.pos.x, c.pos.y)) {
+                visibleChasers.add(c);
+            }
         }
+        return visibleChasers;
     }
     
     /**
-     * Pushes the chaser away from the player (밀쳐내기).
-     * Only works if chaser is within 2 tiles of the player (24 tiles total).
-     * Pushes chaser up to 3 tiles away in the direction from player to chaser.
-     * Stops early if blocked by a wall or unwalkable tile.
+     * Renders the chaser's path as small red dots on top of tiles (if path display is enabled).
+     * Only cells that joined or left the path since the last frame are drawn, and in
+     * fog-of-war mode only cells in sight.
+     * @return true if anything was drawn
      */
-    private static void pushChaser(Chaser chaser, Player player, TETile[][] world) {
-        // Check if player has push ability
-        if (player.pushAbilityCount <= 0) {
-            return;
-        }
-        
-        // Calculate relative position
-        int dx = chaser.pos.x - player.pos.x;
-        int dy = chaser.pos.y - player.pos.y;
-        
-        // Check if chaser is within 2 tiles (Chebyshev distance <= 2)
-        // This includes all 24 tiles around the player in a 5x5 square (excluding center)
-        if (Math.max(Math.abs(dx), Math.abs(dy)) > 2 || (dx == 0 && dy == 0)) {
-            return;
-        }
-        
-        // Calculate push direction (from player to chaser)
-        Direction pushDir = null;
-        if (dx > 0 && dy == 0) {
-            pushDir = Direction.RIGHT;
-        } else if (dx < 0 && dy == 0) {
-            pushDir = Direction.LEFT;
-        } else if (dx == 0 && dy > 0) {
-            pushDir = Direction.UP;
-        } else if (dx == 0 && dy < 0) {
-            pushDir = Direction.DOWN;
-        } else {
-            // Diagonal: use the direction with larger absolute value, or prefer horizontal
-            if (Math.abs(dx) >= Math.abs(dy)) {
-                pushDir = dx > 0 ? Direction.RIGHT : Direction.LEFT;
-            } else {
-                pushDir = dy > 0 ? Direction.UP : Direction.DOWN;
-            }
-        }
-        
-        // Try to push up to 3 tiles, stopping if blocked
-        int pushDistance = 0;
-        
-        for (int i = 1; i <= 3; i++) {
-            int nextX = chaser.pos.x + pushDir.dx * i;
-            int nextY = chaser.pos.y + pushDir.dy * i;
-            
-            // Check bounds
-            if (nextX < 0 || nextX >= world.length || 
-                nextY < 0 || nextY >= world[0].length) {
-                break; // Hit boundary, stop pushing
-            }
-            
-            // Check if target position is walkable
-            TETile nextTile = world[nextX][nextY];
-            if (!isWalkableTile(nextTile) && 
-                !nextTile.equals(Tileset.AVATAR) &&
-                !nextTile.equals(Tileset.CHASER)) {
-                break; // Hit wall or obstacle, stop pushing
-            }
-            
-            pushDistance = i;
-        }
-        
-        // If we couldn't push at least 1 tile, don't use the ability
-        if (pushDistance == 0) {
-            return;
-        }
-        
-        // Calculate final target position
-        int targetX = chaser.pos.x + pushDir.dx * pushDistance;
-        int targetY = chaser.pos.y + pushDir.dy * pushDistance;
-        
-        // Use push ability
-        player.pushAbilityCount--;
-        
-        // Reset font before drawing
-        renderer.resetFont();
-        
-        // Restore old location
-        world[chaser.pos.x][chaser.pos.y] = chaser.tileUnderChaser;
-        world[chaser.pos.x][chaser.pos.y].draw(chaser.pos.x, chaser.pos.y);
-        
-        // Save new tile under chaser
-        chaser.tileUnderChaser = world[targetX][targetY];
-        
-        // Save previous position for collision detection
-        chaser.previousPos = new java.awt.Point(chaser.pos.x, chaser.pos.y);
-        
-        // Move chaser
-        chaser.pos = new java.awt.Point(targetX, targetY);
-        
-        // Place chaser tile
-        if (!chaser.pos.equals(player.pos)) {
-            world[chaser.pos.x][chaser.pos.y] = Tileset.CHASER;
-            world[chaser.pos.x][chaser.pos.y].draw(chaser.pos.x, chaser.pos.y);
-        }
-        
-        // Clear chaser's path (will be recalculated on next move)
-        chaser.path = null;
-        
-        StdDraw.show();
+    private static boolean renderChaserAndPath(Chaser chaser, TETile[][] world) {
+        return pathOverlay.update(chaser.path, chaser.showPath, chaser.pos, shown(world), fog);
     }
 
     /**
-     * Clears and redraws the HUD area, then shows information about
-     * the tile currently under the mouse cursor (if any).
-     * Also displays push ability icon on the right side.
+     * Works out what the HUD should show: the tile under the mouse cursor (if any),
+     * an interact or push prompt, the push ability count and the quit hint. The HUD
+     * only redraws when one of these changed.
+     * @return true if the HUD was drawn
      */
-    private static void updateHUDWithMouse(TETile[][] world, int worldWidth, int worldHeight, Player player, Chaser chaser) {
-        // Redraw HUD background
-        clearHUDArea(worldWidth, worldHeight);
-
-        // If waiting for quit confirmation, show quit message
-        if (waitingForQuit) {
-            StdDraw.setPenColor(StdDraw.YELLOW);
-            StdDraw.setFont(HUD_FONT);
-            StdDraw.text(worldWidth / 2.0, worldHeight - 0.9, "Press Q to quit");
-            StdDraw.show();
-            return;
-        }
+    private static boolean updateHUDWithMouse(Hud hud, GameSession session, int screenHeight) {
+        TETile[][] world = shown(session.world);
+        Player player = session.player;
 
-        double mouseX = StdDraw.mouseX();
-        double mouseY = StdDraw.mouseY();
+        // NaN when there is no mouse, which fails the bounds check below
+        double mouseX = input.mouseX();
+        double mouseY = input.mouseY();
 
-        int tileX = (int) Math.floor(mouseX);
-        int tileY = (int) Math.floor(mouseY);
+        int tileX = renderer.toWorldX(mouseX);
+        int tileY = renderer.toWorldY(mouseY);
 
         // Only show info if mouse is within world bounds and not in HUD area
-        if (tileX >= 0 && tileX < worldWidth && tileY >= 0 && tileY < worldHeight - 2) {
-            TETile tile = world[tileX][tileY];
-            if (tile != null) {
-                String name = getFriendlyTileName(tile);
-                String tag = getTileTag(tile);
-
-                StdDraw.setPenColor(StdDraw.WHITE);
-
-                // Main tile name, slightly above center of HUD bar
-                StdDraw.setFont(HUD_FONT);
-                StdDraw.text(worldWidth / 2.0, worldHeight - 0.9, name);
-
-                // Smaller tag text just below the name
-                if (!tag.isEmpty()) {
-                    StdDraw.setFont(HUD_TAG_FONT);
-                    StdDraw.text(worldWidth / 2.0, worldHeight - 1.5, "(" + tag + ")");
-                }
-            }
+        TETile hovered = null;
+        if (mouseY < screenHeight - HUD_HEIGHT
+                && tileX >= 0 && tileX < world.length && tileY >= 0 && tileY < world[0].length - HUD_HEIGHT) {
+            // Tiles remembered under the fog are named like the tiles they show
+            hovered = FogOfWar.undimmed(world[tileX][tileY]);
         }
         
         // Check if player can interact with treasure chest or portal (front tile is TREASURE or PORTAL)
-        java.awt.Point frontTile = player.frontTile();
-        boolean showInteractMessage = false;
-        if (frontTile.x >= 0 && frontTile.x < worldWidth && 
-            frontTile.y >= 0 && frontTile.y < worldHeight - 2) {
-            TETile frontTileType = world[frontTile.x][frontTile.y];
+        Hud.Prompt prompt = Hud.Prompt.NONE;
+        int frontX = player.pos.x + player.facing.dx;
+        int frontY = player.pos.y + player.facing.dy;
+        if (frontX >= 0 && frontX < world.length && 
+            frontY >= 0 && frontY < world[0].length - HUD_HEIGHT) {
+            TETile frontTileType = world[frontX][frontY];
             if (frontTileType != null && 
                 (frontTileType.equals(Tileset.TREASURE) || frontTileType.equals(Tileset.PORTAL))) {
-                // Display "Press I to Interact" on the left side of HUD
-                StdDraw.setPenColor(StdDraw.CYAN);
-                StdDraw.setFont(HUD_FONT);
-                StdDraw.textLeft(2.0, worldHeight - 0.9, "Press I to Interact");
-                showInteractMessage = true;
+                prompt = Hud.Prompt.INTERACT;
             }
         }
         
         // Check if player can push chaser (chaser within 2 tiles and has push ability)
-        if (!showInteractMessage && chaser != null && player.pushAbilityCount > 0) {
-            int dx = chaser.pos.x - player.pos.x;
-            int dy = chaser.pos.y - player.pos.y;
-            
-            // Check if chaser is within 2 tiles (Chebyshev distance <= 2)
-            if (Math.max(Math.abs(dx), Math.abs(dy)) <= 2 && (dx != 0 || dy != 0)) {
-                // Display "Press Space to Push" on the left side of HUD
-                StdDraw.setPenColor(StdDraw.CYAN);
-                StdDraw.setFont(HUD_FONT);
-                StdDraw.textLeft(2.0, worldHeight - 0.9, "Press Space to Push");
-            }
+        if (prompt == Hud.Prompt.NONE && session.canPush()) {
+            prompt = Hud.Prompt.PUSH;
         }
-        
-        // Draw push ability icon on the right side of HUD
-        drawPushAbilityIcon(worldWidth, worldHeight, player);
 
-        StdDraw.show();
+        return hud.update(hovered, prompt, player.pushAbilityCount, waitingForQuit);
     }
     
     /**
@@ -1028,25 +1049,19 @@ public class World {
      */
     private static void showClearScreen(int worldWidth, int worldHeight) {
         // Clear screen
-        StdDraw.clear(StdDraw.BLACK);
+        renderer.clear(Color.BLACK);
         
         // Draw "CLEAR" or "GAME COMPLETE" message
-        StdDraw.setPenColor(StdDraw.GREEN);
-        StdDraw.setFont(new java.awt.Font("Monaco", java.awt.Font.BOLD, 60));
-        StdDraw.text(worldWidth / 2.0, worldHeight / 2.0 + 1, "CLEAR!");
+        renderer.text(worldWidth / 2.0, worldHeight / 2.0 + 1, "CLEAR!",
+                new Font("Monaco", Font.BOLD, 60), Color.GREEN);
         
-        StdDraw.setPenColor(StdDraw.WHITE);
-        StdDraw.setFont(new java.awt.Font("Monaco", java.awt.Font.PLAIN, 24));
-        StdDraw.text(worldWidth / 2.0, worldHeight / 2.0 - 1, "Game Complete");
+        renderer.text(worldWidth / 2.0, worldHeight / 2.0 - 1, "Game Complete",
+                new Font("Monaco", Font.PLAIN, 24), Color.WHITE);
         
-        StdDraw.show();
+        renderer.show();
         
         // Wait a bit before exiting
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            // Ignore
-        }
+        pause(3000);
         
         System.exit(0);
     }
@@ -1056,162 +1071,127 @@ public class World {
      */
     private static void showGameOver(int worldWidth, int worldHeight) {
         // Clear screen
-        StdDraw.clear(StdDraw.BLACK);
+        renderer.clear(Color.BLACK);
         
         // Draw Game Over text
-        StdDraw.setPenColor(StdDraw.RED);
-        StdDraw.setFont(TITLE_FONT);
-        StdDraw.text(worldWidth / 2.0, worldHeight / 2.0 + 5, "GAME OVER");
+        renderer.text(worldWidth / 2.0, worldHeight / 2.0 + 5, "GAME OVER", TITLE_FONT, Color.RED);
         
         // Draw subtitle
-        StdDraw.setPenColor(StdDraw.WHITE);
-        StdDraw.setFont(MENU_FONT);
-        StdDraw.text(worldWidth / 2.0, worldHeight / 2.0 - 5, "Chaser caught you!");
+        renderer.text(worldWidth / 2.0, worldHeight / 2.0 - 5, "Chaser caught you!", MENU_FONT, Color.WHITE);
         
-        StdDraw.show();
+        renderer.show();
         
         // Wait a bit before exiting
-        StdDraw.pause(2000);
+        pause(2000);
     }
-    
+
     /**
-     * Draws the push ability icon and count on the right side of the HUD.
+     * Sleeps for the given number of milliseconds. Used instead of StdDraw.pause so the
+     * game loop also runs without a window.
      */
-    private static void drawPushAbilityIcon(int worldWidth, int worldHeight, Player player) {
-        // Draw icon on the right side of HUD
-        double iconX = worldWidth - 2.0;
-        double iconY = worldHeight - 0.9;
-        
-        // Draw push ability icon
-        StdDraw.setPenColor(StdDraw.CYAN);
-        StdDraw.setFont(HUD_FONT);
-        StdDraw.text(iconX, iconY, "⚡"); // Lightning bolt icon for push ability
-        
-        // Draw count below the icon
-        StdDraw.setFont(HUD_TAG_FONT);
-        StdDraw.text(iconX, iconY - 0.6, String.valueOf(player.pushAbilityCount));
+    private static void pause(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private static void clearHUDArea(int worldWidth, int worldHeight) {
-        // HUD bar exactly matches the non-playable HUD area (height = 2 tiles)
-        StdDraw.setPenColor(52, 61, 82);
-        StdDraw.filledRectangle(worldWidth / 2.0, worldHeight - 1,
-                worldWidth / 2.0, 1);
+    /**
+     * Shows what was drawn so far. Counted as render time wherever it happens in a tick,
+     * and completes the key-to-present latency of the key being handled.
+     */
+    private static void present() {
+        LoopMetrics.Phase previous = metrics.phase(LoopMetrics.Phase.RENDER);
+        renderer.show();
+        metrics.presented();
+        metrics.phase(previous);
     }
 
     /**
-     * Converts a TETile into a short, user-friendly name for the HUD.
+     * Redraws one world tile, which also wipes any path dot on it and updates the
+     * minimap.
      */
-    private static String getFriendlyTileName(TETile tile) {
-        if (tile == null) {
-            return "";
+    private static void drawTile(TETile[][] world, int x, int y) {
+        renderer.drawTile(world, x, y);
+        if (pathOverlay != null) {
+            pathOverlay.forget(x, y);
         }
-
-        // Prefer matching against known tiles so we can control capitalization.
-        if (tile.equals(Tileset.FLOOR)) {
-            return "Floor";
-        } else if (tile.equals(Tileset.GRASS)) {
-            return "Grass";
-        } else if (tile.equals(Tileset.FLOWER)) {
-            return "Flower";
-        } else if (tile.equals(Tileset.SAND)) {
-            return "Sand";
-        } else if (tile.equals(Tileset.SNOW)) {
-            return "Snow";
-        } else if (tile.equals(Tileset.WALL)) {
-            return "Wall";
-        } else if (tile.equals(Tileset.NOTHING)) {
-            return "Nothing";
-        } else if (tile.equals(Tileset.WATER)) {
-            return "Water";
-        } else if (tile.equals(Tileset.MOUNTAIN)) {
-            return "Mountain";
-        } else if (tile.equals(Tileset.TREE)) {
-            return "Tree";
-        } else if (tile.equals(Tileset.LOCKED_DOOR)) {
-            return "Locked Door";
-        } else if (tile.equals(Tileset.UNLOCKED_DOOR)) {
-            return "Unlocked Door";
-        } else if (tile.equals(Tileset.CELL)) {
-            return "Cell";
-        } else if (tile.equals(Tileset.BUSH)) {
-            return "Bush";
-        } else if (tile.equals(Tileset.STATUE)) {
-            return "Statue";
-        } else if (tile.equals(Tileset.CRATE)) {
-            return "Crate";
-        } else if (tile.equals(Tileset.BOOKSHELF)) {
-            return "Bookshelf";
-        } else if (tile.equals(Tileset.SNOWMAN)) {
-            return "Snowman";
-        } else if (tile.equals(Tileset.TREASURE)) {
-            return "Treasure";
-        } else if (tile.equals(Tileset.OPENED_CHEST)) {
-            return "Opened Chest";
-        } else if (tile.equals(Tileset.PORTAL)) {
-            return "Portal";
-        } else if (tile.equals(Tileset.LAVA)) {
-            return "Lava";
-        } else if (tile.equals(Tileset.SPIKE)) {
-            return "Spike";
-        } else if (tile.equals(Tileset.AVATAR)) {
-            return "Player";
+        minimap.tileChanged(world, x, y);
+        if (renderer.isOnScreen(x, y) && minimap.covers(renderer.toScreenX(x), renderer.toScreenY(y))) {
+            minimap.invalidate();
         }
+    }
 
-        // Fallback: use description() with first letter capitalized
-        String desc = tile.description();
-        if (desc == null || desc.isEmpty()) {
-            return "";
-        }
-        return desc.substring(0, 1).toUpperCase() + desc.substring(1);
+    /**
+     * Pathfinder.findPath, counted as pathfinding time wherever it happens in a tick. The
+     * chasers' own searches are timed through the session's planning listener.
+     */
+    private static java.util.List<java.awt.Point> findPath(java.awt.Point from, java.awt.Point to,
+                                                           TETile[][] world, TerrainCosts costs) {
+        LoopMetrics.Phase previous = metrics.phase(LoopMetrics.Phase.PATHFINDING);
+        java.util.List<java.awt.Point> path = Pathfinder.findPath(from, to, world, costs);
+        metrics.phase(previous);
+        return path;
     }
 
     /**
-     * Returns a short category tag for the given tile, e.g. "dangerous",
-     * "interactable",
-     * "unwalkable", etc. Used for the tiny HUD text under the tile name.
-     * 
-     * Categories follow WorldGenerator's logic for isWalkableTile/isBlockingTile,
-     * tagging as "dangerous", "interactable", or "unwalkable".
+     * Turns the frame timing overlay on or off. Turning it off redraws the tiles it
+     * covered.
      */
-    private static String getTileTag(TETile tile) {
-        if (tile == null) {
-            return "";
+    private static void toggleDebugOverlay(TETile[][] world) {
+        showDebugOverlay = !showDebugOverlay;
+        if (showDebugOverlay) {
+            return;
         }
+        int width = Math.min(OVERLAY_WIDTH, renderer.width());
+        int top = renderer.height() - HUD_HEIGHT;
+        int rows = metrics.overlayLines(scheduler).size() + 1;
+        redrawScreenArea(world, 0, top - rows, width, rows);
+    }
 
-        // Dangerous tiles (highest priority)
-        if (tile.equals(Tileset.LAVA) || tile.equals(Tileset.SPIKE)) {
-            return "dangerous";
+    /**
+     * Turns the minimap on or off. Turning it off redraws the tiles it covered.
+     */
+    private static void toggleMinimap(TETile[][] world) {
+        showMinimap = !showMinimap;
+        if (showMinimap) {
+            minimap.invalidate();
+            return;
         }
+        int[] b = minimap.bounds();
+        redrawScreenArea(world, b[0], b[1], b[2], b[3]);
+    }
 
-        // Interactable tiles
-        if (tile.equals(Tileset.TREASURE)
-                || tile.equals(Tileset.PORTAL)
-                || tile.equals(Tileset.LOCKED_DOOR)
-                || tile.equals(Tileset.UNLOCKED_DOOR)) {
-            return "interactable";
+    /**
+     * Redraws the world tiles under a rectangle of the canvas, e.g. after an overlay
+     * was hidden.
+     */
+    private static void redrawScreenArea(TETile[][] world, int sx0, int sy0, int w, int h) {
+        renderer.resetFont();
+        for (int sx = Math.max(0, sx0); sx < sx0 + w; sx++) {
+            for (int sy = Math.max(0, sy0); sy < sy0 + h; sy++) {
+                int x = renderer.toWorldX(sx);
+                int y = renderer.toWorldY(sy);
+                if (x >= 0 && x < world.length && y >= 0 && y < world[0].length) {
+                    drawTile(world, x, y);
+                }
+            }
         }
+    }
 
-        // Unwalkable tiles (matches WorldGenerator.isBlockingTile)
-        if (tile.equals(Tileset.AVATAR)
-                || tile.equals(Tileset.WALL)
-                || tile.equals(Tileset.WATER)
-                || tile.equals(Tileset.LOCKED_DOOR)
-                || tile.equals(Tileset.UNLOCKED_DOOR)
-                || tile.equals(Tileset.MOUNTAIN)
-                || tile.equals(Tileset.TREE)
-                || tile.equals(Tileset.OPENED_CHEST)
-                || tile.equals(Tileset.BUSH)
-                || tile.equals(Tileset.STATUE)
-                || tile.equals(Tileset.CRATE)
-                || tile.equals(Tileset.BOOKSHELF)
-                || tile.equals(Tileset.SNOWMAN)
-                || tile.equals(Tileset.PORTAL)
-                || tile.equals(Tileset.TREASURE)) {
-            return "unwalkable";
+    /**
+     * Draws tick rate and per-phase timings in the top-left corner of the world view,
+     * just below the HUD bar.
+     */
+    private static void drawDebugOverlay(int screenHeight) {
+        java.util.List<String> lines = metrics.overlayLines(scheduler);
+        int width = Math.min(OVERLAY_WIDTH, renderer.width());
+        int top = screenHeight - HUD_HEIGHT;
+        int rows = lines.size() + 1;
+        renderer.filledRectangle(width / 2.0, top - rows / 2.0, width / 2.0, rows / 2.0, OVERLAY_COLOR);
+        for (int k = 0; k < lines.size(); k++) {
+            renderer.textLeft(0.5, top - 1.0 - k, lines.get(k), HUD_TAG_FONT, Color.GREEN);
         }
-
-        return "";
     }
-
 }
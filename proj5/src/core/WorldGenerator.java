@@ -21,6 +21,13 @@ import java.util.*;
  */
 public class WorldGenerator {
 
+    /**
+     * Version of the generation rules. Bump it whenever a seed and size would generate a
+     * different world, so saves that generate their world again (see SaveLoad) are not
+     * loaded onto the wrong map.
+     */
+    public static final int VERSION = 1;
+
     // Number of tiles reserved at the top for HUD (must match actual HUD drawing height)
     private static final int HUD_HEIGHT = 2;
 
@@ -40,14 +47,20 @@ public class WorldGenerator {
     private final Set<Point> connectedDoors = new HashSet<>();
     
     /**
-     * Chaser position in the world.
+     * Number of chasers to place.
+     */
+    private final int chaserCount;
+
+    /**
+     * Position of the first chaser, which the portal is placed against.
      */
     private Point chaserPosition = null;
-    
+
     /**
-     * Original tile that was under the chaser position (before placing CHASER).
+     * Chaser positions in the world, and the original tiles under them (before placing CHASER).
      */
-    private TETile chaserTileUnder = null;
+    private final List<Point> chaserPositions = new ArrayList<>();
+    private final List<TETile> chaserTilesUnder = new ArrayList<>();
 
     // Tunable parameters
     private static final int MIN_CORRIDOR_LEN = 3;
@@ -58,10 +71,22 @@ public class WorldGenerator {
 
 
     public WorldGenerator(int width, int height, long seed) {
+        this(width, height, seed, 1);
+    }
+
+    /**
+     * @param chasers number of chasers to place, at least 1; the first decides where the
+     *                portal goes, so worlds with more chasers only differ in the extra ones
+     */
+    public WorldGenerator(int width, int height, long seed, int chasers) {
+        if (chasers < 1) {
+            throw new IllegalArgumentException("A world needs at least one chaser");
+        }
         this.width = width;
         this.height = height;
         this.world = new TETile[width][height];
         this.rand = new Random(seed);
+        this.chaserCount = chasers;
         fillWithNothing();
     }
 
@@ -97,6 +122,9 @@ public class WorldGenerator {
         // Place portal in the farthest room from the starting room
         placePortal(avatarX, avatarY);
 
+        // Extra chasers come last so the rest of the world doesn't depend on their number
+        placeExtraChasers(avatarX, avatarY);
+
         return world;
     }
     
@@ -105,51 +133,78 @@ public class WorldGenerator {
      * Ensures minimum distance from player to prevent immediate capture.
      */
     private void placeChaser(int avatarX, int avatarY) {
-        // Minimum distance from player (Manhattan distance)
+        List<Point> walkablePositions = chaserCandidates(avatarX, avatarY);
+
+        // If we have walkable positions, randomly choose one
+        if (!walkablePositions.isEmpty()) {
+            int idx = RandomUtils.uniform(rand, walkablePositions.size());
+            chaserPosition = walkablePositions.get(idx);
+            addChaser(chaserPosition);
+        }
+    }
+
+    /**
+     * Places the chasers after the first at random distinct positions, with the same
+     * distance rule. Stops early if the world runs out of positions.
+     */
+    private void placeExtraChasers(int avatarX, int avatarY) {
+        if (chaserCount == 1 || chaserPosition == null) {
+            return;
+        }
+        List<Point> walkablePositions = chaserCandidates(avatarX, avatarY);
+        for (int i = 1; i < chaserCount && !walkablePositions.isEmpty(); i++) {
+            int idx = RandomUtils.uniform(rand, walkablePositions.size());
+            // Swap-remove so each position is used once
+            Point p = walkablePositions.get(idx);
+            walkablePositions.set(idx, walkablePositions.get(walkablePositions.size() - 1));
+            walkablePositions.remove(walkablePositions.size() - 1);
+            addChaser(p);
+        }
+    }
+
+    /**
+     * Collects all walkable floor positions, not on the avatar or a chaser, that are at
+     * least a minimum Manhattan distance from the player to prevent immediate capture.
+     */
+    private List<Point> chaserCandidates(int avatarX, int avatarY) {
         final int MIN_DISTANCE = 10;
-        
-        // Collect all walkable floor positions that are at least MIN_DISTANCE away
+
         List<Point> walkablePositions = new ArrayList<>();
         for (int x = 1; x < width - 1; x++) {
             for (int y = 1; y < height - HUD_HEIGHT; y++) {
-                if (isWalkableTile(world[x][y])) {
-                    Point p = new Point(x, y);
+                if (isWalkableTile(world[x][y]) && world[x][y] != Tileset.CHASER) {
                     // Don't place chaser on avatar position
-                    if (p.x != avatarX || p.y != avatarY) {
-                        // Calculate Manhattan distance from player
-                        int distance = Math.abs(p.x - avatarX) + Math.abs(p.y - avatarY);
-                        // Only add if distance is at least MIN_DISTANCE
+                    if (x != avatarX || y != avatarY) {
+                        int distance = Math.abs(x - avatarX) + Math.abs(y - avatarY);
                         if (distance >= MIN_DISTANCE) {
-                            walkablePositions.add(p);
+                            walkablePositions.add(new Point(x, y));
                         }
                     }
                 }
             }
         }
-        
-        // If we have walkable positions, randomly choose one
-        if (!walkablePositions.isEmpty()) {
-            int idx = RandomUtils.uniform(rand, walkablePositions.size());
-            chaserPosition = walkablePositions.get(idx);
-            // Save the original tile before placing CHASER
-            chaserTileUnder = world[chaserPosition.x][chaserPosition.y];
-            // Place chaser tile in the world
-            world[chaserPosition.x][chaserPosition.y] = Tileset.CHASER;
-        }
+        return walkablePositions;
     }
-    
+
+    private void addChaser(Point p) {
+        chaserPositions.add(p);
+        // Save the original tile before placing CHASER
+        chaserTilesUnder.add(world[p.x][p.y]);
+        world[p.x][p.y] = Tileset.CHASER;
+    }
+
     /**
-     * Returns the chaser position, or null if no chaser was placed.
+     * Returns the chaser positions, the first one first; empty if none was placed.
      */
-    public Point getChaserPosition() {
-        return chaserPosition;
+    public List<Point> getChaserPositions() {
+        return chaserPositions;
     }
-    
+
     /**
-     * Returns the original tile that was under the chaser position, or null if no chaser was placed.
+     * Returns the original tiles under the chasers, in the order of getChaserPositions().
      */
-    public TETile getChaserTileUnder() {
-        return chaserTileUnder;
+    public List<TETile> getChaserTilesUnder() {
+        return chaserTilesUnder;
     }
     
     /**
@@ -192,34 +247,22 @@ public class WorldGenerator {
         Point playerPos = new Point(startX, startY);
         Point chaserPos = chaserPosition;
         
-        // Find valid candidates where Chaser's path distance <= Player's path distance
+        // Find valid candidates where Chaser's path distance <= Player's path distance.
+        // One BFS from each of them gives the length of every shortest path Pathfinder
+        // would find, instead of two searches per candidate.
         List<Point> validCandidates = new ArrayList<>();
         Map<Point, Integer> playerDistances = new HashMap<>();
         Map<Point, Integer> chaserDistances = new HashMap<>();
+        DistanceFields fields = new DistanceFields(width, height, 2);
+        int[] playerField = fields.field(world, 0, playerPos.x, playerPos.y);
+        int[] chaserField = fields.field(world, 1, chaserPos.x, chaserPos.y);
         
         for (Point candidate : allCandidates) {
-            // Calculate path distances
-            List<Point> playerPath = Pathfinder.findPath(playerPos, candidate, world);
-            List<Point> chaserPath = Pathfinder.findPath(chaserPos, candidate, world);
+            int playerDist = playerField[candidate.x * height + candidate.y];
+            int chaserDist = chaserField[candidate.x * height + candidate.y];
             
-            int playerDist = playerPath.size();
-            int chaserDist = chaserPath.size();
-            
-            // If player is at candidate, distance is 0
-            if (playerPos.equals(candidate)) {
-                playerDist = 0;
-            }
-            // If chaser is at candidate, distance is 0
-            if (chaserPos.equals(candidate)) {
-                chaserDist = 0;
-            }
-            
-            // If no path exists for player (and player is not at candidate), skip
-            if (playerDist == 0 && !playerPos.equals(candidate)) {
-                continue;
-            }
-            // If no path exists for chaser (and chaser is not at candidate), skip
-            if (chaserDist == 0 && !chaserPos.equals(candidate)) {
+            // If no path exists for player or chaser, skip
+            if (playerDist == DistanceFields.UNREACHED || chaserDist == DistanceFields.UNREACHED) {
                 continue;
             }
             
@@ -254,11 +297,10 @@ public class WorldGenerator {
                     continue;
                 }
                 
-                List<Point> playerPath = Pathfinder.findPath(playerPos, candidate, world);
-                int dist = playerPath.size();
+                int dist = playerField[candidate.x * height + candidate.y];
                 
                 // Only consider candidates with valid paths
-                if (dist > 0 && dist > maxPlayerDist) {
+                if (dist != DistanceFields.UNREACHED && dist > maxPlayerDist) {
                     maxPlayerDist = dist;
                     portalPos = candidate;
                 }
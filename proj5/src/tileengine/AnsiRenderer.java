@@ -0,0 +1,500 @@
+package tileengine;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Renders tiles into a terminal with ANSI escape codes, for running the game on machines
+ * without a display. Each tile becomes one character cell drawn with TETile.character()
+ * and the tile's colors as 24-bit colors.
+ *
+ * Drawing only updates an in-memory cell buffer. show() compares it with what the
+ * terminal currently shows and writes just the cells that changed, each preceded by a
+ * cursor move when it does not directly follow the previous one. Fonts are ignored,
+ * circles become a dot in the cell under their center and images are sampled once per
+ * cell.
+ *
+ * show() also keeps frame and byte counters, so long unattended runs can report their
+ * throughput.
+ */
+public class AnsiRenderer implements Renderer {
+    private static final String ESC = "\u001b[";
+    private static final char DOT = '•';
+
+    private final OutputStream out;
+    private final StringBuilder frame = new StringBuilder();
+
+    private int width;
+    private int height;
+
+    // Cells to show (back) and cells on the terminal (front), indexed row * width + col
+    // with row 0 at the top. Colors are packed RGB.
+    private char[] backChars;
+    private int[] backFg;
+    private int[] backBg;
+    private char[] frontChars;
+    private int[] frontFg;
+    private int[] frontBg;
+
+    private final Camera camera = new Camera();
+
+    // Picture of the terminal for FrameRecorder, only kept while recording
+    private static final int CELL_WIDTH = 8;
+    private static final int CELL_HEIGHT = 16;
+    private static final Font CELL_FONT = new Font("Monospaced", Font.PLAIN, 13);
+    private FrameRecorder recorder;
+    private BufferedImage raster;
+    private Graphics2D rasterGraphics;
+
+    // Throughput counters
+    private long frames;
+    private long dirtyFrames;
+    private long cellsWritten;
+    private long bytesWritten;
+    private long startNanos;
+    private long windowStartNanos;
+    private long windowFrames;
+    private double windowFps;
+
+    /**
+     * Creates a renderer that writes to standard output.
+     */
+    public AnsiRenderer() {
+        this(new FileOutputStream(FileDescriptor.out));
+    }
+
+    /**
+     * Creates a renderer that writes to the given stream.
+     * @param out where escape sequences are written, e.g. a terminal
+     */
+    public AnsiRenderer(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void initialize(int w, int h) {
+        width = w;
+        height = h;
+        camera.disable();
+        backChars = new char[w * h];
+        backFg = new int[w * h];
+        backBg = new int[w * h];
+        frontChars = new char[w * h];
+        frontFg = new int[w * h];
+        frontBg = new int[w * h];
+        Arrays.fill(backChars, ' ');
+        // Unknown terminal contents: make every front cell differ from any real cell
+        Arrays.fill(frontFg, -1);
+
+        // Clear the terminal and hide the cursor
+        write(ESC + "0m" + ESC + "2J" + ESC + "?25l");
+        if (raster != null) {
+            // The canvas size may have changed; restarted on the next show()
+            rasterGraphics.dispose();
+            rasterGraphics = null;
+            raster = null;
+        }
+        startNanos = System.nanoTime();
+        windowStartNanos = startNanos;
+        windowFrames = 0;
+        windowFps = 0;
+    }
+
+    @Override
+    public void renderFrame(TETile[][] world) {
+        clear(Color.BLACK);
+        drawTiles(world);
+        show();
+    }
+
+    @Override
+    public void drawTiles(TETile[][] world) {
+        boolean cameraEnabled = camera.isEnabled();
+        int startX = cameraEnabled ? camera.x() : 0;
+        int startY = cameraEnabled ? camera.y() : 0;
+        int maxX = Math.min(cameraEnabled ? camera.viewWidth() : width, world.length - startX);
+        int maxY = Math.min(cameraEnabled ? camera.viewHeight() : height, world[0].length - startY);
+        for (int x = startX; x < startX + maxX; x += 1) {
+            for (int y = startY; y < startY + maxY; y += 1) {
+                if (world[x][y] == null) {
+                    throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
+                            + " is null.");
+                }
+                drawTile(world, x, y);
+            }
+        }
+    }
+
+    @Override
+    public void drawTile(TETile[][] world, int x, int y) {
+        if (!isOnScreen(x, y)) {
+            return;
+        }
+        TETile tile = world[x][y];
+        put(toScreenX(x), toScreenY(y), cellChar(tile.character()),
+                tile.textColor().getRGB() & 0xFFFFFF, tile.backgroundColor().getRGB() & 0xFFFFFF);
+    }
+
+    @Override
+    public void enableCamera(int w, int h) {
+        camera.enable(w, h);
+    }
+
+    @Override
+    public boolean follow(TETile[][] world, int x, int y) {
+        if (!camera.isEnabled() || !camera.center(x, y, world.length, world[0].length)) {
+            return false;
+        }
+        // Redrawing the view only touches memory; show() sends just the cells that changed
+        drawTiles(world);
+        return true;
+    }
+
+    @Override
+    public int toWorldX(double screenX) {
+        int x = (int) Math.floor(screenX);
+        return camera.isEnabled() ? x + camera.x() : x;
+    }
+
+    @Override
+    public int toWorldY(double screenY) {
+        int y = (int) Math.floor(screenY);
+        return camera.isEnabled() ? y + camera.y() : y;
+    }
+
+    @Override
+    public int toScreenX(int worldX) {
+        return camera.isEnabled() ? worldX - camera.x() : worldX;
+    }
+
+    @Override
+    public int toScreenY(int worldY) {
+        return camera.isEnabled() ? worldY - camera.y() : worldY;
+    }
+
+    @Override
+    public boolean isOnScreen(int x, int y) {
+        if (!camera.isEnabled()) {
+            return x >= 0 && x < width && y >= 0 && y < height;
+        }
+        return camera.contains(x, y);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public void clear(Color color) {
+        int bg = color.getRGB() & 0xFFFFFF;
+        Arrays.fill(backChars, ' ');
+        Arrays.fill(backFg, bg);
+        Arrays.fill(backBg, bg);
+    }
+
+    @Override
+    public void filledRectangle(double x, double y, double halfWidth, double halfHeight, Color color) {
+        int bg = color.getRGB() & 0xFFFFFF;
+        int x0 = (int) Math.floor(x - halfWidth);
+        int x1 = (int) Math.ceil(x + halfWidth);
+        int y0 = (int) Math.floor(y - halfHeight);
+        int y1 = (int) Math.ceil(y + halfHeight);
+        for (int cx = x0; cx < x1; cx += 1) {
+            for (int cy = y0; cy < y1; cy += 1) {
+                put(cx, cy, ' ', bg, bg);
+            }
+        }
+    }
+
+    @Override
+    public void filledCircle(double x, double y, double radius, Color color) {
+        int cx = (int) Math.floor(x);
+        int cy = (int) Math.floor(y);
+        int i = index(cx, cy);
+        if (i >= 0) {
+            put(cx, cy, DOT, color.getRGB() & 0xFFFFFF, backBg[i]);
+        }
+    }
+
+    @Override
+    public void text(double x, double y, String text, Font font, Color color) {
+        textLeft(x - text.length() / 2.0, y, text, font, color);
+    }
+
+    @Override
+    public void textLeft(double x, double y, String text, Font font, Color color) {
+        int fg = color.getRGB() & 0xFFFFFF;
+        int cx = (int) Math.round(x);
+        int cy = (int) Math.floor(y);
+        for (int k = 0; k < text.length(); k += 1) {
+            int i = index(cx + k, cy);
+            if (i >= 0) {
+                put(cx + k, cy, cellChar(text.charAt(k)), fg, backBg[i]);
+            }
+        }
+    }
+
+    @Override
+    public void drawImage(BufferedImage image, double x, double y, double width, double height) {
+        // Each covered cell takes the color of the image pixel under its center
+        int x0 = (int) Math.floor(x);
+        int x1 = (int) Math.ceil(x + width);
+        int y0 = (int) Math.floor(y);
+        int y1 = (int) Math.ceil(y + height);
+        for (int cx = x0; cx < x1; cx += 1) {
+            int px = (int) ((cx + 0.5 - x) / width * image.getWidth());
+            for (int cy = y0; cy < y1; cy += 1) {
+                int py = (int) ((y + height - cy - 0.5) / height * image.getHeight());
+                if (px >= 0 && px < image.getWidth() && py >= 0 && py < image.getHeight()) {
+                    int rgb = image.getRGB(px, py) & 0xFFFFFF;
+                    put(cx, cy, ' ', rgb, rgb);
+                }
+            }
+        }
+    }
+
+    @Override
+    public double textWidth(String text, Font font) {
+        return text.length();
+    }
+
+    @Override
+    public void resetFont() {
+        // Terminal cells have no fonts
+    }
+
+    /**
+     * Writes the cells that changed since the last call to the terminal.
+     */
+    @Override
+    public void show() {
+        frame.setLength(0);
+        int lastIndex = -2;
+        int lastFg = -1;
+        int lastBg = -1;
+        int changed = 0;
+        if (recorder != null && raster == null) {
+            startRaster();
+        }
+
+        for (int i = 0; i < backChars.length; i += 1) {
+            if (backChars[i] == frontChars[i] && backFg[i] == frontFg[i] && backBg[i] == frontBg[i]) {
+                continue;
+            }
+            // Cursor already sits here after writing the previous cell on the same row
+            if (i != lastIndex + 1 || i % width == 0) {
+                frame.append(ESC).append(i / width + 1).append(';').append(i % width + 1).append('H');
+            }
+            if (backFg[i] != lastFg) {
+                appendColor(38, backFg[i]);
+                lastFg = backFg[i];
+            }
+            if (backBg[i] != lastBg) {
+                appendColor(48, backBg[i]);
+                lastBg = backBg[i];
+            }
+            frame.append(backChars[i]);
+            if (raster != null) {
+                paintCell(i);
+            }
+            frontChars[i] = backChars[i];
+            frontFg[i] = backFg[i];
+            frontBg[i] = backBg[i];
+            lastIndex = i;
+            changed += 1;
+        }
+
+        if (changed > 0) {
+            frame.append(ESC).append("0m");
+            write(frame.toString());
+            dirtyFrames += 1;
+            cellsWritten += changed;
+        }
+        if (recorder != null) {
+            recorder.capture(raster);
+        }
+        countFrame();
+    }
+
+    @Override
+    public void setRecorder(FrameRecorder recorder) {
+        this.recorder = recorder;
+        if (recorder == null && raster != null) {
+            rasterGraphics.dispose();
+            rasterGraphics = null;
+            raster = null;
+        }
+    }
+
+    /**
+     * Starts keeping a picture of the terminal, beginning with the frame being shown.
+     */
+    private void startRaster() {
+        raster = new BufferedImage(width * CELL_WIDTH, height * CELL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        rasterGraphics = raster.createGraphics();
+        rasterGraphics.setFont(CELL_FONT);
+        for (int i = 0; i < backChars.length; i += 1) {
+            paintCell(i);
+        }
+    }
+
+    /**
+     * Paints back buffer cell i into the picture of the terminal.
+     */
+    private void paintCell(int i) {
+        int px = (i % width) * CELL_WIDTH;
+        int py = (i / width) * CELL_HEIGHT;
+        rasterGraphics.setColor(new Color(backBg[i]));
+        rasterGraphics.fillRect(px, py, CELL_WIDTH, CELL_HEIGHT);
+        if (backChars[i] != ' ') {
+            rasterGraphics.setColor(new Color(backFg[i]));
+            rasterGraphics.drawString(String.valueOf(backChars[i]), px, py + CELL_HEIGHT - 4);
+        }
+    }
+
+    /**
+     * Restores the terminal's colors and cursor and moves the cursor below the canvas.
+     * Call once when done rendering.
+     */
+    public void close() {
+        write(ESC + "0m" + ESC + (height + 1) + ";1H" + ESC + "?25h\n");
+    }
+
+    /** Number of show() calls so far. */
+    public long frames() {
+        return frames;
+    }
+
+    /** Frames per second over the last completed one-second window. */
+    public double fps() {
+        return windowFps;
+    }
+
+    /** Frames per second since initialize. */
+    public double averageFps() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? frames / seconds : 0;
+    }
+
+    /** Bytes of escape sequences and text written to the terminal so far. */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * One-line summary of the throughput counters, for soak test logs.
+     */
+    public String stats() {
+        return String.format("frames=%d (%d with changes) fps=%.1f avgFps=%.1f cells=%d bytes=%d",
+                frames, dirtyFrames, windowFps, averageFps(), cellsWritten, bytesWritten);
+    }
+
+    /**
+     * Returns the terminal size as {columns, rows}, asking stty first and then the
+     * COLUMNS/LINES environment variables. Falls back to 80x24.
+     */
+    public static int[] terminalSize() {
+        try {
+            Process p = new ProcessBuilder("sh", "-c", "stty size < /dev/tty")
+                    .redirectErrorStream(true).start();
+            String line;
+            try (BufferedReader r = new BufferedReader(
+                    new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                line = r.readLine();
+            }
+            if (p.waitFor() == 0 && line != null) {
+                String[] parts = line.trim().split("\\s+");
+                return new int[] {Integer.parseInt(parts[1]), Integer.parseInt(parts[0])};
+            }
+        } catch (IOException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // Not attached to a terminal, try the environment instead
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            return new int[] {Integer.parseInt(System.getenv("COLUMNS")),
+                Integer.parseInt(System.getenv("LINES"))};
+        } catch (NumberFormatException e) {
+            return new int[] {80, 24};
+        }
+    }
+
+    private void countFrame() {
+        frames += 1;
+        windowFrames += 1;
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= 1_000_000_000L) {
+            windowFps = windowFrames * 1e9 / (now - windowStartNanos);
+            windowStartNanos = now;
+            windowFrames = 0;
+        }
+    }
+
+    private void appendColor(int kind, int rgb) {
+        frame.append(ESC).append(kind).append(";2;")
+                .append((rgb >> 16) & 0xFF).append(';')
+                .append((rgb >> 8) & 0xFF).append(';')
+                .append(rgb & 0xFF).append('m');
+    }
+
+    /**
+     * Index of canvas cell (x, y) in the cell buffers, or -1 if it is off the canvas.
+     */
+    private int index(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        return (height - 1 - y) * width + x;
+    }
+
+    private void put(int x, int y, char c, int fg, int bg) {
+        int i = index(x, y);
+        if (i < 0) {
+            return;
+        }
+        backChars[i] = c;
+        backFg[i] = fg;
+        backBg[i] = bg;
+    }
+
+    private void write(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        try {
+            out.write(bytes);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        bytesWritten += bytes.length;
+    }
+
+    /**
+     * Replaces characters most terminals draw two cells wide, which would shift the
+     * rest of the row.
+     */
+    private static char cellChar(char c) {
+        switch (c) {
+            case '⛄': // snowman
+            case '⚡': // lightning bolt
+                return '*';
+            default:
+                return c;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package tileengine;
+
+/**
+ * Position and size of the window of the world a renderer shows in camera mode.
+ * The camera's position is the world tile shown at the window's bottom-left corner.
+ */
+final class Camera {
+    private boolean enabled;
+    private int viewWidth;
+    private int viewHeight;
+    private int x;
+    private int y;
+
+    /**
+     * Turns the camera on with a w x h window at world position (0, 0).
+     */
+    void enable(int w, int h) {
+        enabled = true;
+        viewWidth = w;
+        viewHeight = h;
+        x = 0;
+        y = 0;
+    }
+
+    void disable() {
+        enabled = false;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    int viewWidth() {
+        return viewWidth;
+    }
+
+    int viewHeight() {
+        return viewHeight;
+    }
+
+    int x() {
+        return x;
+    }
+
+    int y() {
+        return y;
+    }
+
+    /**
+     * Moves the window so world tile (cx, cy) is in its center, without leaving a world
+     * of the given size.
+     * @return true if the window moved
+     */
+    boolean center(int cx, int cy, int worldWidth, int worldHeight) {
+        int newX = Math.max(0, Math.min(cx - viewWidth / 2, worldWidth - viewWidth));
+        int newY = Math.max(0, Math.min(cy - viewHeight / 2, worldHeight - viewHeight));
+        if (newX == x && newY == y) {
+            return false;
+        }
+        x = newX;
+        y = newY;
+        return true;
+    }
+
+    /**
+     * @return true if world tile (wx, wy) is inside the window
+     */
+    boolean contains(int wx, int wy) {
+        return wx >= x && wx < x + viewWidth && wy >= y && wy < y + viewHeight;
+    }
+}
@@ -0,0 +1,240 @@
+package tileengine;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records presented frames to a numbered PNG sequence or an animated GIF without
+ * slowing down the thread that presents them.
+ *
+ * capture() copies a frame into one of a fixed number of reusable images and returns.
+ * A background thread encodes the copies in order and hands the images back. When the
+ * encoder falls behind and no image is free, capture() drops the frame instead of
+ * waiting, so recording never stalls the game loop. Each frame keeps its capture time,
+ * so a GIF still plays at the speed the game ran at when frames were dropped.
+ *
+ * The output format follows the path: a name ending in ".gif" gives an animated GIF,
+ * anything else is a directory that receives frame_00000.png, frame_00001.png, ...
+ */
+public class FrameRecorder {
+    private static final int RING_SIZE = 8;
+
+    private final File output;
+    private final boolean gif;
+    private final ArrayBlockingQueue<Slot> free = new ArrayBlockingQueue<>(RING_SIZE);
+    private final ArrayBlockingQueue<Slot> filled = new ArrayBlockingQueue<>(RING_SIZE);
+    private final Thread encoder;
+    private volatile boolean closed;
+
+    // Written by the capturing thread
+    private volatile long captured;
+    private volatile long dropped;
+
+    // Written by the encoder thread
+    private volatile long encoded;
+    private volatile long encodeNanos;
+    private volatile long bytesIn;
+    private volatile String error;
+
+    private ImageWriter gifWriter;
+    private ImageOutputStream gifStream;
+    // A GIF frame's delay is only known once the next frame arrives
+    private Slot pendingGifFrame;
+
+    /**
+     * Starts a recorder and its encoder thread.
+     * @param path ".gif" file, or directory for a PNG sequence (created if missing)
+     */
+    public FrameRecorder(String path) {
+        this.output = new File(path);
+        this.gif = path.toLowerCase().endsWith(".gif");
+        for (int i = 0; i < RING_SIZE; i++) {
+            free.add(new Slot());
+        }
+        encoder = new Thread(this::encodeLoop, "frame-encoder");
+        encoder.setDaemon(true);
+        encoder.start();
+    }
+
+    /**
+     * Copies a frame for encoding, or drops it if the encoder is busy with all buffered
+     * frames. Never blocks.
+     * @param frame the presented frame; only read during this call
+     */
+    public void capture(BufferedImage frame) {
+        if (closed || frame == null) {
+            return;
+        }
+        Slot slot = free.poll();
+        if (slot == null) {
+            dropped++;
+            return;
+        }
+        if (slot.image == null || slot.image.getWidth() != frame.getWidth()
+                || slot.image.getHeight() != frame.getHeight()) {
+            slot.image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = slot.image.createGraphics();
+        try {
+            g.drawImage(frame, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        slot.nanos = System.nanoTime();
+        captured++;
+        filled.add(slot);
+    }
+
+    /**
+     * Stops accepting frames, waits for the buffered ones to be encoded and finishes the
+     * output file.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            encoder.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One-line summary of captured, encoded and dropped frames and encoder throughput.
+     */
+    public String stats() {
+        double seconds = encodeNanos / 1e9;
+        return String.format("%s captured=%d encoded=%d dropped=%d encodeFps=%.1f encodeMBps=%.1f%s",
+                output, captured, encoded, dropped,
+                seconds > 0 ? encoded / seconds : 0.0,
+                seconds > 0 ? bytesIn / 1e6 / seconds : 0.0,
+                error == null ? "" : " error=" + error);
+    }
+
+    private void encodeLoop() {
+        try {
+            while (true) {
+                Slot slot = filled.poll(50, TimeUnit.MILLISECONDS);
+                if (slot == null) {
+                    // Once closed, stop as soon as everything buffered is encoded
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (gif) {
+                    encodeGif(slot);
+                } else {
+                    encodePng(slot);
+                    free.add(slot);
+                }
+                encodeNanos += System.nanoTime() - start;
+            }
+            long start = System.nanoTime();
+            finish();
+            encodeNanos += System.nanoTime() - start;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            error = e.toString();
+            // Keep the game running: all further frames count as dropped
+            closed = true;
+        }
+    }
+
+    private void encodePng(Slot slot) throws IOException {
+        if (encoded == 0 && !output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Cannot create directory " + output);
+        }
+        File file = new File(output, String.format("frame_%05d.png", encoded));
+        ImageIO.write(slot.image, "png", file);
+        countEncoded(slot);
+    }
+
+    /**
+     * Writes the previous frame, now that its display time is known, and keeps this one.
+     */
+    private void encodeGif(Slot slot) throws IOException {
+        if (gifWriter == null) {
+            gifWriter = ImageIO.getImageWritersByFormatName("gif").next();
+            gifStream = ImageIO.createImageOutputStream(output);
+            gifWriter.setOutput(gifStream);
+            gifWriter.prepareWriteSequence(null);
+        }
+        if (pendingGifFrame != null) {
+            writeGifFrame(pendingGifFrame, slot.nanos - pendingGifFrame.nanos);
+            free.add(pendingGifFrame);
+        }
+        pendingGifFrame = slot;
+    }
+
+    private void writeGifFrame(Slot slot, long shownNanos) throws IOException {
+        // GIF delays are in hundredths of a second; most viewers treat less than 2 as 10
+        int delay = (int) Math.max(2, shownNanos / 10_000_000L);
+        gifWriter.writeToSequence(new IIOImage(slot.image, null, gifMetadata(slot.image, delay)), null);
+        countEncoded(slot);
+    }
+
+    private void countEncoded(Slot slot) {
+        bytesIn += 4L * slot.image.getWidth() * slot.image.getHeight();
+        encoded++;
+    }
+
+    private IIOMetadata gifMetadata(BufferedImage image, int delay) throws IIOInvalidTreeException {
+        IIOMetadata metadata = gifWriter.getDefaultImageMetadata(
+                ImageTypeSpecifier.createFromRenderedImage(image), null);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(delay));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        // Loop forever
+        IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+        IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+        loop.setAttribute("applicationID", "NETSCAPE");
+        loop.setAttribute("authenticationCode", "2.0");
+        loop.setUserObject(new byte[] {1, 0, 0});
+        extensions.appendChild(loop);
+        root.appendChild(extensions);
+
+        metadata.setFromTree(format, root);
+        return metadata;
+    }
+
+    private void finish() throws IOException {
+        if (pendingGifFrame != null) {
+            // The last frame stays up for a second
+            writeGifFrame(pendingGifFrame, 1_000_000_000L);
+        }
+        if (gifWriter != null) {
+            gifWriter.endWriteSequence();
+            gifStream.close();
+            gifWriter.dispose();
+        }
+    }
+
+    /** One reusable frame buffer and the time it was captured. */
+    private static class Slot {
+        BufferedImage image;
+        long nanos;
+    }
+}
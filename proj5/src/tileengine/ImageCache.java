@@ -0,0 +1,68 @@
+package tileengine;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of tile images, keyed by the path given to TETile.
+ *
+ * Each path is read and decoded once. Paths that cannot be loaded are remembered as
+ * missing, so a tileset pointing at absent files costs one map lookup per draw instead of
+ * a failed file lookup and an exception. Like StdDraw.picture, a path is tried as a file
+ * first and then as a class path resource.
+ */
+public final class ImageCache {
+    private static final ConcurrentHashMap<String, Optional<BufferedImage>> IMAGES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong LOADS = new AtomicLong();
+
+    private ImageCache() {
+    }
+
+    /**
+     * Returns the decoded image at the given path, or null if it cannot be loaded.
+     * @param path file name or class path resource name
+     */
+    public static BufferedImage get(String path) {
+        Optional<BufferedImage> image = IMAGES.get(path);
+        if (image == null) {
+            image = IMAGES.computeIfAbsent(path, ImageCache::load);
+        } else {
+            HITS.incrementAndGet();
+        }
+        return image.orElse(null);
+    }
+
+    /**
+     * One-line summary of cache use, e.g. "images=3 missing=1 loads=4 hits=51200".
+     */
+    public static String stats() {
+        long missing = IMAGES.values().stream().filter(Optional::isEmpty).count();
+        return String.format("images=%d missing=%d loads=%d hits=%d",
+                IMAGES.size() - missing, missing, LOADS.get(), HITS.get());
+    }
+
+    private static Optional<BufferedImage> load(String path) {
+        LOADS.incrementAndGet();
+        try {
+            File file = new File(path);
+            if (file.isFile()) {
+                return Optional.ofNullable(ImageIO.read(file));
+            }
+            try (InputStream in = ImageCache.class.getResourceAsStream(
+                    path.startsWith("/") ? path : "/" + path)) {
+                return in == null ? Optional.empty() : Optional.ofNullable(ImageIO.read(in));
+            }
+        } catch (IOException e) {
+            // Unreadable or not an image: treat like a missing file
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package tileengine;
+
+/**
+ * Where the game reads keys and the mouse from. StdDrawInput reads the StdDraw window,
+ * TerminalInput reads standard input.
+ */
+public interface InputSource {
+
+    /** @return true if a typed key is waiting to be read */
+    boolean hasNextKeyTyped();
+
+    /**
+     * Returns the next typed key. Only call after hasNextKeyTyped returned true.
+     */
+    char nextKeyTyped();
+
+    /**
+     * System.nanoTime() when the key last returned by nextKeyTyped was typed. Sources
+     * that cannot tell return the time it was read.
+     */
+    default long lastKeyTypedNanos() {
+        return System.nanoTime();
+    }
+
+    /** Mouse x on the canvas in tiles, or NaN if there is no mouse. */
+    double mouseX();
+
+    /** Mouse y on the canvas in tiles, or NaN if there is no mouse. */
+    double mouseY();
+
+    /** @return true if no more keys will ever arrive, e.g. piped input has ended */
+    boolean isClosed();
+}
@@ -0,0 +1,129 @@
+package tileengine;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+
+/**
+ * Something that can show a tile world with a little text and shapes on top of it.
+ * TERenderer draws into a StdDraw window and AnsiRenderer into a terminal, so game code
+ * that only talks to this interface can run without a display.
+ *
+ * Coordinates for shapes and text are in tiles on the canvas, with (0, 0) at the
+ * bottom-left, like the StdDraw scale set up by initialize. Tile methods take world
+ * coordinates and go through the camera if one is enabled.
+ */
+public interface Renderer {
+
+    /**
+     * Creates the canvas.
+     * @param w width of the canvas in tiles
+     * @param h height of the canvas in tiles
+     */
+    void initialize(int w, int h);
+
+    /**
+     * Clears the canvas, draws every visible tile of the world and shows the result.
+     * @param world the 2D TETile[][] array to render
+     */
+    void renderFrame(TETile[][] world);
+
+    /**
+     * Draws every visible tile of the world without clearing or showing.
+     * @param world the 2D TETile[][] array to render
+     */
+    void drawTiles(TETile[][] world);
+
+    /**
+     * Draws a single world tile, if it is visible.
+     * @param world the 2D TETile[][] array the tile belongs to
+     * @param x world x coordinate
+     * @param y world y coordinate
+     */
+    void drawTile(TETile[][] world, int x, int y);
+
+    /**
+     * Shows only a w x h window of the world from now on. See follow.
+     * @param w width of the view window in tiles
+     * @param h height of the view window in tiles
+     */
+    void enableCamera(int w, int h);
+
+    /**
+     * Centers the camera on world tile (x, y) and redraws what scrolled into view.
+     * Shapes drawn over the view are gone after a move and have to be drawn again.
+     * @return true if the camera moved
+     */
+    boolean follow(TETile[][] world, int x, int y);
+
+    /** Converts a canvas x coordinate to a world x coordinate. */
+    int toWorldX(double screenX);
+
+    /** Converts a canvas y coordinate to a world y coordinate. */
+    int toWorldY(double screenY);
+
+    /** Converts a world x coordinate to the canvas x of its tile's left edge. */
+    int toScreenX(int worldX);
+
+    /** Converts a world y coordinate to the canvas y of its tile's bottom edge. */
+    int toScreenY(int worldY);
+
+    /** @return true if world tile (x, y) is currently on the canvas */
+    boolean isOnScreen(int x, int y);
+
+    /** Width of the canvas in tiles. */
+    int width();
+
+    /** Height of the canvas in tiles. */
+    int height();
+
+    /** Fills the whole canvas with one color. */
+    void clear(Color color);
+
+    /** Fills an axis-aligned rectangle given by its center and half sizes. */
+    void filledRectangle(double x, double y, double halfWidth, double halfHeight, Color color);
+
+    /** Fills a circle given by its center and radius. */
+    void filledCircle(double x, double y, double radius, Color color);
+
+    /** Draws text centered on (x, y). */
+    void text(double x, double y, String text, Font font, Color color);
+
+    /** Draws text left-aligned at (x, y). */
+    void textLeft(double x, double y, String text, Font font, Color color);
+
+    /**
+     * Draws an image stretched over a rectangle given by its bottom-left corner and size.
+     * The image may be changed by the caller afterwards.
+     */
+    void drawImage(BufferedImage image, double x, double y, double width, double height);
+
+    /**
+     * Moves what is drawn in a rectangle of the canvas by (dx, dy) tiles, shapes and text
+     * included, without showing it. Renderers that cannot move what they drew return
+     * false and leave the canvas as it was.
+     * @param x left edge of the rectangle, in canvas tiles
+     * @param y bottom edge of the rectangle, in canvas tiles
+     * @return true if the rectangle was moved
+     */
+    default boolean copyTiles(int x, int y, int w, int h, int dx, int dy) {
+        return false;
+    }
+
+    /** Width the given text takes up when drawn, in tiles. */
+    double textWidth(String text, Font font);
+
+    /**
+     * Restores the tile font. Call before drawing tiles if text was drawn in between.
+     */
+    void resetFont();
+
+    /** Presents everything drawn since the last call. */
+    void show();
+
+    /**
+     * Hands every frame presented from now on to the given recorder, or stops recording
+     * when it is null.
+     */
+    void setRecorder(FrameRecorder recorder);
+}
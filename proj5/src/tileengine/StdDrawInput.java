@@ -0,0 +1,34 @@
+package tileengine;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+/**
+ * Keyboard and mouse input from the StdDraw window.
+ */
+public class StdDrawInput implements InputSource {
+
+    @Override
+    public boolean hasNextKeyTyped() {
+        return StdDraw.hasNextKeyTyped();
+    }
+
+    @Override
+    public char nextKeyTyped() {
+        return StdDraw.nextKeyTyped();
+    }
+
+    @Override
+    public double mouseX() {
+        return StdDraw.mouseX();
+    }
+
+    @Override
+    public double mouseY() {
+        return StdDraw.mouseY();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+}
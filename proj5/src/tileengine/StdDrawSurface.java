@@ -0,0 +1,160 @@
+package tileengine;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Field;
+
+/**
+ * Direct access to the image StdDraw draws into. StdDraw has no API for moving pixels
+ * around or blitting an in-memory image, so the renderer reaches into its private
+ * offscreen buffer for the few operations that need it, such as scrolling the camera
+ * and drawing cached tile images.
+ *
+ * The buffer is looked up reflectively. If that ever fails (a different StdDraw build,
+ * or the canvas has not been initialized yet), every method reports that the surface is
+ * unavailable and callers fall back to plain StdDraw drawing.
+ *
+ * All coordinates are in tiles, with (0, 0) at the bottom-left of the canvas, matching
+ * the scale TERenderer sets up.
+ */
+public final class StdDrawSurface {
+    private static final Field OFFSCREEN_IMAGE = lookup("offscreenImage");
+
+    // Canvas size in tiles, set by TERenderer.initialize
+    private static int canvasWidth;
+    private static int canvasHeight;
+
+    private StdDrawSurface() {
+    }
+
+    private static Field lookup(String name) {
+        try {
+            Field f = StdDraw.class.getDeclaredField(name);
+            f.setAccessible(true);
+            return f;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the canvas size in tiles. Called whenever the StdDraw canvas is recreated.
+     * @param widthInTiles canvas width in tiles
+     * @param heightInTiles canvas height in tiles
+     */
+    static void setCanvasSize(int widthInTiles, int heightInTiles) {
+        canvasWidth = widthInTiles;
+        canvasHeight = heightInTiles;
+    }
+
+    /**
+     * Returns the image StdDraw is currently drawing into, or null if it is not reachable.
+     */
+    public static BufferedImage offscreen() {
+        return read(OFFSCREEN_IMAGE);
+    }
+
+    /**
+     * @return true if the offscreen buffer can be drawn into directly
+     */
+    public static boolean isAvailable() {
+        return pixelsPerTile(offscreen()) > 0;
+    }
+
+    private static BufferedImage read(Field field) {
+        if (field == null) {
+            return null;
+        }
+        try {
+            return (BufferedImage) field.get(null);
+        } catch (IllegalAccessException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Pixels per tile edge in the given buffer, or 0 if the buffer does not match the
+     * canvas (StdDraw renders at 2x on high-density displays, so this is not always
+     * the tile size).
+     */
+    private static int pixelsPerTile(BufferedImage img) {
+        if (img == null || canvasWidth <= 0 || canvasHeight <= 0) {
+            return 0;
+        }
+        int scale = img.getWidth() / canvasWidth;
+        if (scale <= 0 || scale * canvasWidth != img.getWidth()
+                || scale * canvasHeight != img.getHeight()) {
+            return 0;
+        }
+        return scale;
+    }
+
+    /**
+     * Moves a rectangle of tiles on the offscreen buffer by (dx, dy) tiles. The source
+     * area that is uncovered by the move keeps its old pixels.
+     * @param x left edge of the source rectangle
+     * @param y bottom edge of the source rectangle
+     * @param w width of the source rectangle
+     * @param h height of the source rectangle
+     * @param dx tiles to move right (negative moves left)
+     * @param dy tiles to move up (negative moves down)
+     * @return false if the surface is unavailable and nothing was moved
+     */
+    public static boolean copyTiles(int x, int y, int w, int h, int dx, int dy) {
+        BufferedImage img = offscreen();
+        int s = pixelsPerTile(img);
+        if (s == 0) {
+            return false;
+        }
+        if (w <= 0 || h <= 0) {
+            return true;
+        }
+        Graphics2D g = img.createGraphics();
+        try {
+            g.copyArea(x * s, (canvasHeight - y - h) * s, w * s, h * s, dx * s, -dy * s);
+        } finally {
+            g.dispose();
+        }
+        return true;
+    }
+
+    /**
+     * Draws an image scaled to exactly cover one tile on the offscreen buffer.
+     * @param img image to draw
+     * @param x left edge of the tile
+     * @param y bottom edge of the tile
+     * @return false if the surface is unavailable and nothing was drawn
+     */
+    public static boolean drawTileImage(BufferedImage img, double x, double y) {
+        return drawImage(img, x, y, 1, 1);
+    }
+
+    /**
+     * Draws an image stretched over a rectangle of the offscreen buffer, without
+     * smoothing, so every image pixel stays a sharp block.
+     * @param img image to draw
+     * @param x left edge of the rectangle
+     * @param y bottom edge of the rectangle
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return false if the surface is unavailable and nothing was drawn
+     */
+    public static boolean drawImage(BufferedImage img, double x, double y, double w, double h) {
+        BufferedImage target = offscreen();
+        int s = pixelsPerTile(target);
+        if (s == 0) {
+            return false;
+        }
+        Graphics2D g = target.createGraphics();
+        try {
+            int px = (int) Math.round(x * s);
+            int py = (int) Math.round((canvasHeight - y - h) * s);
+            g.drawImage(img, px, py, (int) Math.round(w * s), (int) Math.round(h * s), null);
+        } finally {
+            g.dispose();
+        }
+        return true;
+    }
+}
@@ -4,6 +4,9 @@ import edu.princeton.cs.algs4.StdDraw;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * Utility class for rendering tiles. You do not need to modify this file. You're welcome
@@ -11,13 +14,29 @@ import java.awt.Font;
  * messing with this renderer, unless you're trying to do something fancy like
  * allowing scrolling of the screen or tracking the avatar or something similar.
  */
-public class TERenderer {
+public class TERenderer implements Renderer {
     private static final int TILE_SIZE = 16;
+
+    // Only used to measure text; StdDraw has no API for it
+    private static final Graphics2D METRICS =
+            new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
     private int width;
     private int height;
     private int xOffset;
     private int yOffset;
 
+    // Camera mode: only a window of the world is drawn, placed on the canvas at
+    // xOffset, yOffset.
+    private final Camera camera = new Camera();
+    private FrameRecorder recorder;
+    // Id of the tile currently on screen for each view cell (index sy * viewWidth + sx),
+    // or -1 if unknown. Lets drawTiles skip cells that are already up to date.
+    private int[] drawnIds;
+    private int[] scratchIds;
+    // View cells a shape, text or image was drawn over since their tile was drawn (same
+    // index). A scroll moves those pixels along, so the cells they land in have to be redrawn.
+    private boolean[] covered;
+
     /**
      * Same functionality as the other initialization method. The only difference is that the xOff
      * and yOff parameters will change where the renderFrame method starts drawing. For example,
@@ -32,7 +51,9 @@ public class TERenderer {
         this.height = h;
         this.xOffset = xOff;
         this.yOffset = yOff;
+        camera.disable();
         StdDraw.setCanvasSize(width * TILE_SIZE, height * TILE_SIZE);
+        StdDrawSurface.setCanvasSize(width, height);
         resetFont();
         StdDraw.setXscale(0, width);
         StdDraw.setYscale(0, height);
@@ -56,6 +77,7 @@ public class TERenderer {
      * @param w width of the window in tiles
      * @param h height of the window in tiles.
      */
+    @Override
     public void initialize(int w, int h) {
         initialize(w, h, 0, 0);
     }
@@ -82,17 +104,26 @@ public class TERenderer {
      * the screen in tiles.
      * @param world the 2D TETile[][] array to render
      */
+    @Override
     public void renderFrame(TETile[][] world) {
         StdDraw.clear(new Color(0, 0, 0));
+        invalidateView();
         drawTiles(world);
         StdDraw.show();
     }
 
     /**
      * Draws all world tiles without clearing the canvas or showing the tiles.
+     * In camera mode only the cells of the view window whose tile changed since they were
+     * last drawn are drawn.
      * @param world the 2D TETile[][] array to render
      */
+    @Override
     public void drawTiles(TETile[][] world) {
+        if (camera.isEnabled()) {
+            drawView(world);
+            return;
+        }
         int numXTiles = world.length;
         int numYTiles = world[0].length;
         for (int x = 0; x < numXTiles; x += 1) {
@@ -106,10 +137,299 @@ public class TERenderer {
         }
     }
 
+    /**
+     * Draws a single world tile at its position on screen. In camera mode, tiles outside the
+     * view window are skipped.
+     * @param world the 2D TETile[][] array the tile belongs to
+     * @param x world x coordinate
+     * @param y world y coordinate
+     */
+    @Override
+    public void drawTile(TETile[][] world, int x, int y) {
+        if (!camera.isEnabled()) {
+            world[x][y].draw(x + xOffset, y + yOffset);
+            return;
+        }
+        if (!camera.contains(x, y)) {
+            return;
+        }
+        int sx = x - camera.x();
+        int sy = y - camera.y();
+        world[x][y].draw(sx + xOffset, sy + yOffset);
+        drawnIds[sy * camera.viewWidth() + sx] = world[x][y].id();
+        covered[sy * camera.viewWidth() + sx] = false;
+    }
+
+    /**
+     * Switches to camera mode: instead of the whole world, only a w x h window of it is drawn
+     * at xOffset, yOffset. Use follow to move the window.
+     * @param w width of the view window in tiles
+     * @param h height of the view window in tiles
+     */
+    @Override
+    public void enableCamera(int w, int h) {
+        camera.enable(w, h);
+        drawnIds = new int[w * h];
+        scratchIds = new int[w * h];
+        covered = new boolean[w * h];
+        invalidateView();
+    }
+
+    /**
+     * Centers the camera on world tile (x, y), clamped so the view never leaves the world, and
+     * redraws the view. Scrolling moves the previous frame's pixels and only draws the newly
+     * exposed strip, so the cost depends on the distance scrolled, not on the world size.
+     * Shapes drawn over the view are wiped, wherever the move took their pixels, and have
+     * to be drawn again. Does nothing outside camera mode.
+     * @param world the 2D TETile[][] array being shown
+     * @param x world x coordinate to center on
+     * @param y world y coordinate to center on
+     * @return true if the camera moved
+     */
+    @Override
+    public boolean follow(TETile[][] world, int x, int y) {
+        int oldX = camera.x();
+        int oldY = camera.y();
+        if (!camera.isEnabled() || !camera.center(x, y, world.length, world[0].length)) {
+            return false;
+        }
+        int dx = camera.x() - oldX;
+        int dy = camera.y() - oldY;
+        int viewWidth = camera.viewWidth();
+        int viewHeight = camera.viewHeight();
+
+        // Move the part of the old frame that stays visible; if that is not possible the
+        // whole view is redrawn.
+        if (Math.abs(dx) < viewWidth && Math.abs(dy) < viewHeight
+                && StdDrawSurface.copyTiles(xOffset + Math.max(dx, 0), yOffset + Math.max(dy, 0),
+                        viewWidth - Math.abs(dx), viewHeight - Math.abs(dy), -dx, -dy)) {
+            shiftDrawnIds(dx, dy);
+        } else {
+            invalidateView();
+        }
+
+        drawView(world);
+        return true;
+    }
+
+    /**
+     * Converts a screen x coordinate (in tiles, as returned by StdDraw.mouseX) to a world x.
+     * @param screenX x coordinate on the canvas
+     * @return world x coordinate, which may be out of the world's bounds
+     */
+    @Override
+    public int toWorldX(double screenX) {
+        int x = (int) Math.floor(screenX) - xOffset;
+        return camera.isEnabled() ? x + camera.x() : x;
+    }
+
+    /**
+     * Converts a screen y coordinate (in tiles, as returned by StdDraw.mouseY) to a world y.
+     * @param screenY y coordinate on the canvas
+     * @return world y coordinate, which may be out of the world's bounds
+     */
+    @Override
+    public int toWorldY(double screenY) {
+        int y = (int) Math.floor(screenY) - yOffset;
+        return camera.isEnabled() ? y + camera.y() : y;
+    }
+
+    /**
+     * Converts a world x coordinate to the x of its tile on the canvas.
+     * @param worldX world x coordinate
+     * @return canvas x coordinate of the tile's left edge
+     */
+    @Override
+    public int toScreenX(int worldX) {
+        return camera.isEnabled() ? worldX - camera.x() + xOffset : worldX + xOffset;
+    }
+
+    /**
+     * Converts a world y coordinate to the y of its tile on the canvas.
+     * @param worldY world y coordinate
+     * @return canvas y coordinate of the tile's bottom edge
+     */
+    @Override
+    public int toScreenY(int worldY) {
+        return camera.isEnabled() ? worldY - camera.y() + yOffset : worldY + yOffset;
+    }
+
+    /**
+     * @return true if world tile (x, y) is currently drawn on screen
+     */
+    @Override
+    public boolean isOnScreen(int x, int y) {
+        return !camera.isEnabled() || camera.contains(x, y);
+    }
+
+    /** Width of the canvas in tiles. */
+    @Override
+    public int width() {
+        return width;
+    }
+
+    /** Height of the canvas in tiles. */
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public void clear(Color color) {
+        StdDraw.clear(color);
+        invalidateView();
+    }
+
+    @Override
+    public void filledRectangle(double x, double y, double halfWidth, double halfHeight, Color color) {
+        StdDraw.setPenColor(color);
+        StdDraw.filledRectangle(x, y, halfWidth, halfHeight);
+        cover(x, y, halfWidth, halfHeight);
+    }
+
+    @Override
+    public void filledCircle(double x, double y, double radius, Color color) {
+        StdDraw.setPenColor(color);
+        StdDraw.filledCircle(x, y, radius);
+        cover(x, y, radius, radius);
+    }
+
+    @Override
+    public void text(double x, double y, String text, Font font, Color color) {
+        StdDraw.setPenColor(color);
+        StdDraw.setFont(font);
+        StdDraw.text(x, y, text);
+        cover(x, y, textWidth(text, font) / 2, textHeight(font) / 2);
+    }
+
+    @Override
+    public void textLeft(double x, double y, String text, Font font, Color color) {
+        StdDraw.setPenColor(color);
+        StdDraw.setFont(font);
+        StdDraw.textLeft(x, y, text);
+        double width = textWidth(text, font);
+        cover(x + width / 2, y, width / 2, textHeight(font) / 2);
+    }
+
+    @Override
+    public void drawImage(BufferedImage image, double x, double y, double width, double height) {
+        // StdDraw can only draw images from files; without its buffer the image is skipped
+        StdDrawSurface.drawImage(image, x, y, width, height);
+        cover(x + width / 2, y + height / 2, width / 2, height / 2);
+    }
+
+    @Override
+    public boolean copyTiles(int x, int y, int w, int h, int dx, int dy) {
+        return StdDrawSurface.copyTiles(x, y, w, h, dx, dy);
+    }
+
+    @Override
+    public double textWidth(String text, Font font) {
+        return (double) METRICS.getFontMetrics(font).stringWidth(text) / TILE_SIZE;
+    }
+
+    private static double textHeight(Font font) {
+        return (double) METRICS.getFontMetrics(font).getHeight() / TILE_SIZE;
+    }
+
+    @Override
+    public void show() {
+        StdDraw.show();
+        if (recorder != null) {
+            // The offscreen buffer holds exactly what was just presented
+            recorder.capture(StdDrawSurface.offscreen());
+        }
+    }
+
+    @Override
+    public void setRecorder(FrameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Draws every cell of the view window whose tile differs from what is on screen.
+     */
+    private void drawView(TETile[][] world) {
+        int cameraX = camera.x();
+        int cameraY = camera.y();
+        int viewWidth = camera.viewWidth();
+        int maxX = Math.min(viewWidth, world.length - cameraX);
+        int maxY = Math.min(camera.viewHeight(), world[0].length - cameraY);
+        for (int sy = 0; sy < maxY; sy += 1) {
+            for (int sx = 0; sx < maxX; sx += 1) {
+                TETile tile = world[cameraX + sx][cameraY + sy];
+                if (tile == null) {
+                    throw new IllegalArgumentException("Tile at position x=" + (cameraX + sx)
+                            + ", y=" + (cameraY + sy) + " is null.");
+                }
+                int i = sy * viewWidth + sx;
+                if (drawnIds[i] != tile.id()) {
+                    tile.draw(sx + xOffset, sy + yOffset);
+                    drawnIds[i] = tile.id();
+                    covered[i] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes the view cells under anything centered on canvas point (x, y). Does nothing
+     * outside camera mode, where there is no scrolling.
+     */
+    private void cover(double x, double y, double halfWidth, double halfHeight) {
+        if (!camera.isEnabled()) {
+            return;
+        }
+        int viewWidth = camera.viewWidth();
+        int x0 = Math.max(0, (int) Math.floor(x - halfWidth) - xOffset);
+        int x1 = Math.min(viewWidth, (int) Math.ceil(x + halfWidth) - xOffset);
+        int y0 = Math.max(0, (int) Math.floor(y - halfHeight) - yOffset);
+        int y1 = Math.min(camera.viewHeight(), (int) Math.ceil(y + halfHeight) - yOffset);
+        for (int sy = y0; sy < y1; sy += 1) {
+            for (int sx = x0; sx < x1; sx += 1) {
+                covered[sy * viewWidth + sx] = true;
+            }
+        }
+    }
+
+    /**
+     * Moves the drawn-tile bookkeeping along with the pixels after the camera moved by
+     * (dx, dy). Cells that scrolled into view, and cells that received the pixels of a
+     * covered cell, become unknown.
+     */
+    private void shiftDrawnIds(int dx, int dy) {
+        int viewWidth = camera.viewWidth();
+        int viewHeight = camera.viewHeight();
+        for (int sy = 0; sy < viewHeight; sy += 1) {
+            for (int sx = 0; sx < viewWidth; sx += 1) {
+                int ox = sx + dx;
+                int oy = sy + dy;
+                boolean kept = ox >= 0 && ox < viewWidth && oy >= 0 && oy < viewHeight
+                        && !covered[oy * viewWidth + ox];
+                scratchIds[sy * viewWidth + sx] = kept ? drawnIds[oy * viewWidth + ox] : -1;
+            }
+        }
+        int[] tmp = drawnIds;
+        drawnIds = scratchIds;
+        scratchIds = tmp;
+        // Every moved shape pixel is now in a cell that gets redrawn
+        Arrays.fill(covered, false);
+    }
+
+    /**
+     * Forgets what is on screen so that the next drawTiles redraws the whole view.
+     */
+    private void invalidateView() {
+        if (drawnIds != null) {
+            Arrays.fill(drawnIds, -1);
+        }
+    }
+
     /**
      * Resets the font to default settings. You should call this method before drawing any tiles
      * if you changed the pen settings.
      */
+    @Override
     public void resetFont() {
         Font font = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
         StdDraw.setFont(font);
@@ -1,6 +1,7 @@
 package tileengine;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -88,20 +89,22 @@ public class TETile {
      * we draw the image located at that filepath to the screen. Otherwise, we fall
      * back to the character and color representation for the tile.
      *
-     * Note that the image provided must be of the right size (16x16). It will not be
-     * automatically resized or truncated.
+     * Images are loaded once through ImageCache, which also remembers missing files, and
+     * are drawn straight into StdDraw's buffer scaled to one tile.
      * @param x x coordinate
      * @param y y coordinate
      */
     public void draw(double x, double y) {
         if (filepath != null) {
-            try {
-                StdDraw.picture(x + 0.5, y + 0.5, filepath);
+            BufferedImage image = ImageCache.get(filepath);
+            if (image != null) {
+                if (!StdDrawSurface.drawTileImage(image, x, y)) {
+                    StdDraw.picture(x + 0.5, y + 0.5, filepath);
+                }
                 return;
-            } catch (IllegalArgumentException e) {
-                // Exception happens because the file can't be found. In this case, fail silently
-                // and just use the character and background color for the tile.
             }
+            // The file can't be found. In this case, fail silently and just use the
+            // character and background color for the tile.
         }
 
         StdDraw.setPenColor(backgroundColor);
@@ -117,6 +120,22 @@ public class TETile {
         return character;
     }
 
+    /**
+     * Color of the character. Used by renderers that do not draw through StdDraw.
+     * @return text color
+     */
+    public Color textColor() {
+        return textColor;
+    }
+
+    /**
+     * Color drawn behind the character. Used by renderers that do not draw through StdDraw.
+     * @return background color
+     */
+    public Color backgroundColor() {
+        return backgroundColor;
+    }
+
     /**
      * Description of the tile. Useful for displaying mouseover text or
      * testing that two tiles represent the same type of thing.
@@ -0,0 +1,192 @@
+package tileengine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keyboard input from standard input, for playing in a terminal with AnsiRenderer.
+ *
+ * When standard input is a terminal, open() switches it out of line mode with stty so
+ * every key press arrives immediately and is not echoed (Ctrl-C still works); close()
+ * restores the previous settings. When input is piped, e.g. a scripted key sequence in a
+ * CI job, the bytes are read as they are. Arrow keys are mapped to W/A/S/D. There is no
+ * mouse.
+ */
+public class TerminalInput implements InputSource {
+    // How long to wait for the rest of an escape sequence before taking ESC as a key
+    private static final long ESCAPE_WAIT_NANOS = 50_000_000L;
+
+    private final ConcurrentLinkedQueue<Key> keys = new ConcurrentLinkedQueue<>();
+    private final String savedSettings;
+    private volatile boolean closed;
+    private long lastKeyNanos;
+
+    private TerminalInput(InputStream in, String savedSettings) {
+        this.savedSettings = savedSettings;
+        Thread reader = new Thread(() -> readLoop(in), "terminal-input");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Starts reading keys from standard input, switching the terminal to unbuffered
+     * input if there is one.
+     */
+    public static TerminalInput open() {
+        String saved = null;
+        if (System.console() != null) {
+            saved = stty("-g");
+            if (saved != null) {
+                stty("-icanon -echo min 1");
+            }
+        }
+        return new TerminalInput(System.in, saved);
+    }
+
+    /**
+     * Restores the terminal settings that were active before open().
+     */
+    public void close() {
+        if (savedSettings != null) {
+            stty(savedSettings);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed && keys.isEmpty();
+    }
+
+    @Override
+    public boolean hasNextKeyTyped() {
+        return !keys.isEmpty();
+    }
+
+    @Override
+    public char nextKeyTyped() {
+        Key key = keys.poll();
+        if (key == null) {
+            throw new IllegalStateException("No key typed");
+        }
+        lastKeyNanos = key.nanos;
+        return key.c;
+    }
+
+    @Override
+    public long lastKeyTypedNanos() {
+        return lastKeyNanos;
+    }
+
+    @Override
+    public double mouseX() {
+        return Double.NaN;
+    }
+
+    @Override
+    public double mouseY() {
+        return Double.NaN;
+    }
+
+    private void readLoop(InputStream stdin) {
+        PushbackInputStream in = new PushbackInputStream(stdin);
+        try {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == 0x1b) {
+                    char mapped = readEscape(in);
+                    if (mapped != 0) {
+                        keys.add(new Key(mapped, System.nanoTime()));
+                    }
+                    continue;
+                }
+                if (b == '\r' || b == '\n') {
+                    continue;
+                }
+                keys.add(new Key((char) b, System.nanoTime()));
+            }
+        } catch (IOException e) {
+            // Treat a broken input stream like the end of input
+        }
+        closed = true;
+    }
+
+    /**
+     * Reads the rest of an escape sequence after ESC and returns its W/A/S/D key, or 0.
+     * Arrow keys arrive as ESC [ A..D, or ESC O A..D in application cursor mode; other
+     * CSI sequences (ESC [ params final) are skipped whole. A terminal sends a sequence
+     * in one write, so when no byte follows within ESCAPE_WAIT_NANOS, or the byte does
+     * not start a sequence, the ESC was a key of its own and nothing after it is used up.
+     */
+    private static char readEscape(PushbackInputStream in) throws IOException {
+        int introducer = readSoon(in);
+        if (introducer == 'O') {
+            return arrowKey(readSoon(in));
+        }
+        if (introducer != '[') {
+            if (introducer != -1) {
+                in.unread(introducer);
+            }
+            return 0;
+        }
+        int b = readSoon(in);
+        while (b >= 0x20 && b <= 0x3f) {
+            // Parameter and intermediate bytes, e.g. the "1;5" of Ctrl-Up
+            b = readSoon(in);
+        }
+        return arrowKey(b);
+    }
+
+    /** Next byte if one arrives within ESCAPE_WAIT_NANOS, else -1 without blocking on it. */
+    private static int readSoon(InputStream in) throws IOException {
+        long deadline = System.nanoTime() + ESCAPE_WAIT_NANOS;
+        while (in.available() == 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return -1;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+        return in.read();
+    }
+
+    /** A key and the time it arrived. */
+    private record Key(char c, long nanos) {
+    }
+
+    private static char arrowKey(int code) {
+        switch (code) {
+            case 'A':
+                return 'w';
+            case 'B':
+                return 's';
+            case 'C':
+                return 'd';
+            case 'D':
+                return 'a';
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Runs stty on the controlling terminal and returns its output, or null on failure.
+     */
+    private static String stty(String args) {
+        try {
+            Process p = new ProcessBuilder("sh", "-c", "stty " + args + " < /dev/tty").start();
+            String output = new String(p.getInputStream().readAllBytes()).trim();
+            return p.waitFor() == 0 ? output : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
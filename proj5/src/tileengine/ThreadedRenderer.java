@@ -0,0 +1,619 @@
+package tileengine;
+
+import utils.LatencyHistogram;
+import utils.SnapshotHandoff;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Renderer that moves all drawing onto a dedicated render thread, so a slow present
+ * (e.g. StdDraw.show()) never delays the game thread.
+ *
+ * Calls on the game thread only update an in-memory picture of the canvas: which tile is
+ * in each cell plus the shapes and text drawn on top. show() copies that picture into a
+ * snapshot and hands it over through a lock-free SnapshotHandoff. The render thread
+ * draws the newest snapshot onto the wrapped renderer and skips any it was too slow to
+ * see. Because every snapshot is a complete picture, skipping one loses nothing.
+ *
+ * The render thread compares each snapshot with the last one it drew and only redraws
+ * tiles that changed. Shapes and text are redrawn whenever they or the tiles changed;
+ * text is expected to sit on a filled rectangle or a cleared canvas, as the HUD does.
+ * When the camera moved, the render thread moves the pixels that stay in view with
+ * copyTiles(), if the target can, so only the strip that scrolled in is drawn.
+ *
+ * Dots (filledCircle) are indexed by the cell they sit in, so drawing a tile removes the
+ * dots it covers without looking at the other shapes. An image is only copied for the
+ * render thread when its pixels differ from the copy made last time.
+ *
+ * initialize() and enableCamera() are setup calls and must happen before the game loop
+ * starts presenting frames.
+ */
+public class ThreadedRenderer implements Renderer {
+    private final Renderer target;
+
+    // Game-thread picture of the canvas
+    private int width;
+    private int height;
+    private TETile[] cells;
+    private TETile[] scratchCells;
+    // Shapes in drawing order. Shapes covered by later drawing are set to null and
+    // squeezed out once they make up half the list.
+    private final List<Shape> shapes = new ArrayList<>();
+    private int removedShapes;
+    // Per cell, index in shapes of the last dot drawn in it; per shape, index of the
+    // dot drawn before it in the same cell. -1 for none.
+    private int[] lastDot;
+    private int[] previousDot = new int[64];
+    // Last image passed to drawImage, the copy handed to the render thread and its pixels
+    private BufferedImage imageSource;
+    private BufferedImage imageCopy;
+    private int[] imagePixels = new int[0];
+    private int[] scratchPixels = new int[0];
+    private Color clearColor = Color.BLACK;
+    private int clearCount;
+    private final Camera camera = new Camera();
+
+    private SnapshotHandoff<Frame> handoff;
+    private Thread renderThread;
+    private volatile boolean running;
+
+    // Render-thread state: what the target currently shows
+    private TETile[][] shownGrid;
+    private TETile[] shown;
+    private TETile[] scratchShown;
+    private final List<Shape> shownShapes = new ArrayList<>();
+    private int shownClearCount;
+    private int shownCameraX;
+    private int shownCameraY;
+
+    private final LatencyHistogram renderLatency = new LatencyHistogram("render");
+    private final LatencyHistogram presentLatency = new LatencyHistogram("publish-to-present");
+
+    /**
+     * @param target renderer that does the actual drawing, on the render thread
+     */
+    public ThreadedRenderer(Renderer target) {
+        this.target = target;
+    }
+
+    @Override
+    public void initialize(int w, int h) {
+        stop();
+        target.initialize(w, h);
+        width = w;
+        height = h;
+        cells = new TETile[w * h];
+        scratchCells = new TETile[w * h];
+        lastDot = new int[w * h];
+        clearShapes();
+        imageSource = null;
+        imageCopy = null;
+        clearColor = Color.BLACK;
+        clearCount = 0;
+        camera.disable();
+        handoff = new SnapshotHandoff<>(() -> new Frame(w * h));
+        shownGrid = new TETile[w][h];
+        shown = new TETile[w * h];
+        scratchShown = new TETile[w * h];
+        shownShapes.clear();
+        shownClearCount = 0;
+        shownCameraX = 0;
+        shownCameraY = 0;
+    }
+
+    @Override
+    public void renderFrame(TETile[][] world) {
+        clear(Color.BLACK);
+        drawTiles(world);
+        show();
+    }
+
+    @Override
+    public void drawTiles(TETile[][] world) {
+        boolean cameraEnabled = camera.isEnabled();
+        int startX = cameraEnabled ? camera.x() : 0;
+        int startY = cameraEnabled ? camera.y() : 0;
+        int maxX = Math.min(cameraEnabled ? camera.viewWidth() : width, world.length - startX);
+        int maxY = Math.min(cameraEnabled ? camera.viewHeight() : height, world[0].length - startY);
+        for (int x = startX; x < startX + maxX; x += 1) {
+            for (int y = startY; y < startY + maxY; y += 1) {
+                if (world[x][y] == null) {
+                    throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
+                            + " is null.");
+                }
+                drawTile(world, x, y);
+            }
+        }
+    }
+
+    @Override
+    public void drawTile(TETile[][] world, int x, int y) {
+        if (!isOnScreen(x, y)) {
+            return;
+        }
+        int cell = toScreenY(y) * width + toScreenX(x);
+        cells[cell] = world[x][y];
+        // A tile covers the dots drawn on it
+        removeDots(cell);
+    }
+
+    @Override
+    public void enableCamera(int w, int h) {
+        camera.enable(w, h);
+    }
+
+    /**
+     * Moves the tiles that stay in view along with the camera and only fills in the strip
+     * that scrolled into view. Dots in the view are dropped, as a full redraw would.
+     */
+    @Override
+    public boolean follow(TETile[][] world, int x, int y) {
+        int oldX = camera.x();
+        int oldY = camera.y();
+        if (!camera.isEnabled() || !camera.center(x, y, world.length, world[0].length)) {
+            return false;
+        }
+        int dx = camera.x() - oldX;
+        int dy = camera.y() - oldY;
+        int viewWidth = Math.min(camera.viewWidth(), width);
+        int viewHeight = Math.min(camera.viewHeight(), height);
+        for (int sy = 0; sy < viewHeight; sy += 1) {
+            for (int sx = 0; sx < viewWidth; sx += 1) {
+                int cell = sy * width + sx;
+                int ox = sx + dx;
+                int oy = sy + dy;
+                boolean kept = ox >= 0 && ox < viewWidth && oy >= 0 && oy < viewHeight;
+                scratchCells[cell] = kept ? cells[oy * width + ox] : null;
+                removeDots(cell);
+            }
+        }
+        TETile[] tmp = cells;
+        cells = scratchCells;
+        scratchCells = tmp;
+
+        int maxX = Math.min(viewWidth, world.length - camera.x());
+        int maxY = Math.min(viewHeight, world[0].length - camera.y());
+        for (int sx = 0; sx < maxX; sx += 1) {
+            for (int sy = 0; sy < maxY; sy += 1) {
+                if (cells[sy * width + sx] == null) {
+                    cells[sy * width + sx] = world[camera.x() + sx][camera.y() + sy];
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int toWorldX(double screenX) {
+        int x = (int) Math.floor(screenX);
+        return camera.isEnabled() ? x + camera.x() : x;
+    }
+
+    @Override
+    public int toWorldY(double screenY) {
+        int y = (int) Math.floor(screenY);
+        return camera.isEnabled() ? y + camera.y() : y;
+    }
+
+    @Override
+    public int toScreenX(int worldX) {
+        return camera.isEnabled() ? worldX - camera.x() : worldX;
+    }
+
+    @Override
+    public int toScreenY(int worldY) {
+        return camera.isEnabled() ? worldY - camera.y() : worldY;
+    }
+
+    @Override
+    public boolean isOnScreen(int x, int y) {
+        if (!camera.isEnabled()) {
+            return x >= 0 && x < width && y >= 0 && y < height;
+        }
+        return camera.contains(x, y);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public void clear(Color color) {
+        Arrays.fill(cells, null);
+        clearShapes();
+        clearColor = color;
+        clearCount += 1;
+    }
+
+    @Override
+    public void filledRectangle(double x, double y, double halfWidth, double halfHeight, Color color) {
+        // Anything anchored inside the rectangle is hidden by it
+        removeShapesIn(x - halfWidth, x + halfWidth, y - halfHeight, y + halfHeight);
+        addShape(new Shape(Shape.RECTANGLE, x, y, halfWidth, halfHeight, null, null, null, color));
+    }
+
+    @Override
+    public void filledCircle(double x, double y, double radius, Color color) {
+        addShape(new Shape(Shape.CIRCLE, x, y, radius, 0, null, null, null, color));
+    }
+
+    @Override
+    public void text(double x, double y, String text, Font font, Color color) {
+        addShape(new Shape(Shape.TEXT, x, y, 0, 0, text, font, null, color));
+    }
+
+    @Override
+    public void textLeft(double x, double y, String text, Font font, Color color) {
+        addShape(new Shape(Shape.TEXT_LEFT, x, y, 0, 0, text, font, null, color));
+    }
+
+    @Override
+    public void drawImage(BufferedImage image, double x, double y, double width, double height) {
+        double hw = width / 2;
+        double hh = height / 2;
+        removeShapesIn(x, x + width, y, y + height);
+        addShape(new Shape(Shape.IMAGE, x + hw, y + hh, hw, hh, null, null, copyIfChanged(image), null));
+    }
+
+    @Override
+    public double textWidth(String text, Font font) {
+        return target.textWidth(text, font);
+    }
+
+    @Override
+    public void resetFont() {
+        // The render thread resets the target's font before it draws tiles
+    }
+
+    /**
+     * Hands the current picture to the render thread. Never blocks.
+     */
+    @Override
+    public void show() {
+        Frame frame = handoff.back();
+        System.arraycopy(cells, 0, frame.cells, 0, cells.length);
+        frame.shapes.clear();
+        for (Shape s : shapes) {
+            if (s != null) {
+                frame.shapes.add(s);
+            }
+        }
+        frame.clearColor = clearColor;
+        frame.clearCount = clearCount;
+        frame.cameraX = camera.isEnabled() ? camera.x() : 0;
+        frame.cameraY = camera.isEnabled() ? camera.y() : 0;
+        frame.viewWidth = camera.isEnabled() ? Math.min(camera.viewWidth(), width) : width;
+        frame.viewHeight = camera.isEnabled() ? Math.min(camera.viewHeight(), height) : height;
+        frame.publishNanos = System.nanoTime();
+        handoff.publish();
+
+        if (!running) {
+            start();
+        } else {
+            LockSupport.unpark(renderThread);
+        }
+    }
+
+    /**
+     * Records the frames the wrapped renderer presents, on the render thread.
+     */
+    @Override
+    public void setRecorder(FrameRecorder recorder) {
+        target.setRecorder(recorder);
+    }
+
+    /**
+     * Lets the render thread draw the last published frame, then stops it. Safe to call
+     * from a shutdown hook.
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(renderThread);
+        try {
+            renderThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Time the render thread spent drawing and presenting each frame. */
+    public LatencyHistogram renderLatency() {
+        return renderLatency;
+    }
+
+    /** Time from show() on the game thread until the frame was presented. */
+    public LatencyHistogram presentLatency() {
+        return presentLatency;
+    }
+
+    /** Number of frames replaced by a newer one before the render thread drew them. */
+    public long droppedFrames() {
+        return handoff == null ? 0 : handoff.dropped();
+    }
+
+    /**
+     * One-line summary of render timings and dropped frames.
+     */
+    public String stats() {
+        return renderLatency.summary() + "; " + presentLatency.summary()
+                + "; published=" + (handoff == null ? 0 : handoff.published())
+                + " dropped=" + droppedFrames();
+    }
+
+    private void addShape(Shape s) {
+        int i = shapes.size();
+        if (i == previousDot.length) {
+            previousDot = Arrays.copyOf(previousDot, i * 2);
+        }
+        previousDot[i] = -1;
+        shapes.add(s);
+        if (s.kind == Shape.CIRCLE) {
+            int sx = (int) Math.floor(s.x);
+            int sy = (int) Math.floor(s.y);
+            if (sx >= 0 && sx < width && sy >= 0 && sy < height) {
+                previousDot[i] = lastDot[sy * width + sx];
+                lastDot[sy * width + sx] = i;
+            }
+        }
+    }
+
+    private void removeDots(int cell) {
+        for (int i = lastDot[cell]; i >= 0; i = previousDot[i]) {
+            removeShape(i);
+        }
+        lastDot[cell] = -1;
+        compactShapes();
+    }
+
+    /** Removes the shapes anchored inside a rectangle of the canvas. */
+    private void removeShapesIn(double x0, double x1, double y0, double y1) {
+        for (int i = 0; i < shapes.size(); i++) {
+            Shape s = shapes.get(i);
+            if (s != null && s.x >= x0 && s.x <= x1 && s.y >= y0 && s.y <= y1) {
+                removeShape(i);
+            }
+        }
+        compactShapes();
+    }
+
+    private void removeShape(int i) {
+        if (shapes.get(i) != null) {
+            shapes.set(i, null);
+            removedShapes++;
+        }
+    }
+
+    /** Squeezes out removed shapes once they make up half the list, rebuilding the dot index. */
+    private void compactShapes() {
+        if (removedShapes < 32 || removedShapes * 2 < shapes.size()) {
+            return;
+        }
+        List<Shape> live = new ArrayList<>(shapes.size() - removedShapes);
+        for (Shape s : shapes) {
+            if (s != null) {
+                live.add(s);
+            }
+        }
+        clearShapes();
+        for (Shape s : live) {
+            addShape(s);
+        }
+    }
+
+    private void clearShapes() {
+        shapes.clear();
+        removedShapes = 0;
+        Arrays.fill(lastDot, -1);
+    }
+
+    /**
+     * The copy of an image to hand the render thread: the copy made last time if the
+     * image is the same one with the same pixels, else a new one. The caller may keep
+     * changing the image, so the render thread never draws the image itself.
+     */
+    private BufferedImage copyIfChanged(BufferedImage image) {
+        int n = image.getWidth() * image.getHeight();
+        int type = image.getType();
+        boolean packed = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+        if (packed) {
+            if (scratchPixels.length != n) {
+                scratchPixels = new int[n];
+            }
+            image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), scratchPixels);
+            if (image == imageSource && Arrays.equals(scratchPixels, imagePixels)) {
+                return imageCopy;
+            }
+        }
+        imageSource = image;
+        imageCopy = new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+        if (packed) {
+            int[] tmp = imagePixels;
+            imagePixels = scratchPixels;
+            scratchPixels = tmp;
+        }
+        return imageCopy;
+    }
+
+    private void start() {
+        running = true;
+        renderThread = new Thread(this::renderLoop, "render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    private void renderLoop() {
+        while (true) {
+            Frame frame = handoff.poll();
+            if (frame == null) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(5_000_000L);
+                continue;
+            }
+            long start = System.nanoTime();
+            draw(frame);
+            long end = System.nanoTime();
+            renderLatency.record(end - start);
+            presentLatency.record(end - frame.publishNanos);
+        }
+    }
+
+    /**
+     * Brings the target from what it shows now to the given frame. Render thread only.
+     */
+    private void draw(Frame frame) {
+        boolean changed = false;
+        if (frame.clearCount != shownClearCount) {
+            target.clear(frame.clearColor);
+            Arrays.fill(shown, null);
+            shownShapes.clear();
+            shownClearCount = frame.clearCount;
+            changed = true;
+        } else if (frame.cameraX != shownCameraX || frame.cameraY != shownCameraY) {
+            scroll(frame.cameraX - shownCameraX, frame.cameraY - shownCameraY, frame.viewWidth, frame.viewHeight);
+            changed = true;
+        }
+        shownCameraX = frame.cameraX;
+        shownCameraY = frame.cameraY;
+
+        boolean shapesChanged = !frame.shapes.equals(shownShapes);
+        if (shapesChanged) {
+            // Uncover what the old shapes were drawn on
+            for (Shape s : shownShapes) {
+                forgetCellsUnder(s);
+            }
+        }
+
+        target.resetFont();
+        for (int i = 0; i < frame.cells.length; i += 1) {
+            TETile tile = frame.cells[i];
+            if (tile != null && tile != shown[i]) {
+                int x = i % width;
+                int y = i / width;
+                shownGrid[x][y] = tile;
+                target.drawTile(shownGrid, x, y);
+                shown[i] = tile;
+                changed = true;
+            }
+        }
+
+        if (changed || shapesChanged) {
+            for (Shape s : frame.shapes) {
+                s.drawOn(target);
+            }
+            shownShapes.clear();
+            shownShapes.addAll(frame.shapes);
+            target.show();
+        }
+    }
+
+    /**
+     * Moves what the target shows of the view along with a camera move of (dx, dy), if
+     * the target can. Otherwise the view stays as it is and the cells that differ get
+     * redrawn. Render thread only.
+     */
+    private void scroll(int dx, int dy, int viewWidth, int viewHeight) {
+        // Shapes are drawn again over the moved view, and their old pixels may move
+        for (Shape s : shownShapes) {
+            forgetCellsUnder(s);
+        }
+        if (Math.abs(dx) >= viewWidth || Math.abs(dy) >= viewHeight
+                || !target.copyTiles(Math.max(dx, 0), Math.max(dy, 0), viewWidth - Math.abs(dx),
+                        viewHeight - Math.abs(dy), -dx, -dy)) {
+            return;
+        }
+        for (int y = 0; y < viewHeight; y += 1) {
+            for (int x = 0; x < viewWidth; x += 1) {
+                int ox = x + dx;
+                int oy = y + dy;
+                boolean kept = ox >= 0 && ox < viewWidth && oy >= 0 && oy < viewHeight;
+                scratchShown[y * width + x] = kept ? shown[oy * width + ox] : null;
+            }
+        }
+        for (int y = 0; y < viewHeight; y += 1) {
+            System.arraycopy(scratchShown, y * width, shown, y * width, viewWidth);
+        }
+    }
+
+    private void forgetCellsUnder(Shape s) {
+        int x0 = (int) Math.floor(s.x - s.a);
+        int x1 = (int) Math.ceil(s.x + s.a);
+        int y0 = (int) Math.floor(s.y - s.b);
+        int y1 = (int) Math.ceil(s.y + s.b);
+        for (int x = Math.max(0, x0); x < Math.min(width, Math.max(x1, x0 + 1)); x += 1) {
+            for (int y = Math.max(0, y0); y < Math.min(height, Math.max(y1, y0 + 1)); y += 1) {
+                shown[y * width + x] = null;
+            }
+        }
+    }
+
+    /**
+     * Everything the render thread needs to draw one frame.
+     */
+    private static class Frame {
+        final TETile[] cells;
+        final List<Shape> shapes = new ArrayList<>();
+        Color clearColor;
+        int clearCount;
+        // Camera position and view size the cells were drawn with
+        int cameraX;
+        int cameraY;
+        int viewWidth;
+        int viewHeight;
+        long publishNanos;
+
+        Frame(int size) {
+            cells = new TETile[size];
+        }
+    }
+
+    /**
+     * A shape, image or piece of text drawn over the tiles. Immutable, so frames can share
+     * them. For rectangles and images (x, y) is the center and a and b are the half sizes,
+     * for circles a is the radius.
+     */
+    private record Shape(int kind, double x, double y, double a, double b,
+                         String text, Font font, BufferedImage image, Color color) {
+        static final int RECTANGLE = 0;
+        static final int CIRCLE = 1;
+        static final int TEXT = 2;
+        static final int TEXT_LEFT = 3;
+        static final int IMAGE = 4;
+
+        void drawOn(Renderer r) {
+            switch (kind) {
+                case RECTANGLE:
+                    r.filledRectangle(x, y, a, b, color);
+                    break;
+                case CIRCLE:
+                    r.filledCircle(x, y, a, color);
+                    break;
+                case TEXT:
+                    r.text(x, y, text, font, color);
+                    break;
+                case IMAGE:
+                    r.drawImage(image, x - a, y - b, 2 * a, 2 * b);
+                    break;
+                default:
+                    r.textLeft(x, y, text, font, color);
+                    break;
+            }
+        }
+    }
+}
@@ -70,6 +70,34 @@ public class Tileset {
     // Chaser Tile
     // =========================
     public static final TETile CHASER = new TETile('\u2639', Color.red, Color.black, "chaser", 26); // ☹ as chaser
+
+    // Every tile above, indexed by id
+    private static final TETile[] BY_ID = indexById(FLOOR, GRASS, FLOWER, SAND, SNOW, WALL, NOTHING, WATER,
+            MOUNTAIN, TREE, LOCKED_DOOR, UNLOCKED_DOOR, CELL, BUSH, STATUE, CRATE, BOOKSHELF, SNOWMAN,
+            OPENED_CHEST, TREASURE, PORTAL, LAVA, SPIKE, AVATAR, CHASER);
+
+    /**
+     * Returns the tile with the given id. Used to read back tiles stored by id.
+     * @throws IllegalArgumentException if no tile has that id
+     */
+    public static TETile byId(int id) {
+        if (id < 0 || id >= BY_ID.length || BY_ID[id] == null) {
+            throw new IllegalArgumentException("Unknown tile id: " + id);
+        }
+        return BY_ID[id];
+    }
+
+    private static TETile[] indexById(TETile... tiles) {
+        int max = 0;
+        for (TETile t : tiles) {
+            max = Math.max(max, t.id());
+        }
+        TETile[] byId = new TETile[max + 1];
+        for (TETile t : tiles) {
+            byId[t.id()] = t;
+        }
+        return byId;
+    }
 }
 
 
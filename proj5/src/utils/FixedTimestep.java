@@ -0,0 +1,112 @@
+package utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop at a fixed number of ticks per second, no matter how long each tick's
+ * work takes.
+ *
+ * Deadlines are kept on a fixed grid, so time spent working is subtracted from the next
+ * sleep instead of adding to it. Sleeping parks until shortly before the deadline and
+ * spins for the rest, because parking alone routinely oversleeps by a millisecond or
+ * more. A tick that runs late is followed by ticks without sleep until the loop is back
+ * on schedule, but never more than maxCatchUpTicks of them: if the loop falls further
+ * behind (a long GC pause, a blocking dialog) the missed ticks are dropped and the grid
+ * restarts from now.
+ */
+public class FixedTimestep {
+    // Parking is only trusted up to this long before a deadline
+    private static final long SPIN_NANOS = 1_000_000L;
+
+    private final long tickNanos;
+    private final int maxCatchUpTicks;
+    private long deadline;
+    private boolean started;
+
+    private long ticks;
+    private long lateTicks;
+    private long droppedTicks;
+    private final LatencyHistogram oversleep = new LatencyHistogram("oversleep");
+
+    /**
+     * @param ticksPerSecond tick rate, at least 1
+     * @param maxCatchUpTicks how many ticks may run back to back to catch up
+     */
+    public FixedTimestep(int ticksPerSecond, int maxCatchUpTicks) {
+        if (ticksPerSecond < 1) {
+            throw new IllegalArgumentException("Tick rate must be at least 1, got " + ticksPerSecond);
+        }
+        if (maxCatchUpTicks < 0) {
+            throw new IllegalArgumentException("Catch-up limit must not be negative");
+        }
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    /** Length of one tick in nanoseconds. */
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Waits until the next tick is due. The first call starts the schedule and returns
+     * after one tick.
+     */
+    public void awaitNextTick() {
+        long now = System.nanoTime();
+        if (!started) {
+            deadline = now;
+            started = true;
+        }
+        ticks++;
+        deadline += tickNanos;
+
+        long behind = now - deadline;
+        if (behind > (long) maxCatchUpTicks * tickNanos) {
+            droppedTicks += behind / tickNanos;
+            deadline = now;
+            return;
+        }
+        if (behind >= 0) {
+            lateTicks++;
+            return;
+        }
+
+        long remaining = -behind;
+        if (remaining > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        }
+        while ((now = System.nanoTime()) < deadline) {
+            Thread.onSpinWait();
+        }
+        oversleep.record(now - deadline);
+    }
+
+    /** Number of awaitNextTick calls. */
+    public long ticks() {
+        return ticks;
+    }
+
+    /** Ticks that started late and ran without sleeping to catch up. */
+    public long lateTicks() {
+        return lateTicks;
+    }
+
+    /** Ticks skipped because the loop fell more than the catch-up limit behind. */
+    public long droppedTicks() {
+        return droppedTicks;
+    }
+
+    /** How far past each deadline the loop actually woke up. */
+    public LatencyHistogram oversleep() {
+        return oversleep;
+    }
+
+    /**
+     * One-line summary of the schedule, e.g. "33.3 ticks/s ticks=120 late=2 dropped=0".
+     */
+    public String summary() {
+        return String.format("%.1f ticks/s ticks=%d late=%d dropped=%d; %s",
+                1e9 / tickNanos, ticks, lateTicks, droppedTicks, oversleep.summary());
+    }
+}
@@ -0,0 +1,116 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in nanoseconds, for reporting latency percentiles without
+ * keeping every sample. Values are grouped into 8 buckets per power of two, so a
+ * reported percentile is within about 12% of the true value.
+ *
+ * Recording is cheap and allocation-free. All methods are synchronized so one thread
+ * can record while another reads a summary.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+
+    private final String name;
+    private final long[] buckets = new long[SUB_BUCKETS + (64 - SUB_BITS) * SUB_BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * @param name label used in summaries
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds one sample.
+     * @param nanos duration in nanoseconds; negative values count as 0
+     */
+    public synchronized void record(long nanos) {
+        long v = Math.max(0, nanos);
+        buckets[bucketOf(v)]++;
+        count++;
+        total += v;
+        max = Math.max(max, v);
+    }
+
+    /** Label given at construction. */
+    public String name() {
+        return name;
+    }
+
+    /** Number of samples. */
+    public synchronized long count() {
+        return count;
+    }
+
+    /** Mean of all samples in nanoseconds, or 0 if there are none. */
+    public synchronized double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /** Largest sample in nanoseconds. */
+    public synchronized long max() {
+        return max;
+    }
+
+    /**
+     * Returns an upper bound for the given percentile in nanoseconds.
+     * @param p percentile between 0 and 100
+     */
+    public synchronized long percentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /** Removes all samples. */
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * One-line summary in microseconds, e.g. "tick n=120 mean=35.2us p50=31us ...".
+     */
+    public synchronized String summary() {
+        return String.format("%s n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+                name, count, mean() / 1e3, percentile(50) / 1e3, percentile(90) / 1e3,
+                percentile(99) / 1e3, max / 1e3);
+    }
+
+    private static int bucketOf(long v) {
+        if (v < SUB_BUCKETS) {
+            return (int) v;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (msb - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int msb = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (msb - SUB_BITS);
+        return lower + (1L << (msb - SUB_BITS)) - 1;
+    }
+}
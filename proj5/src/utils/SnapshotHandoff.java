@@ -0,0 +1,87 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free handoff of the latest snapshot from one producer thread to one consumer
+ * thread (a triple buffer). The producer fills back() and calls publish(); the consumer
+ * calls poll() to get the newest published snapshot. Snapshots the consumer had no time
+ * to pick up are overwritten and counted as dropped, so the consumer never falls behind
+ * and the producer never waits.
+ *
+ * The three snapshot objects are reused forever, so steady-state handoffs allocate
+ * nothing. Only the producer may touch back() and only the consumer may touch the
+ * object returned by poll(), until its next call.
+ *
+ * @param <T> snapshot type
+ */
+public class SnapshotHandoff<T> {
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final Object[] slots = new Object[3];
+    // Index of the slot between producer and consumer, plus FRESH if not consumed yet
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private int back = 0;   // producer only
+    private int front = 1;  // consumer only
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param factory creates the three snapshot objects
+     */
+    public SnapshotHandoff(Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = factory.get();
+        }
+    }
+
+    /**
+     * The snapshot the producer should fill before the next publish().
+     */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) slots[back];
+    }
+
+    /**
+     * Makes the filled back() snapshot the newest one. Producer only.
+     * @return true if an older snapshot was replaced before the consumer saw it
+     */
+    public boolean publish() {
+        int previous = middle.getAndSet(back | FRESH);
+        back = previous & INDEX;
+        published.incrementAndGet();
+        if ((previous & FRESH) != 0) {
+            dropped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the newest snapshot if one was published since the last call, otherwise
+     * null. Consumer only.
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & INDEX;
+        return (T) slots[front];
+    }
+
+    /** Number of snapshots published so far. */
+    public long published() {
+        return published.get();
+    }
+
+    /** Number of snapshots overwritten before the consumer took them. */
+    public long dropped() {
+        return dropped.get();
+    }
+}